@@ -1,7 +1,11 @@
 package com.codingtracker.controller.api.auth;
 
 import com.codingtracker.dto.ApiResponse;
+import com.codingtracker.init.ExtOjLinkDataLoader;
+import com.codingtracker.model.ExtOjLink;
+import com.codingtracker.model.OJPlatform;
 import com.codingtracker.model.User;
+import com.codingtracker.service.ExtOjLinkRegistry;
 import com.codingtracker.service.UserService;
 import jakarta.annotation.security.RolesAllowed;
 import lombok.Getter;
@@ -14,7 +18,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * 管理员专用接口：用户信息的增删改查（单个/批量）
+ * 管理员专用接口：用户信息的增删改查（单个/批量）、OJ 链接配置热加载
  */
 @RestController
 @RequestMapping("/api/auth/admin")
@@ -23,9 +27,15 @@ import java.util.stream.Collectors;
 public class AdminController {
 
     private final UserService userService;
+    private final ExtOjLinkDataLoader linkDataLoader;
+    private final ExtOjLinkRegistry linkRegistry;
 
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService,
+                           ExtOjLinkDataLoader linkDataLoader,
+                           ExtOjLinkRegistry linkRegistry) {
         this.userService = userService;
+        this.linkDataLoader = linkDataLoader;
+        this.linkRegistry = linkRegistry;
     }
 
     /** 列出所有用户 */
@@ -117,6 +127,39 @@ public class AdminController {
         return ApiResponse.ok("批量更新完成", results);
     }
 
+    /** 重新加载 oj_links.json，无需重启 */
+    @PostMapping("/oj-links/reload")
+    public ApiResponse<List<String>> reloadOjLinks() {
+        try {
+            List<String> platforms = linkDataLoader.reload().stream()
+                    .map(link -> link.getOj().name())
+                    .collect(Collectors.toList());
+            log.info("Admin reloaded oj links: {}", platforms);
+            return ApiResponse.ok("重新加载成功", platforms);
+        } catch (Exception e) {
+            log.error("Failed to reload oj links", e);
+            return ApiResponse.error("重新加载失败：" + e.getMessage());
+        }
+    }
+
+    /** 更换某平台的登录令牌（如 Luogu Cookie），立即生效 */
+    @PutMapping("/oj-links/{oj}/auth-token")
+    public ApiResponse<Void> rotateAuthToken(@PathVariable String oj,
+                                             @RequestBody AuthTokenRequest req) {
+        OJPlatform platform = OJPlatform.fromName(oj);
+        if (platform == OJPlatform.UNKNOWN) {
+            return ApiResponse.error("未知平台：" + oj);
+        }
+        try {
+            ExtOjLink updated = linkRegistry.rotateAuthToken(platform, req.getAuthToken());
+            log.info("Admin rotated auth token of {}", updated.getOj());
+            return ApiResponse.ok("更新成功", null);
+        } catch (RuntimeException e) {
+            log.warn("Failed to rotate auth token of {}", platform, e);
+            return ApiResponse.error("更新失败：" + e.getMessage());
+        }
+    }
+
     // —— DTOs —— //
 
     @Getter @Setter
@@ -166,4 +209,9 @@ public class AdminController {
         private String avatar;
         private Set<String> roles;
     }
+
+    @Getter @Setter @NoArgsConstructor
+    public static class AuthTokenRequest {
+        private String authToken;
+    }
 }
@@ -4,7 +4,9 @@ package com.codingtracker.controller.api.auth;
 import com.codingtracker.dto.ApiResponse;
 import com.codingtracker.dto.UserInfoDTO;
 import com.codingtracker.model.User;
+import com.codingtracker.model.UserOJ;
 import com.codingtracker.repository.UserRepository;
+import com.codingtracker.service.HandleValidationService;
 import com.codingtracker.service.UserService;
 import com.codingtracker.util.JwtUtils;
 import lombok.Getter;
@@ -17,6 +19,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PostMapping;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -27,10 +30,13 @@ public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
     private final UserService userService;
     private final UserRepository userRepository;
+    private final HandleValidationService handleValidationService;
 
-    public AuthController(UserService userService, UserRepository userRepository) {
+    public AuthController(UserService userService, UserRepository userRepository,
+                          HandleValidationService handleValidationService) {
         this.userService = userService;
         this.userRepository = userRepository;
+        this.handleValidationService = handleValidationService;
     }
 
     // 用户登录并返回 token
@@ -86,8 +92,12 @@ public class AuthController {
         }
         UserInfoDTO dto = UserInfoDTO.fromUser(userOpt.get());
 
-        // 调用业务层修改
-        userService.modifyUser(user);
+        // 调用业务层修改，新绑定的 OJ 账号批量校验
+        List<UserOJ> added = userService.modifyUser(user);
+        List<String> invalid = handleValidationService.validate(added);
+        if (!invalid.isEmpty()) {
+            return ApiResponse.ok("修改成功，但以下账号不存在，将暂停同步：" + String.join("，", invalid), null);
+        }
         return ApiResponse.ok();
     }
 
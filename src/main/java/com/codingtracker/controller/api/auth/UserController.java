@@ -2,7 +2,10 @@ package com.codingtracker.controller.api.auth;
 
 import com.codingtracker.dto.ApiResponse;
 import com.codingtracker.dto.UserOJDTO;
+import com.codingtracker.model.OJPlatform;
 import com.codingtracker.model.UserOJ;
+import com.codingtracker.service.HandleValidationService;
+import com.codingtracker.service.InvalidHandleService;
 import com.codingtracker.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,14 +19,20 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final InvalidHandleService invalidHandleService;
+    private final HandleValidationService handleValidationService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService,
+                          InvalidHandleService invalidHandleService,
+                          HandleValidationService handleValidationService) {
         this.userService = userService;
+        this.invalidHandleService = invalidHandleService;
+        this.handleValidationService = handleValidationService;
     }
 
     /**
-     * 获取当前用户的所有 OJ 账号
+     * 获取当前用户的所有 OJ 账号，附带无效账号负缓存状态
      */
     @GetMapping
     public ApiResponse<List<UserOJDTO>> getOJAccounts() {
@@ -31,13 +40,13 @@ public class UserController {
                 .getAuthentication().getName();
         List<UserOJ> ojAccounts = userService.getOJAccountsByUsername(username);
         List<UserOJDTO> dtos = ojAccounts.stream()
-                .map(UserOJDTO::new)
+                .map(oj -> new UserOJDTO(oj, invalidHandleService.statusOf(oj)))
                 .collect(Collectors.toList());
         return ApiResponse.ok(dtos);
     }
 
     /**
-     * 添加一个新的 OJ 账号
+     * 添加一个新的 OJ 账号，并校验 handle 是否存在
      */
     @PostMapping
     public ApiResponse<Void> addOJAccount(@RequestParam("platform") String platform,
@@ -46,6 +55,13 @@ public class UserController {
                 .getAuthentication().getName();
         boolean added = userService.addOJAccount(username, platform, accountName);
         if (added) {
+            UserOJ account = new UserOJ();
+            account.setPlatform(OJPlatform.fromName(platform));
+            account.setAccountName(accountName);
+            List<String> invalid = handleValidationService.validate(List.of(account));
+            if (!invalid.isEmpty()) {
+                return ApiResponse.ok("添加成功，但以下账号不存在，将暂停同步：" + String.join("，", invalid), null);
+            }
             return ApiResponse.ok("添加成功", null);
         }
         return ApiResponse.error("添加失败");
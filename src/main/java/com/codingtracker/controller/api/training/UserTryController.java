@@ -1,11 +1,18 @@
 package com.codingtracker.controller.api.training;
 
+import com.codingtracker.crawler.HostRateLimiter;
 import com.codingtracker.dto.ApiResponse;
+import com.codingtracker.dto.CrawlJobProgressDTO;
+import com.codingtracker.dto.HostRateStatsDTO;
 import com.codingtracker.dto.UserTryProblemDTO;
+import com.codingtracker.model.CrawlJob;
 import com.codingtracker.model.User;
 import com.codingtracker.service.ExtOjService;
 import com.codingtracker.service.UserService;
 import com.codingtracker.service.UserTryProblemService;
+import com.codingtracker.service.sync.ContestSyncService;
+import com.codingtracker.service.sync.CrawlJobService;
+import com.codingtracker.service.sync.TrySyncPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +38,9 @@ public class UserTryController {
     @Autowired private ExtOjService extOjService;
     @Autowired private UserService userService;
     @Autowired private UserTryProblemService userTryProblemService;
+    @Autowired private HostRateLimiter hostRateLimiter;
+    @Autowired private CrawlJobService crawlJobService;
+    @Autowired private ContestSyncService contestSyncService;
 
     /**
      * 获取指定用户的所有尝试记录
@@ -57,7 +67,7 @@ public class UserTryController {
      * 更新数据库中的用户尝试记录
      */
     @PostMapping("/updatedb")
-    public ApiResponse<Void> updatedb() {
+    public ApiResponse<Void> updatedb(@RequestParam(value = "full", defaultValue = "false") boolean full) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         Optional<User> userOpt = userService.getUserByUsername(username);
         if (userOpt.isEmpty()) {
@@ -67,10 +77,10 @@ public class UserTryController {
 
         if (userOpt.get().isAdmin()) {
             logger.info("Admin {} flushes all user tries", username);
-            extOjService.flushTriesDB();
+            extOjService.flushTriesDB(full);
         } else {
             logger.info("User {} flushes own tries", username);
-            extOjService.flushTriesByUser(userOpt.get());
+            extOjService.flushTriesByUser(userOpt.get(), full);
         }
 
         return ApiResponse.ok("更新完毕", null);
@@ -95,11 +105,11 @@ public class UserTryController {
     }
 
     /**
-     * 手动触发重新爬取（重建数据）
+     * 手动触发重新爬取（重建数据），默认增量同步，full=true 时强制全量重爬
      * 仅管理员可调用
      */
     @PostMapping("/stats/rebuild")
-    public ApiResponse<Void> manualRebuild() {
+    public ApiResponse<Map<String, Object>> manualRebuild(@RequestParam(value = "full", defaultValue = "false") boolean full) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         Optional<User> userOpt = userService.getUserByUsername(username);
         if (userOpt.isEmpty()) {
@@ -116,10 +126,10 @@ public class UserTryController {
             return ApiResponse.error("系统正在更新，请稍后再试");
         }
 
-        boolean started = extOjService.triggerFlushTriesDB();
-        if (started) {
-            logger.info("Admin {} triggered manual rebuild of user tries asynchronously", username);
-            return ApiResponse.ok("手动重建已启动，请稍后查看结果", null);
+        Optional<CrawlJob> job = extOjService.triggerFlushTriesDB(full, username);
+        if (job.isPresent()) {
+            logger.info("Admin {} triggered manual rebuild of user tries asynchronously, job {}", username, job.get().getId());
+            return ApiResponse.ok("手动重建已启动，请稍后查看结果", Map.of("jobId", job.get().getId()));
         } else {
             logger.warn("Manual rebuild rejected by trigger method");
             return ApiResponse.error("系统正在更新，请稍后再试");
@@ -127,6 +137,104 @@ public class UserTryController {
     }
 
 
+    /**
+     * 查询最近一次重建任务的进度（各平台完成单元数、写入速度、预计剩余时间）
+     */
+    @GetMapping("/stats/rebuild")
+    public ApiResponse<CrawlJobProgressDTO> latestRebuild() {
+        return crawlJobService.latest()
+                .map(p -> ApiResponse.ok("查询成功", p))
+                .orElseGet(() -> ApiResponse.error("暂无重建任务"));
+    }
+
+    /**
+     * 查询指定重建任务的进度
+     */
+    @GetMapping("/stats/rebuild/{jobId}")
+    public ApiResponse<CrawlJobProgressDTO> rebuildProgress(@PathVariable String jobId) {
+        return crawlJobService.progress(jobId)
+                .map(p -> ApiResponse.ok("查询成功", p))
+                .orElseGet(() -> ApiResponse.error("任务不存在"));
+    }
+
+    /**
+     * 取消重建任务，已完成的单元保留，未执行的单元不再执行
+     * 仅管理员可调用
+     */
+    @PostMapping("/stats/rebuild/{jobId}/cancel")
+    public ApiResponse<Void> cancelRebuild(@PathVariable String jobId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Optional<User> userOpt = userService.getUserByUsername(username);
+        if (userOpt.isEmpty()) {
+            logger.warn("Unauthorized rebuild cancel attempt: no login");
+            return ApiResponse.error("您没有登录");
+        }
+        if (!userOpt.get().isAdmin()) {
+            logger.warn("Unauthorized rebuild cancel attempt by user: {}", username);
+            return ApiResponse.error("权限不足");
+        }
+        if (!crawlJobService.cancel(jobId)) {
+            return ApiResponse.error("任务不存在或已结束");
+        }
+        logger.info("Admin {} cancelled rebuild job {}", username, jobId);
+        return ApiResponse.ok("已取消", null);
+    }
+
+    /**
+     * 比赛模式同步：一次拉取 Codeforces 比赛（contestId ≥ 100000 为 Gym）的全部提交，只写入本站用户的记录
+     * 仅管理员可调用
+     */
+    @PostMapping("/stats/contest/{contestId}/sync")
+    public ApiResponse<TrySyncPipeline.Result> syncContest(@PathVariable long contestId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Optional<User> userOpt = userService.getUserByUsername(username);
+        if (userOpt.isEmpty()) {
+            logger.warn("Unauthorized contest sync attempt: no login");
+            return ApiResponse.error("您没有登录");
+        }
+        if (!userOpt.get().isAdmin()) {
+            logger.warn("Unauthorized contest sync attempt by user: {}", username);
+            return ApiResponse.error("权限不足");
+        }
+        try {
+            TrySyncPipeline.Result result = contestSyncService.syncContest(contestId);
+            logger.info("Admin {} synced contest {}, {} rows inserted", username, contestId, result.inserted());
+            return ApiResponse.ok("同步完成", result);
+        } catch (Exception e) {
+            logger.error("Contest {} sync failed", contestId, e);
+            return ApiResponse.error("比赛同步失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 手动触发题库目录同步（下载各平台完整题库并批量写入）
+     * 仅管理员可调用
+     */
+    @PostMapping("/stats/catalog-sync")
+    public ApiResponse<Map<String, Object>> syncCatalog() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Optional<User> userOpt = userService.getUserByUsername(username);
+        if (userOpt.isEmpty()) {
+            logger.warn("Unauthorized catalog sync attempt: no login");
+            return ApiResponse.error("您没有登录");
+        }
+        if (!userOpt.get().isAdmin()) {
+            logger.warn("Unauthorized catalog sync attempt by user: {}", username);
+            return ApiResponse.error("权限不足");
+        }
+        int count = extOjService.syncProblemCatalogs();
+        logger.info("Admin {} synced problem catalogs, {} problems", username, count);
+        return ApiResponse.ok("同步完成", Map.of("problems", count));
+    }
+
+    /**
+     * 查询爬虫各 host 的限流状态（当前速率、被限流次数、排队等待时间）
+     */
+    @GetMapping("/stats/rate-limits")
+    public ApiResponse<List<HostRateStatsDTO>> getRateLimits() {
+        return ApiResponse.ok("查询成功", hostRateLimiter.snapshot());
+    }
+
     /**
      * 查询上次爬虫数据更新时间
      * 这里假设 ExtOjService 有 getLastUpdateTime 方法，返回 LocalDateTime
@@ -1,26 +1,30 @@
 package com.codingtracker.crawler;
 
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
-import com.codingtracker.repository.ExtOjPbInfoRepository;
-import com.codingtracker.repository.TagRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
+import com.codingtracker.service.InvalidHandleService;
+import com.codingtracker.service.ProblemCatalogService;
+import com.codingtracker.service.ResponseFingerprintService;
+import com.codingtracker.service.SyncCursorService;
+import com.codingtracker.util.UrlTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.common.util.StringUtils;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 /**
  * CFCrawler 类（Codeforces API 客户端），使用 Jackson 解析 JSON，映射用户基本信息与提交记录。
@@ -31,17 +35,35 @@ public class CFCrawler {
     private static final Logger logger = LoggerFactory.getLogger(CFCrawler.class);
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    /** 增量同步时每页拉取的提交数 */
+    private static final int PAGE_SIZE = 100;
+
+    /** 响应指纹中 user.status 接口的名称 */
+    private static final String STATUS_ENDPOINT = "user.status";
+
+    /** 比赛模式每页拉取的提交数 */
+    private static final int CONTEST_PAGE_SIZE = 10000;
+
+    /** contestId 不小于该值的是 Gym 比赛 */
+    private static final long GYM_CONTEST_ID_MIN = 100000;
+
     @Autowired
     private HttpUtil httpUtil;
 
     @Autowired
-    private ExtOjPbInfoRepository extOjPbInfoRepository;
+    private ProblemCatalogService problemCatalogService;
+
+    @Autowired
+    private ExtOjLinkRegistry linkRegistry;
+
+    @Autowired
+    private SyncCursorService syncCursorService;
 
     @Autowired
-    private TagRepository tagRepository;
+    private ResponseFingerprintService fingerprintService;
 
     @Autowired
-    private ExtOjLinkRepository extOjLinkRepository;
+    private InvalidHandleService invalidHandleService;
 
     public OJPlatform getOjType() {
         return OJPlatform.CODEFORCES;
@@ -66,6 +88,8 @@ public class CFCrawler {
             String response = httpUtil.readURL(url);
             JsonNode root = mapper.readTree(response);
             if (!"OK".equals(root.path("status").asText())) {
+                reportIfThrottled(url, new CFSubmissionDecoder.Status(
+                        root.path("status").asText(), root.path("comment").asText(null)));
                 return null;
             }
             JsonNode result = root.path("result");
@@ -104,140 +128,572 @@ public class CFCrawler {
     }
 
     /**
-     * 获取某用户的所有提交记录，并映射成 UserTryProblem 实体列表
+     * 批量校验 handle 是否存在。整批调用一次 user.info；其中有不存在的 handle 时接口整体返回 400，
+     * 此时对半拆分分别再查，直到定位出全部不存在的 handle，请求数约为 无效数 × log(总数)。
+     *
+     * @param handles 待校验的 handle
+     * @return 不存在的 handle
+     * @throws RuntimeException 网络或平台错误（不是 handle 的问题）
+     */
+    public Set<String> findMissingHandles(Collection<String> handles) {
+        Set<String> missing = new LinkedHashSet<>();
+        findMissingHandles(new ArrayList<>(new LinkedHashSet<>(handles)), missing);
+        return missing;
+    }
+
+    private void findMissingHandles(List<String> handles, Set<String> missing) {
+        if (handles.isEmpty()) {
+            return;
+        }
+        String url = "https://codeforces.com/api/user.info?handles=" + String.join(";", handles);
+        logger.info("校验 Codeforces handle，url：{}", url);
+        try {
+            JsonNode root = mapper.readTree(httpUtil.readURL(url));
+            if ("OK".equals(root.path("status").asText())) {
+                return;
+            }
+            String comment = root.path("comment").asText("");
+            if (!comment.toLowerCase().contains("not found")) {
+                throw new RuntimeException("Codeforces user.info 返回 " + root.path("status").asText() + "：" + comment);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("解析 Codeforces user.info 响应失败", e);
+        } catch (RuntimeException e) {
+            if (InvalidHandleException.reasonOf(e).isEmpty()) {
+                throw e;
+            }
+        }
+        if (handles.size() == 1) {
+            missing.add(handles.get(0));
+            return;
+        }
+        int mid = handles.size() / 2;
+        findMissingHandles(handles.subList(0, mid), missing);
+        findMissingHandles(handles.subList(mid, handles.size()), missing);
+    }
+
+    /**
+     * 下载 Codeforces 整个题库（problemset.problems），约 1 万道题，含名称、rating 和标签。
+     *
+     * @param problemsetUrl       problemset.problems 接口地址（pbStatusLink）
+     * @param problemPageTemplate 题目页面模板
+     * @return 目录记录列表，交给 ProblemCatalogService 批量写入
+     * @throws IOException 请求失败或接口返回非 OK
+     */
+    public List<ProblemCatalogService.Entry> fetchProblemset(String problemsetUrl, UrlTemplate problemPageTemplate) throws IOException {
+        logger.info("调用 Codeforces problemset.problems 接口，url：{}", problemsetUrl);
+        JsonNode root = httpUtil.readStream(problemsetUrl, mapper::readTree);
+        if (!"OK".equals(root.path("status").asText())) {
+            CFSubmissionDecoder.Status status = new CFSubmissionDecoder.Status(
+                    root.path("status").asText(), root.path("comment").asText(null));
+            reportIfThrottled(problemsetUrl, status);
+            throw new IOException("Codeforces problemset.problems 返回 " + status.status() + ": " + status.comment());
+        }
+        List<ProblemCatalogService.Entry> problems = new ArrayList<>();
+        for (JsonNode node : root.path("result").path("problems")) {
+            String contestId = node.path("contestId").asText("");
+            String index = node.path("index").asText("");
+            if (contestId.isEmpty() || index.isEmpty()) {
+                continue;
+            }
+            List<String> tags = new ArrayList<>();
+            node.path("tags").forEach(t -> tags.add(t.asText()));
+            Integer rating = node.hasNonNull("rating") ? node.path("rating").asInt() : null;
+            ProblemCatalogService.Entry entry = toProblem(contestId, index, node.path("name").asText(""), rating,
+                    tags.toArray(new String[0]), problemPageTemplate);
+            if (node.hasNonNull("points")) {
+                entry.problem().setPoints(node.path("points").asDouble());
+            }
+            problems.add(entry);
+        }
+        logger.info("Codeforces 题库共 {} 道题", problems.size());
+        return problems;
+    }
+
+    private ProblemCatalogService.Entry toProblem(String contestId, String index, String name, Integer rating,
+                                                 String[] tags, UrlTemplate problemPageTemplate) {
+        return toProblem(getOjType(), contestId, index, name, rating, tags, problemPageTemplate);
+    }
+
+    private ProblemCatalogService.Entry toProblem(OJPlatform platform, String contestId, String index, String name,
+                                                 Integer rating, String[] tags, UrlTemplate problemPageTemplate) {
+        ExtOjPbInfo info = ExtOjPbInfo.builder()
+                .ojName(platform)
+                .pid(contestId + index)
+                .name(name == null ? "" : name)
+                .type("PROGRAMMING")
+                .rating(rating)
+                .url(problemPageTemplate.format(contestId, index))
+                .build();
+        return new ProblemCatalogService.Entry(info, tags);
+    }
+
+    private static List<String> splitHandles(String accountName) {
+        return Arrays.stream(accountName.split("\\s*,\\s*"))
+                .filter(StringUtils::isNotBlank)
+                .toList();
+    }
+
+    /**
+     * 拉取 handle 的完整提交历史
+     */
+    private List<CFSubmission> fetchAllSubmissions(UrlTemplate userInfoTemplate, String handle) {
+        return readSubmissions(userInfoTemplate.format(handle));
+    }
+
+    /**
+     * 增量拉取的第一页 URL
+     */
+    private static String firstPageUrl(UrlTemplate userInfoTemplate, String handle) {
+        return userInfoTemplate.format(handle) + "&from=1&count=" + PAGE_SIZE;
+    }
+
+    /**
+     * 从最新的提交开始按页拉取，遇到 ID 不大于 lastId 的提交即停止
+     *
+     * @param firstPage 已经读到的第一页提交，为 null 时从第一页开始请求
+     */
+    private List<CFSubmission> fetchNewSubmissions(UrlTemplate userInfoTemplate, String handle, long lastId,
+                                                   List<CFSubmission> firstPage) {
+        List<CFSubmission> result = new ArrayList<>();
+        for (int from = 1; ; from += PAGE_SIZE) {
+            String url = userInfoTemplate.format(handle) + "&from=" + from + "&count=" + PAGE_SIZE;
+            List<CFSubmission> page = from == 1 && firstPage != null ? firstPage : readSubmissions(url);
+            boolean reachedKnown = false;
+            for (CFSubmission sub : page) {
+                if (sub.id() <= lastId) {
+                    reachedKnown = true;
+                    break;
+                }
+                result.add(sub);
+            }
+            if (reachedKnown || page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        logger.info("Codeforces handle {} 增量拉取到 {} 条新提交", handle, result.size());
+        return result;
+    }
+
+    /**
+     * 游标可以前移到的提交：本次拉到的提交中 ID 最大、且比所有仍在评测中的提交都旧的那条。
+     * 评测中的提交之后会变成最终结果，游标停在它之前，下次增量同步会重新拉到它；没有可前移的提交时返回 empty
+     */
+    static Optional<CFSubmission> cursorSubmission(List<CFSubmission> subs) {
+        long oldestJudging = subs.stream()
+                .filter(CFSubmission::judging)
+                .mapToLong(CFSubmission::id)
+                .min()
+                .orElse(Long.MAX_VALUE);
+        return subs.stream()
+                .filter(sub -> sub.id() < oldestJudging)
+                .max(Comparator.comparingLong(CFSubmission::id));
+    }
+
+    /**
+     * 流式读取一页提交；接口返回 FAILED 时抛出异常，避免游标基于不完整的数据前移
+     */
+    private List<CFSubmission> readSubmissions(String url) {
+        // 列表在 reader 内创建：readStream 重试时重新调用 reader，中途断开的那次读到的提交随之丢弃
+        return httpUtil.readStream(url, in -> {
+            List<CFSubmission> list = new ArrayList<>();
+            decodeSubmissions(url, in, list::add);
+            return list;
+        });
+    }
+
+    /**
+     * 一页提交中保留下来的部分，以及本页提交总数（用于判断是否还有下一页）
+     */
+    private record Page(List<CFSubmission> kept, int total) {
+    }
+
+    /**
+     * 流式读取一页提交，只保留满足 keep 的部分；
+     * 列表在 reader 内创建，重试时中途断开那次读到的提交随之丢弃，整页成功后才交给调用方合并
+     */
+    private Page readSubmissions(String url, Predicate<CFSubmission> keep) {
+        return httpUtil.readStream(url, in -> {
+            List<CFSubmission> kept = new ArrayList<>();
+            int total = decodeSubmissions(url, in, sub -> {
+                if (keep.test(sub)) {
+                    kept.add(sub);
+                }
+            });
+            return new Page(kept, total);
+        });
+    }
+
+    /**
+     * 解码已读入内存的一页响应（计算指纹时先整体读取再解码）
+     */
+    private List<CFSubmission> decodeSubmissions(String url, byte[] body) {
+        List<CFSubmission> list = new ArrayList<>();
+        try {
+            decodeSubmissions(url, new ByteArrayInputStream(body), list::add);
+        } catch (IOException e) {
+            throw new RuntimeException("解析 Codeforces 响应失败: " + url, e);
+        }
+        return list;
+    }
+
+    private int decodeSubmissions(String url, InputStream in, Consumer<CFSubmission> sink) throws IOException {
+        int[] count = {0};
+        CFSubmissionDecoder.Status status = CFSubmissionDecoder.decode(in, sub -> {
+            count[0]++;
+            sink.accept(sub);
+        });
+        if (!status.ok()) {
+            reportIfThrottled(url, status);
+            // handle 不存在时重试无意义
+            if (status.comment() != null && status.comment().toLowerCase().contains("not found")) {
+                throw new InvalidHandleException(status.comment());
+            }
+            throw new IOException("Codeforces 接口返回 " + status.status() + "：" + status.comment());
+        }
+        return count[0];
+    }
+
+    /**
+     * Codeforces 返回 FAILED 且 comment 为 "Call limit exceeded" 时，通知限流器降速
+     */
+    private void reportIfThrottled(String url, CFSubmissionDecoder.Status status) {
+        String comment = status.comment() == null ? "" : status.comment();
+        logger.warn("Codeforces 接口返回 {}：{}，url：{}", status.status(), comment, url);
+        if (comment.toLowerCase().contains("limit exceeded")) {
+            httpUtil.reportThrottled(url);
+        }
+    }
+
+    /**
+     * 增量获取某用户的提交记录，并映射成 UserTryProblem 实体列表
      *
      * @param user 当前用户名
      * @return UserTryProblem 列表
      */
-    @Transactional
     public List<UserTryProblem> userTryProblems(User user) {
+        return userTryProblems(user, false);
+    }
+
+    /**
+     * 获取某用户的提交记录，并映射成 UserTryProblem 实体列表
+     *
+     * @param user     当前用户名
+     * @param fullSync 是否强制全量同步
+     * @return UserTryProblem 列表
+     */
+    public List<UserTryProblem> userTryProblems(User user, boolean fullSync) {
+        return userTryProblems(List.of(user), fullSync).getOrDefault(user.getId(), Collections.emptyList());
+    }
+
+    /**
+     * 批量获取一组用户的提交记录。
+     * 链接配置和游标各读一次；多个用户共用的 handle 只拉取一次（有任一账号没有游标时拉全量，否则从最小游标起增量拉取），
+     * 再按各账号自己的游标过滤；整批出现的题目用一次目录解析、一次批量写入。
+     * virtual 模式下各 handle 经 HttpUtil.fanOut 并发拉取，拉取完成后再依次合并。
+     * 无效账号负缓存冷却期内的 handle 直接跳过，本次确认不存在的 handle 记入负缓存。
+     * 增量拉取时第一页先与响应指纹比较，与上次相同且各账号游标都已覆盖该页最新提交时直接跳过该 handle。
+     * 新的游标和指纹暂存在 SyncCursorService / ResponseFingerprintService，记录写库后才提交；
+     * 游标不越过仍在评测中的提交，评测结束后的最终结果由之后的增量同步取回。
+     *
+     * @param users    用户（需已加载 OJ 账号）
+     * @param fullSync 是否强制全量同步
+     * @return userId → UserTryProblem 列表
+     */
+    public Map<Integer, List<UserTryProblem>> userTryProblems(List<User> users, boolean fullSync) {
         // 1. 获取 OJ 配置
-        ExtOjLink ojLink = extOjLinkRepository.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
-        String userInfoTemplate    = ojLink.getUserInfoLink();
-        String problemPageTemplate = ojLink.getProblemLink();
-
-        // 2. 收集所有 handles 并获取所有提交
-        List<String> handles = user.getOjAccounts().stream()
-                .filter(uo -> uo.getPlatform() == getOjType())
-                .map(UserOJ::getAccountName)
-                .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
-                .filter(StringUtils::isNotBlank)
-                .toList();
-        if (handles.isEmpty()) {
-            logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-            return Collections.emptyList();
+        ExtOjLinkRegistry.Links links = linkRegistry.get(getOjType());
+        UrlTemplate userInfoTemplate    = links.userInfo();
+        UrlTemplate problemPageTemplate = links.problem();
+
+        // 2. 收集整批账号及其 handle，并一次读取增量游标
+        Map<UserOJ, User> accountOwners = new LinkedHashMap<>();
+        for (User user : users) {
+            user.getOjAccounts().stream()
+                    .filter(uo -> uo.getPlatform() == getOjType())
+                    .forEach(uo -> accountOwners.put(uo, user));
+        }
+        // fullSync 时也要读出已有游标：只忽略其位置，提交时更新原行而不是插入重复行
+        Map<String, SyncCursor> cursors = accountOwners.isEmpty()
+                ? Collections.emptyMap()
+                : syncCursorService.cursorsOf(accountOwners.keySet(), getOjType());
+        // handle（不区分大小写）→ 使用它的账号
+        Map<String, List<HandleOwner>> byHandle = new LinkedHashMap<>();
+        accountOwners.forEach((account, user) -> {
+            for (String handle : splitHandles(account.getAccountName())) {
+                SyncCursor cursor = cursors.get(SyncCursorService.key(account, handle));
+                byHandle.computeIfAbsent(handle.toLowerCase(), k -> new ArrayList<>())
+                        .add(new HandleOwner(user, account, handle, cursor, fullSync));
+            }
+        });
+
+        Map<String, ResponseFingerprint> fingerprints = fullSync
+                ? Collections.emptyMap()
+                : fingerprintService.find(getOjType(), STATUS_ENDPOINT, 1, byHandle.keySet());
+        Map<String, InvalidHandle> invalidHandles = invalidHandleService.find(getOjType(), byHandle.keySet());
+
+        // 3. 每个 handle 拉取一次（virtual 模式下批内并发），再依次按各账号的游标分发，收集 pid→样本提交
+        Map<Integer, List<CFSubmission>> subsByUser = new LinkedHashMap<>();
+        Map<String, CFSubmission> samples = new HashMap<>();
+        RuntimeException lastError = null;
+        int failures = 0;
+        int unchanged = 0;
+        int invalid = 0;
+        List<String> recovered = new ArrayList<>();
+        Map<String, List<HandleOwner>> toFetch = new LinkedHashMap<>();
+        for (Map.Entry<String, List<HandleOwner>> entry : byHandle.entrySet()) {
+            if (InvalidHandleService.isBlocked(invalidHandles.get(entry.getKey()))) {
+                invalid++;
+            } else {
+                toFetch.put(entry.getKey(), entry.getValue());
+            }
         }
-        List<JsonNode> submissions = new ArrayList<>();
-        for (String handle : handles) {
-            String url = String.format(userInfoTemplate, handle);
+        Map<String, CompletableFuture<HandleFetch>> fetches = httpUtil.fanOut(toFetch.keySet(),
+                key -> fetchHandle(userInfoTemplate, toFetch.get(key), fingerprints.get(key)));
+        for (Map.Entry<String, List<HandleOwner>> entry : toFetch.entrySet()) {
+            List<HandleOwner> owners = entry.getValue();
+            String handle = owners.get(0).handle();
+            Long since = sinceOf(owners);
+            HandleFetch fetched;
             try {
-                String json = httpUtil.readURL(url);
-                JsonNode root = mapper.readTree(json);
-                if (!"OK".equals(root.path("status").asText())) continue;
-                root.path("result").forEach(submissions::add);
-            } catch (IOException e) {
+                fetched = fetches.get(entry.getKey()).join();
+            } catch (RuntimeException e) {
+                Optional<String> reason = InvalidHandleException.reasonOf(e);
+                if (reason.isPresent()) {
+                    invalidHandleService.recordInvalid(getOjType(), handle, reason.get());
+                    invalid++;
+                    continue;
+                }
                 logger.error("获取用户 {} 提交失败", handle, e);
+                lastError = e;
+                failures++;
+                continue;
+            }
+            if (fetched.unchanged()) {
+                unchanged++;
+                continue;
+            }
+            if (fetched.fingerprint() != null) {
+                for (HandleOwner o : owners) {
+                    fingerprintService.stage(o.user(), getOjType(), entry.getKey(), STATUS_ENDPOINT, 1,
+                            fetched.fingerprint());
+                }
+            }
+            List<CFSubmission> subs = fetched.subs();
+            if (invalidHandles.containsKey(entry.getKey())) {
+                recovered.add(entry.getKey());
+            }
+            for (CFSubmission sub : subs) {
+                samples.putIfAbsent(sub.pid(), sub);
+            }
+            cursorSubmission(subs).ifPresent(newest -> {
+                for (HandleOwner o : owners) {
+                    syncCursorService.stage(o.user(), syncCursorService.advance(o.cursor(), o.account(), getOjType(),
+                            o.handle(), newest.id(),
+                            LocalDateTime.ofEpochSecond(newest.creationTimeSeconds(), 0, ZoneOffset.UTC)));
+                }
+            });
+            for (HandleOwner o : owners) {
+                List<CFSubmission> mine = o.lastId() == null || o.lastId().equals(since)
+                        ? subs
+                        : subs.stream().filter(sub -> sub.id() > o.lastId()).toList();
+                subsByUser.computeIfAbsent(o.user().getId(), k -> new ArrayList<>()).addAll(mine);
             }
         }
-        if (submissions.isEmpty()) {
-            return Collections.emptyList();
+        // 全部 handle 都失败多半是平台不可用，抛出交给熔断器计数
+        if (failures > 0 && failures == byHandle.size() - invalid) {
+            throw new RuntimeException("Codeforces 全部 " + failures + " 个 handle 抓取失败", lastError);
+        }
+        invalidHandleService.recordValid(getOjType(), recovered);
+        if (unchanged > 0) {
+            logger.info("Codeforces {} 个 handle 第一页与上次响应指纹相同，跳过解析", unchanged);
+        }
+        if (invalid > 0) {
+            logger.info("Codeforces {} 个 handle 无效，已跳过", invalid);
+        }
+        if (samples.isEmpty()) {
+            return Collections.emptyMap();
         }
 
-        // 3. 批量收集 pid 和标签名
-        Set<String> allPids = new HashSet<>();
-        Map<String, Set<String>> pidToTags = new HashMap<>();
-        for (JsonNode sub : submissions) {
-            JsonNode p = sub.path("problem");
-            String pid = p.path("contestId").asText() + p.path("index").asText();
-            allPids.add(pid);
-            pidToTags.computeIfAbsent(pid, k -> new HashSet<>())
-                    .addAll(StreamSupport.stream(p.path("tags").spliterator(), false)
-                            .map(JsonNode::asText)
-                            .collect(Collectors.toSet()));
+        // 4. 整批题目一次解析；只有目录里还没有的新题才写题目/标签表
+        Map<String, ExtOjPbInfo> infosMap = problemCatalogService.resolve(getOjType(), samples.keySet());
+        List<ProblemCatalogService.Entry> missing = samples.values().stream()
+                .filter(sample -> !infosMap.containsKey(sample.pid()))
+                .map(sample -> toProblem(sample.contestId(), sample.index(), sample.problemName(),
+                        sample.rating(), sample.tags(), problemPageTemplate))
+                .toList();
+        if (!missing.isEmpty()) {
+            logger.info("本批 {} 位用户有 {} 道题不在题目目录中，补充写入", users.size(), missing.size());
+            infosMap.putAll(problemCatalogService.upsert(getOjType(), missing));
         }
-        Set<String> allTagNames = pidToTags.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
-
-        // 4. 批量查询已有题目和标签
-        List<ExtOjPbInfo> existInfos = extOjPbInfoRepository.findByOjNameAndPidIn(getOjType(), allPids);
-        List<Tag> existTags = tagRepository.findByNameIn(allTagNames);
-        Map<String, ExtOjPbInfo> infosMap = existInfos.stream()
-                .collect(Collectors.toMap(ExtOjPbInfo::getPid, Function.identity()));
-        Map<String, Tag> tagsMap = existTags.stream()
-                .collect(Collectors.toMap(Tag::getName, Function.identity()));
-
-        // 5. 批量插入缺失的题目
-        List<ExtOjPbInfo> newInfos = allPids.stream()
-                .filter(pid -> !infosMap.containsKey(pid))
-                .map(pid -> {
-                    // 拆 contestId 和 index
-                    String contestId = pid.replaceAll("\\D.*", "");
-                    String index     = pid.substring(contestId.length());
-                    String url       = String.format(problemPageTemplate, contestId, index);
-                    return ExtOjPbInfo.builder()
+
+        // 5. 按用户构造尝试记录
+        Map<Integer, User> usersById = new HashMap<>();
+        users.forEach(u -> usersById.put(u.getId(), u));
+        Map<Integer, List<UserTryProblem>> result = new LinkedHashMap<>();
+        subsByUser.forEach((userId, subs) -> {
+            User user = usersById.get(userId);
+            List<UserTryProblem> tries = subs.stream()
+                    .filter(sub -> infosMap.containsKey(sub.pid()))
+                    .map(sub -> UserTryProblem.builder()
+                            .user(user)
+                            .extOjPbInfo(infosMap.get(sub.pid()))
                             .ojName(getOjType())
-                            .pid(pid)
-                            .name("") // 可选：待更新
-                            .url(url)
-                            .points(null)
-                            .tags(new HashSet<>())
-                            .build();
-                })
-                .toList();
-        extOjPbInfoRepository.saveAll(newInfos);
-        newInfos.forEach(e -> infosMap.put(e.getPid(), e));
+                            .result(sub.verdict())
+                            .attemptTime(LocalDateTime.ofEpochSecond(sub.creationTimeSeconds(), 0, ZoneOffset.UTC))
+                            .build())
+                    .toList();
+            logger.info("用户 {} 共抓取 {} 条尝试记录", user.getUsername(), tries.size());
+            result.put(userId, tries);
+        });
+        return result;
+    }
+
+    /**
+     * 比赛模式：按页拉取 contest.status，只保留本站用户的提交。
+     * 一场比赛的全部提交只需几次请求，赛后整队刷新不必逐人拉取完整历史；
+     * contestId 不小于 100000 的是 Gym 比赛，题目和记录归入 GYM 平台。
+     * 比赛提交在个人历史中不连续，不推进增量游标，之后的增量同步重复拉到的记录由唯一约束去重。
+     * 接口与题目链接取自该平台（codeforces / gym）在 oj_links.json 中的 contestStatusLink、problemLink。
+     * 多个用户绑定同一 handle 时，该 handle 的提交记给每一位用户。
+     *
+     * @param contestId    比赛编号
+     * @param handleOwners 小写 handle → 绑定该 handle 的用户
+     * @return userId → UserTryProblem 列表
+     */
+    public Map<Integer, List<UserTryProblem>> contestTryProblems(long contestId,
+                                                                 Map<String, ? extends Collection<User>> handleOwners) {
+        OJPlatform platform = contestPlatform(contestId);
+        ExtOjLinkRegistry.Links links = linkRegistry.get(platform);
+        UrlTemplate contestStatusTemplate = links.contestStatus();
+        UrlTemplate problemPageTemplate = links.problem();
+        if (links.link().getContestStatusLink() == null || links.link().getContestStatusLink().isBlank()) {
+            throw new RuntimeException("Missing contestStatusLink for " + platform);
+        }
+
+        // 1. 按页拉取，流式解码时即按 handle 过滤，非本站用户的提交不保留
+        Map<Integer, List<CFSubmission>> subsByUser = new LinkedHashMap<>();
+        Map<Integer, User> usersById = new HashMap<>();
+        Map<String, CFSubmission> samples = new HashMap<>();
+        int total = 0;
+        for (int from = 1; ; from += CONTEST_PAGE_SIZE) {
+            String url = contestStatusTemplate.format(contestId, from, CONTEST_PAGE_SIZE);
+            logger.info("调用 Codeforces contest.status 接口，url：{}", url);
+            Page page = readSubmissions(url, sub -> Arrays.stream(sub.handles())
+                    .anyMatch(handle -> handleOwners.containsKey(handle.toLowerCase())));
+            for (CFSubmission sub : page.kept()) {
+                // 队伍提交的多个 handle 可能属于同一用户，每位用户只记一次
+                Set<Integer> credited = new HashSet<>();
+                for (String handle : sub.handles()) {
+                    Collection<User> owners = handleOwners.get(handle.toLowerCase());
+                    if (owners == null) continue;
+                    for (User user : owners) {
+                        if (!credited.add(user.getId())) continue;
+                        usersById.putIfAbsent(user.getId(), user);
+                        subsByUser.computeIfAbsent(user.getId(), k -> new ArrayList<>()).add(sub);
+                        samples.putIfAbsent(sub.pid(), sub);
+                    }
+                }
+            }
+            int read = page.total();
+            total += read;
+            if (read < CONTEST_PAGE_SIZE) {
+                break;
+            }
+        }
+        logger.info("比赛 {} 共 {} 条提交，其中 {} 位本站用户的提交 {} 条", contestId, total, subsByUser.size(),
+                subsByUser.values().stream().mapToInt(List::size).sum());
+        if (samples.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-        // 6. 批量插入缺失标签
-        List<Tag> newTags = allTagNames.stream()
-                .filter(name -> !tagsMap.containsKey(name))
-                .map(Tag::new)
+        // 2. 一次解析比赛题目，目录中没有的补充写入
+        Map<String, ExtOjPbInfo> infosMap = problemCatalogService.resolve(platform, samples.keySet());
+        List<ProblemCatalogService.Entry> missing = samples.values().stream()
+                .filter(sample -> !infosMap.containsKey(sample.pid()))
+                .map(sample -> toProblem(platform, sample.contestId(), sample.index(), sample.problemName(),
+                        sample.rating(), sample.tags(), problemPageTemplate))
                 .toList();
-        tagRepository.saveAll(newTags);
-        newTags.forEach(t -> tagsMap.put(t.getName(), t));
-
-        // 7. 同步题目-标签关系：查询带 tags 实体，再差集更新
-        List<ExtOjPbInfo> allInfos = extOjPbInfoRepository.findByOjNameAndPidInWithTags(getOjType(), allPids);
-        for (ExtOjPbInfo info : allInfos) {
-            String pid = info.getPid();
-            Set<String> desired = pidToTags.getOrDefault(pid, Collections.emptySet());
-            Set<Tag> current = info.getTags();
-            Set<String> currentNames = current.stream().map(Tag::getName).collect(Collectors.toSet());
-            // 计算差集
-            Set<String> toAdd = new HashSet<>(desired);
-            toAdd.removeAll(currentNames);
-            Set<String> toRemove = new HashSet<>(currentNames);
-            toRemove.removeAll(desired);
-            // 删除多余
-            current.removeIf(t -> toRemove.contains(t.getName()));
-            // 新增缺失
-            toAdd.forEach(name -> current.add(tagsMap.get(name)));
+        if (!missing.isEmpty()) {
+            infosMap.putAll(problemCatalogService.upsert(platform, missing));
+        }
+
+        // 3. 按用户构造尝试记录
+        Map<Integer, List<UserTryProblem>> result = new LinkedHashMap<>();
+        subsByUser.forEach((userId, subs) -> result.put(userId, subs.stream()
+                .filter(sub -> infosMap.containsKey(sub.pid()))
+                .map(sub -> UserTryProblem.builder()
+                        .user(usersById.get(userId))
+                        .extOjPbInfo(infosMap.get(sub.pid()))
+                        .ojName(platform)
+                        .result(sub.verdict())
+                        .attemptTime(LocalDateTime.ofEpochSecond(sub.creationTimeSeconds(), 0, ZoneOffset.UTC))
+                        .build())
+                .toList()));
+        return result;
+    }
+
+    /**
+     * 比赛所属平台：Codeforces 比赛或 Gym
+     */
+    public static OJPlatform contestPlatform(long contestId) {
+        return contestId >= GYM_CONTEST_ID_MIN ? OJPlatform.GYM : OJPlatform.CODEFORCES;
+    }
+
+    /**
+     * 拉取一个 handle 的提交（可能在 fanOut 的虚拟线程上执行，只读网络，不暂存游标和指纹）：
+     * 有任一账号没有游标时拉全量，否则先读第一页与上次响应指纹比较，相同且各账号游标都已覆盖该页最新提交时跳过，
+     * 否则从最小游标起增量拉取
+     */
+    private HandleFetch fetchHandle(UrlTemplate userInfoTemplate, List<HandleOwner> owners, ResponseFingerprint stored) {
+        String handle = owners.get(0).handle();
+        Long since = sinceOf(owners);
+        if (since == null) {
+            return new HandleFetch(fetchAllSubmissions(userInfoTemplate, handle), null, false);
+        }
+        String url = firstPageUrl(userInfoTemplate, handle);
+        byte[] body = httpUtil.readStream(url, InputStream::readAllBytes);
+        ResponseFingerprintService.Fingerprint fp = ResponseFingerprintService.Fingerprint.of(body);
+        // 指纹与游标分别按用户提交，共用 handle 的某个用户写库失败时其游标可能落后于指纹，此时不能跳过
+        if (fp.matches(stored) && (stored.getFirstSubmissionId() == null || since >= stored.getFirstSubmissionId())) {
+            return new HandleFetch(List.of(), null, true);
+        }
+        List<CFSubmission> firstPage = decodeSubmissions(url, body);
+        ResponseFingerprintService.Fingerprint staged = fp.withFirstSubmissionId(
+                firstPage.isEmpty() ? null : firstPage.get(0).id());
+        return new HandleFetch(fetchNewSubmissions(userInfoTemplate, handle, since, firstPage), staged, false);
+    }
+
+    /**
+     * 共用 handle 的账号中最小的游标；有任一账号没有游标时为 null（需要全量拉取）
+     */
+    private static Long sinceOf(List<HandleOwner> owners) {
+        return owners.stream().anyMatch(o -> o.lastId() == null)
+                ? null
+                : owners.stream().mapToLong(HandleOwner::lastId).min().orElseThrow();
+    }
+
+    /**
+     * 一个 handle 的抓取结果
+     *
+     * @param subs        拉到的提交
+     * @param fingerprint 待暂存的第一页指纹，全量拉取时为 null
+     * @param unchanged   第一页与上次响应指纹相同，已跳过
+     */
+    private record HandleFetch(List<CFSubmission> subs, ResponseFingerprintService.Fingerprint fingerprint,
+                               boolean unchanged) {
+    }
+
+    /**
+     * 使用某个 handle 的账号及其游标
+     *
+     * @param fullSync 是否忽略游标位置（游标仍用于前移后回写）
+     */
+    private record HandleOwner(User user, UserOJ account, String handle, SyncCursor cursor, boolean fullSync) {
+
+        Long lastId() {
+            return cursor == null || fullSync ? null : cursor.getLastSubmissionId();
         }
-        extOjPbInfoRepository.saveAll(allInfos);
-
-        // 8. 构造并保存尝试记录
-        List<UserTryProblem> tries = submissions.stream().map(sub -> {
-            JsonNode p = sub.path("problem");
-            String pid = p.path("contestId").asText() + p.path("index").asText();
-            LocalDateTime time = LocalDateTime.ofEpochSecond(sub.path("creationTimeSeconds").asLong(), 0, ZoneOffset.UTC);
-            ProblemResult result = switch (sub.path("verdict").asText()) {
-                case "OK"                  -> ProblemResult.AC;
-                case "WRONG_ANSWER"        -> ProblemResult.WA;
-                case "TIME_LIMIT_EXCEEDED" -> ProblemResult.TLE;
-                case "COMPILATION_ERROR"   -> ProblemResult.CE;
-                case "RUNTIME_ERROR"       -> ProblemResult.RE;
-                default                     -> ProblemResult.UNKNOWN;
-            };
-            return UserTryProblem.builder()
-                    .user(user)
-                    .extOjPbInfo(infosMap.get(pid))
-                    .ojName(getOjType())
-                    .result(result)
-                    .attemptTime(time)
-                    .build();
-        }).toList();
-
-        logger.info("用户 {} 共抓取 {} 条尝试记录", user.getUsername(), tries.size());
-        return tries;
     }
 }
 
@@ -0,0 +1,37 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.ProblemResult;
+
+/**
+ * Codeforces 单条提交的精简记录，由 CFSubmissionDecoder 流式解码得到。
+ * 同一次解码内 pid、题目名称、标签为驻留字符串，同一题目的多次提交共享同一份实例。
+ *
+ * @param id                  提交 ID
+ * @param contestId           题目所属比赛编号（题库题目可能为空串）
+ * @param index               题目在比赛中的标号
+ * @param pid                 contestId + index
+ * @param problemName         题目名称
+ * @param rating              题目难度，可能为 null
+ * @param tags                题目标签
+ * @param handles             提交者 handle（团队提交有多个）
+ * @param verdict             判题结果
+ * @param creationTimeSeconds 提交时间（Unix 秒）
+ */
+public record CFSubmission(long id,
+                           String contestId,
+                           String index,
+                           String pid,
+                           String problemName,
+                           Integer rating,
+                           String[] tags,
+                           String[] handles,
+                           ProblemResult verdict,
+                           long creationTimeSeconds) {
+
+    /**
+     * 是否仍在排队或评测中，最终结果要等之后的同步再取
+     */
+    public boolean judging() {
+        return verdict == ProblemResult.INQ;
+    }
+}
@@ -0,0 +1,198 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.ProblemResult;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * CFSubmissionDecoder：基于 Jackson JsonParser 的 Codeforces 提交流式解码器。
+ * 直接消费 user.status / contest.status 的响应流，逐条产出 CFSubmission，
+ * 不构建 JsonNode 树，也不缓存整段响应文本，单个 handle 的峰值内存与提交历史长度无关。
+ * pid、题目名、标签在单次解码内驻留，解码结束即随之释放；handle 不驻留（比赛模式下多为站外选手）。
+ */
+public final class CFSubmissionDecoder {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private static final String[] EMPTY = new String[0];
+
+    private CFSubmissionDecoder() {
+    }
+
+    /**
+     * 接口返回的状态信息
+     *
+     * @param status  "OK" 或 "FAILED"
+     * @param comment FAILED 时的原因
+     */
+    public record Status(String status, String comment) {
+        public boolean ok() {
+            return "OK".equals(status);
+        }
+    }
+
+    /**
+     * 流式解码一次 API 响应，每解析出一条提交就交给 sink
+     *
+     * @param in   响应体输入流（调用方负责关闭）
+     * @param sink 提交记录消费者
+     * @return 接口状态
+     * @throws IOException 读取或 JSON 格式错误
+     */
+    public static Status decode(InputStream in, Consumer<CFSubmission> sink) throws IOException {
+        String status = null;
+        String comment = null;
+        // 仅在本次解码内有效的驻留池
+        Map<String, String> pool = new HashMap<>();
+        try (JsonParser p = factory.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Codeforces 响应不是 JSON 对象");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "status" -> status = p.getText();
+                    case "comment" -> comment = p.getText();
+                    case "result" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            while (p.nextToken() == JsonToken.START_OBJECT) {
+                                sink.accept(readSubmission(p, pool));
+                            }
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+        }
+        return new Status(status, comment);
+    }
+
+    /**
+     * 将 Codeforces verdict 映射为 ProblemResult；排队中（没有 verdict）和评测中（TESTING）映射为 INQ
+     */
+    public static ProblemResult toResult(String verdict) {
+        if (verdict == null) {
+            return ProblemResult.INQ;
+        }
+        return switch (verdict) {
+            case "TESTING"             -> ProblemResult.INQ;
+            case "OK"                  -> ProblemResult.AC;
+            case "WRONG_ANSWER"        -> ProblemResult.WA;
+            case "TIME_LIMIT_EXCEEDED" -> ProblemResult.TLE;
+            case "COMPILATION_ERROR"   -> ProblemResult.CE;
+            case "RUNTIME_ERROR"       -> ProblemResult.RE;
+            default                     -> ProblemResult.UNKNOWN;
+        };
+    }
+
+    private static CFSubmission readSubmission(JsonParser p, Map<String, String> pool) throws IOException {
+        long id = 0;
+        long creationTime = 0;
+        String verdict = null;
+        String contestId = "";
+        String index = "";
+        String name = null;
+        Integer rating = null;
+        String[] tags = EMPTY;
+        String[] handles = EMPTY;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> id = p.getValueAsLong();
+                case "creationTimeSeconds" -> creationTime = p.getValueAsLong();
+                case "verdict" -> verdict = p.getText();
+                case "problem" -> {
+                    if (p.currentToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String pf = p.getCurrentName();
+                        p.nextToken();
+                        switch (pf) {
+                            case "contestId" -> contestId = p.getText();
+                            case "index" -> index = p.getText();
+                            case "name" -> name = intern(pool, p.getText());
+                            case "rating" -> rating = p.getValueAsInt();
+                            case "tags" -> tags = readStrings(p, pool);
+                            default -> p.skipChildren();
+                        }
+                    }
+                }
+                case "author" -> {
+                    if (p.currentToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String af = p.getCurrentName();
+                        p.nextToken();
+                        if ("members".equals(af)) {
+                            handles = readHandles(p);
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        String pid = intern(pool, contestId + index);
+        return new CFSubmission(id, intern(pool, contestId), intern(pool, index), pid, name, rating,
+                tags, handles, toResult(verdict), creationTime);
+    }
+
+    private static String[] readStrings(JsonParser p, Map<String, String> pool) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return EMPTY;
+        }
+        List<String> list = new ArrayList<>(4);
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            list.add(intern(pool, p.getText()));
+        }
+        return list.isEmpty() ? EMPTY : list.toArray(EMPTY);
+    }
+
+    private static String[] readHandles(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return EMPTY;
+        }
+        List<String> list = new ArrayList<>(1);
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String f = p.getCurrentName();
+                p.nextToken();
+                if ("handle".equals(f)) {
+                    list.add(p.getText());
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return list.isEmpty() ? EMPTY : list.toArray(EMPTY);
+    }
+
+    private static String intern(Map<String, String> pool, String s) {
+        if (s == null) {
+            return null;
+        }
+        String existing = pool.putIfAbsent(s, s);
+        return existing != null ? existing : s;
+    }
+}
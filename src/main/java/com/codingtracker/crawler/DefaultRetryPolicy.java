@@ -0,0 +1,193 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.OJPlatform;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 默认重试策略：
+ * 1. 按异常类型/HTTP 状态码分类，4xx 不重试（响应体表明限流的除外），限流使用更长的退避；
+ * 2. 指数退避 + 全抖动（full jitter）；
+ * 3. 重试预算按时间窗口补满（默认每小时），窗口内耗尽后只发首次请求；重建开始时也会立即补满；
+ * 4. 对配置的慢平台（默认 HDU、POJ）按该 host 近期 p95 耗时发起对冲请求。
+ */
+@Component
+public class DefaultRetryPolicy implements RetryPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultRetryPolicy.class);
+
+    private static final long IO_BASE_MILLIS = 500;
+    private static final long IO_CAP_MILLIS = 10_000;
+    private static final long THROTTLE_BASE_MILLIS = 2_000;
+    private static final long THROTTLE_CAP_MILLIS = 30_000;
+
+    /** 样本数不足时使用的对冲延迟 */
+    private static final Duration DEFAULT_HEDGE_DELAY = Duration.ofSeconds(2);
+    /** 计算 p95 所需的最少样本数 */
+    private static final int MIN_SAMPLES = 20;
+    /** 每个 host 保留的最近耗时样本数 */
+    private static final int WINDOW = 128;
+
+    private final int budget;
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final Set<OJPlatform> hedgePlatforms;
+    private final AtomicInteger remaining;
+    /** 当前预算窗口的开始时间（纳秒） */
+    private final AtomicLong windowStart;
+    private final AtomicBoolean exhaustedLogged = new AtomicBoolean();
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DefaultRetryPolicy(@Value("${crawler.retry.budget:2000}") int budget,
+                              @Value("${crawler.retry.budget-window-minutes:60}") long windowMinutes,
+                              @Value("${crawler.hedge.platforms:HDU,POJ}") String hedgePlatforms) {
+        this(budget, Duration.ofMinutes(windowMinutes), hedgePlatforms, System::nanoTime);
+    }
+
+    DefaultRetryPolicy(int budget, Duration window, String hedgePlatforms, LongSupplier clock) {
+        this.budget = budget;
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        this.remaining = new AtomicInteger(budget);
+        this.windowStart = new AtomicLong(clock.getAsLong());
+        this.hedgePlatforms = EnumSet.noneOf(OJPlatform.class);
+        Arrays.stream(hedgePlatforms.split("\\s*,\\s*"))
+                .filter(s -> !s.isBlank())
+                .map(OJPlatform::valueOf)
+                .forEach(this.hedgePlatforms::add);
+    }
+
+    @Override
+    public FailureType classify(Throwable error) {
+        if (error instanceof HttpStatusException hse) {
+            int status = hse.getStatusCode();
+            // Codeforces 限流时返回 400 + "Call limit exceeded"，同样按限流退避重试
+            if (status == 429 || status == 503
+                    || (error instanceof HttpResponseStatusException rse && rse.isThrottled())) {
+                return FailureType.THROTTLED;
+            }
+            if (status >= 500 || status == 408) {
+                return FailureType.RETRYABLE_IO;
+            }
+            return FailureType.PERMANENT;
+        }
+        // JsonProcessingException 也是 IOException，需先判断
+        if (error instanceof JsonProcessingException || error instanceof UncheckedIOException) {
+            return FailureType.PARSE;
+        }
+        if (error instanceof IOException || error instanceof TimeoutException) {
+            return FailureType.RETRYABLE_IO;
+        }
+        return FailureType.PERMANENT;
+    }
+
+    @Override
+    public boolean shouldRetry(FailureType type, int attempt) {
+        int maxAttempts = switch (type) {
+            case RETRYABLE_IO, THROTTLED -> 5;
+            case PARSE -> 2;
+            case PERMANENT -> 1;
+        };
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        refillIfWindowElapsed();
+        if (remaining.getAndUpdate(n -> n > 0 ? n - 1 : 0) <= 0) {
+            if (exhaustedLogged.compareAndSet(false, true)) {
+                logger.warn("本窗口重试预算 {} 次已用完，窗口结束前失败不再重试", budget);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long backoffMillis(FailureType type, int attempt) {
+        long base = type == FailureType.THROTTLED ? THROTTLE_BASE_MILLIS : IO_BASE_MILLIS;
+        long cap = type == FailureType.THROTTLED ? THROTTLE_CAP_MILLIS : IO_CAP_MILLIS;
+        long exp = Math.min(cap, base << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(exp + 1);
+    }
+
+    @Override
+    public Optional<Duration> hedgeDelay(String url) {
+        String host = HostRateLimiter.hostOf(url);
+        if (!hedgePlatforms.contains(OJPlatform.fromHost(host))) {
+            return Optional.empty();
+        }
+        LatencyWindow window = latencies.get(host);
+        if (window == null) {
+            return Optional.of(DEFAULT_HEDGE_DELAY);
+        }
+        return Optional.of(window.p95().orElse(DEFAULT_HEDGE_DELAY));
+    }
+
+    @Override
+    public void recordLatency(String url, long elapsedNanos) {
+        latencies.computeIfAbsent(HostRateLimiter.hostOf(url), h -> new LatencyWindow())
+                .add(elapsedNanos);
+    }
+
+    @Override
+    public void resetBudget() {
+        windowStart.set(clock.getAsLong());
+        remaining.set(budget);
+        exhaustedLogged.set(false);
+    }
+
+    // 窗口结束后由第一个到达的线程开启新窗口并补满预算；调度器的增量刷新不经过 resetBudget，靠这里恢复重试
+    private void refillIfWindowElapsed() {
+        long start = windowStart.get();
+        long now = clock.getAsLong();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            remaining.set(budget);
+            exhaustedLogged.set(false);
+        }
+    }
+
+    /**
+     * 固定大小的耗时环形缓冲区
+     */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized Optional<Duration> p95() {
+            if (count < MIN_SAMPLES) {
+                return Optional.empty();
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return Optional.of(Duration.ofNanos(sorted[(int) Math.ceil(count * 0.95) - 1]));
+        }
+    }
+}
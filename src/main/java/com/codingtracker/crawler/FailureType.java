@@ -0,0 +1,11 @@
+package com.codingtracker.crawler;
+
+/**
+ * 爬虫请求失败的分类，用于决定是否重试以及退避时长
+ */
+public enum FailureType {
+    RETRYABLE_IO, // 超时、连接重置、5xx 等可重试的 I/O 错误
+    THROTTLED,    // 上游限流（429/503/Call limit exceeded），需要更长的退避
+    PERMANENT,    // 4xx（例如 handle 不存在）或程序错误，重试无意义
+    PARSE         // 响应解析失败，可能是截断的响应，最多再试一次
+}
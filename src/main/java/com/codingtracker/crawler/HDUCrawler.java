@@ -1,21 +1,30 @@
 package com.codingtracker.crawler;
 
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
 import com.codingtracker.repository.TagRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
+import com.codingtracker.service.InvalidHandleService;
+import com.codingtracker.service.ProblemCatalogService;
+import com.codingtracker.service.ResponseFingerprintService;
+import com.codingtracker.util.UrlTemplate;
+import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +36,12 @@ public class HDUCrawler {
 
     private static final Logger logger = LoggerFactory.getLogger(HDUCrawler.class);
 
+    /** 响应指纹中状态页的接口名称 */
+    private static final String STATUS_ENDPOINT = "status";
+
+    /** 状态页对不存在的用户给出的提示 */
+    private static final String NO_SUCH_USER = "No such user";
+
     @Autowired
     private HttpUtil httpUtil;
 
@@ -37,7 +52,20 @@ public class HDUCrawler {
     private TagRepository tagRepo;
 
     @Autowired
-    private ExtOjLinkRepository linkRepo;
+    private ExtOjLinkRegistry linkRegistry;
+
+    @Autowired
+    private ProblemCatalogService problemCatalogService;
+
+    @Autowired
+    private ResponseFingerprintService fingerprintService;
+
+    @Autowired
+    private InvalidHandleService invalidHandleService;
+
+    /** 并发抓取题目页面的最大在途请求数 */
+    @Value("${crawler.problem-fetch.parallelism:8}")
+    private int fetchParallelism;
 
     /**
      * 本爬虫对应的平台类型
@@ -50,16 +78,25 @@ public class HDUCrawler {
      * 获取或创建指定 HDU 题目的基础信息，包括链接
      */
     private ExtOjPbInfo fetchProblem(String pid) {
-        ExtOjLink link = linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing HDU link config"));
-        String problemUrl = String.format(link.getProblemLink(), pid);
-        logger.info("调用 HDU problem 页面，url：{}", problemUrl);
         try {
-            Document doc = httpUtil.readJsoupURL(problemUrl);
-            // 示例：题目名称在 .panel_title 或 title
+            return fetchProblemAsync(pid).join();
+        } catch (Exception e) {
+            logger.error("拉取 HDU 题目 {} 信息失败", pid, e);
+            return null;
+        }
+    }
+
+    /**
+     * 异步抓取 HDU 题目页面并构建题目信息
+     */
+    private CompletableFuture<ExtOjPbInfo> fetchProblemAsync(String pid) {
+        String problemUrl = linkRegistry.get(getOjType()).problem().format(pid);
+        logger.info("调用 HDU problem 页面，url：{}", problemUrl);
+        return httpUtil.readJsoupURLCachedAsync(problemUrl, doc -> {
+            // 示例：题目名称在 .panel_title 或 title；没有 .panel_title 的是 "System Message" 等错误页，不能写入缓存
             String title = Optional.ofNullable(doc.selectFirst(".panel_title"))
                     .map(Element::text)
-                    .orElse(doc.title());
+                    .orElseThrow(() -> new RuntimeException("HDU 题目页缺少 .panel_title，可能是错误页: " + problemUrl));
 
             return ExtOjPbInfo.builder()
                     .ojName(getOjType())
@@ -70,68 +107,182 @@ public class HDUCrawler {
                     .url(problemUrl)
                     .tags(Collections.emptySet())
                     .build();
-        } catch (Exception e) {
-            logger.error("拉取 HDU 题目 {} 信息失败", pid, e);
-            return null;
-        }
+        });
     }
 
     /**
      * 获取某用户的所有尝试记录（仅 Accepted），映射为 UserTryProblem 列表
      */
     public List<UserTryProblem> userTryProblems(User user) {
-        ExtOjLink link = linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing HDU link config"));
-        String statusUrlTpl = link.getUserInfoLink(); // e.g. "http://acm.hdu.edu.cn/status.php?user=%s"
-
-        List<String> handles = user.getOjAccounts().stream()
-                .filter(uo -> uo.getPlatform() == getOjType())
-                .map(UserOJ::getAccountName)
-                .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
-                .filter(h -> !h.isBlank())
-                .toList();
-        if (handles.isEmpty()) {
-            logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-            return Collections.emptyList();
+        return userTryProblems(List.of(user), false).getOrDefault(user.getId(), Collections.emptyList());
+    }
+
+    /**
+     * 批量获取一组用户的尝试记录（仅 Accepted）。
+     * 多个用户共用的账号只抓取一次状态页；整批收集到的 pid 合并后一次解析，库中没有的题目一起抓取、一次写入。
+     * 状态页与上次成功同步时的响应指纹相同时跳过该账号，不再解析页面和写入记录。
+     * 无效账号负缓存冷却期内的账号直接跳过；状态页明确提示用户不存在时记入负缓存，其他缺少表格的页面按失败处理。
+     *
+     * @param users    用户（需已加载 OJ 账号）
+     * @param fullSync 是否强制全量同步（忽略响应指纹）
+     * @return userId → UserTryProblem 列表
+     */
+    public Map<Integer, List<UserTryProblem>> userTryProblems(List<User> users, boolean fullSync) {
+        UrlTemplate statusUrlTpl = linkRegistry.get(getOjType()).userInfo(); // e.g. "http://acm.hdu.edu.cn/status.php?user=%s"
+
+        // 账号 → 使用它的用户
+        Map<String, List<User>> byHandle = new LinkedHashMap<>();
+        for (User user : users) {
+            user.getOjAccounts().stream()
+                    .filter(uo -> uo.getPlatform() == getOjType())
+                    .map(UserOJ::getAccountName)
+                    .flatMap(h -> Arrays.stream(h.split("\\s*,\\s*")))
+                    .filter(h -> !h.isBlank())
+                    .distinct()
+                    .forEach(h -> byHandle.computeIfAbsent(h, k -> new ArrayList<>()).add(user));
+        }
+        if (byHandle.isEmpty()) {
+            logger.warn("{} 位用户均未配置 {} 账号", users.size(), getOjType());
+            return Collections.emptyMap();
         }
 
-        List<UserTryProblem> tries = new ArrayList<>();
-        for (String handle : handles) {
-            String statusUrl = String.format(statusUrlTpl, handle);
-            logger.info("调用 HDU user status 页面，url：{}", statusUrl);
-            Document doc = httpUtil.readJsoupURL(statusUrl);
-            Element table = doc.selectFirst("table.table_text");
-            if (table == null) {
-                logger.warn("未找到用户 {} 的提交记录表格", handle);
+        Map<String, InvalidHandle> invalidHandles = invalidHandleService.find(getOjType(), byHandle.keySet());
+        Map<String, ResponseFingerprint> fingerprints = fullSync
+                ? Collections.emptyMap()
+                : fingerprintService.find(getOjType(), STATUS_ENDPOINT, 1, byHandle.keySet());
+
+        // 1. 每个账号解析一次状态页的 Accepted 行，按用户收集 pid
+        Map<Integer, List<String>> acPidsByUser = new LinkedHashMap<>();
+        Set<String> allPids = new LinkedHashSet<>();
+        RuntimeException lastError = null;
+        int failures = 0;
+        int unchanged = 0;
+        int invalid = 0;
+        List<String> recovered = new ArrayList<>();
+        for (Map.Entry<String, List<User>> e : byHandle.entrySet()) {
+            String handle = e.getKey();
+            if (InvalidHandleService.isBlocked(invalidHandles.get(handle))) {
+                invalid++;
                 continue;
             }
-            Elements rows = table.select("tr");
-            for (Element row : rows) {
-                Elements cols = row.select("td");
-                if (cols.size() > 5 && "Accepted".equalsIgnoreCase(cols.get(2).text().trim())) {
-                    String pid = cols.get(3).text().trim();
-                    LocalDateTime now = LocalDateTime.now();
-                    // 获取或创建题目信息并保存
-                    ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                            .orElseGet(() -> {
-                                ExtOjPbInfo pInfo = fetchProblem(pid);
-                                return (pInfo != null) ? pbInfoRepo.save(pInfo) : null;
-                            });
-                    if (info == null) continue;
-                    // 构造 UserTryProblem
-                    UserTryProblem utp = UserTryProblem.builder()
-                            .user(user)
-                            .extOjPbInfo(info)
-                            .ojName(getOjType())
-                            .result(ProblemResult.AC)
-                            .attemptTime(now)
-                            .build();
-                    tries.add(utp);
+            String url = statusUrlTpl.format(handle);
+            logger.info("调用 HDU user status 页面，url：{}", url);
+            List<String> acPids = new ArrayList<>();
+            try {
+                byte[] body = httpUtil.readStream(url, InputStream::readAllBytes);
+                ResponseFingerprintService.Fingerprint fp = ResponseFingerprintService.Fingerprint.of(body);
+                if (fp.matches(fingerprints.get(handle))) {
+                    unchanged++;
+                    continue;
+                }
+                // charset 交给 Jsoup 按 BOM / meta 识别
+                Document doc = Jsoup.parse(new ByteArrayInputStream(body), null, url);
+                Element table = doc.selectFirst("table.table_text");
+                if (table == null) {
+                    // 只有明确的"用户不存在"提示才记为无效账号；维护页、反爬页、截断页同样没有表格，按可重试失败处理
+                    if (doc.text().contains(NO_SUCH_USER)) {
+                        throw new InvalidHandleException("HDU 提示用户不存在");
+                    }
+                    throw new IOException("HDU 状态页没有提交记录表格: " + url);
+                }
+                Elements rows = table.select("tr");
+                ResponseFingerprintService.Fingerprint staged = fp.withFirstSubmissionId(firstRunId(rows));
+                for (User user : e.getValue()) {
+                    fingerprintService.stage(user, getOjType(), handle, STATUS_ENDPOINT, 1, staged);
+                }
+                for (Element row : rows) {
+                    Elements cols = row.select("td");
+                    if (cols.size() > 5 && "Accepted".equalsIgnoreCase(cols.get(2).text().trim())) {
+                        acPids.add(cols.get(3).text().trim());
+                    }
+                }
+            } catch (Exception ex) {
+                Optional<String> reason = InvalidHandleException.reasonOf(ex);
+                if (reason.isPresent()) {
+                    invalidHandleService.recordInvalid(getOjType(), handle, reason.get());
+                    invalid++;
+                    continue;
                 }
+                logger.error("获取 HDU 用户 {} 提交记录失败", handle, ex);
+                lastError = ex instanceof RuntimeException re ? re : new RuntimeException(ex);
+                failures++;
+                continue;
+            }
+            if (invalidHandles.containsKey(handle)) {
+                recovered.add(handle);
             }
+            allPids.addAll(acPids);
+            for (User user : e.getValue()) {
+                acPidsByUser.computeIfAbsent(user.getId(), k -> new ArrayList<>()).addAll(acPids);
+            }
+        }
+        // 全部账号都失败多半是平台不可用，抛出交给熔断器计数
+        if (failures > 0 && failures == byHandle.size() - invalid) {
+            throw new RuntimeException("HDU 全部 " + failures + " 个账号抓取失败", lastError);
+        }
+        invalidHandleService.recordValid(getOjType(), recovered);
+        if (unchanged > 0) {
+            logger.info("HDU {} 个账号状态页与上次响应指纹相同，跳过解析", unchanged);
+        }
+        if (allPids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // 2. 整批题目一次解析
+        Map<String, ExtOjPbInfo> infos = resolveProblems(allPids);
+
+        // 3. 按用户构造 UserTryProblem
+        Map<Integer, User> usersById = new HashMap<>();
+        users.forEach(u -> usersById.put(u.getId(), u));
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, List<UserTryProblem>> result = new LinkedHashMap<>();
+        acPidsByUser.forEach((userId, acPids) -> {
+            User user = usersById.get(userId);
+            List<UserTryProblem> tries = new ArrayList<>();
+            for (String pid : acPids) {
+                ExtOjPbInfo info = infos.get(pid);
+                if (info == null) continue;
+                tries.add(UserTryProblem.builder()
+                        .user(user)
+                        .extOjPbInfo(info)
+                        .ojName(getOjType())
+                        .result(ProblemResult.AC)
+                        .attemptTime(now)
+                        .build());
+            }
+            logger.info("HDU 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
+            result.put(userId, tries);
+        });
+        return result;
+    }
+
+    /**
+     * 状态页第一行（最新一条提交）的 Run ID，表头行跳过，解析不到时返回 null
+     */
+    private static Long firstRunId(Elements rows) {
+        for (Element row : rows) {
+            Elements cols = row.select("td");
+            if (!cols.isEmpty() && cols.get(0).text().trim().matches("\\d+")) {
+                return Long.parseLong(cols.get(0).text().trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 先查题目索引和一次 IN 查询，库中没有的题目并发抓取页面后一次批量写入
+     */
+    private Map<String, ExtOjPbInfo> resolveProblems(Set<String> pids) {
+        Map<String, ExtOjPbInfo> infos = problemCatalogService.resolve(getOjType(), pids);
+        List<String> missing = pids.stream().filter(pid -> !infos.containsKey(pid)).toList();
+        if (!missing.isEmpty()) {
+            logger.info("HDU 有 {} 道题不在库中，并发抓取题目页面", missing.size());
+            Map<String, ExtOjPbInfo> fetched = httpUtil.fetchAll(missing, this::fetchProblemAsync, fetchParallelism);
+            infos.putAll(problemCatalogService.upsert(getOjType(), fetched.values().stream()
+                    .map(info -> new ProblemCatalogService.Entry(info, null))
+                    .toList()));
         }
-        logger.info("HDU 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
-        return tries;
+        return infos;
     }
 
     /**
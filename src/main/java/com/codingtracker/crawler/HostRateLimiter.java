@@ -0,0 +1,195 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.dto.HostRateStatsDTO;
+import com.codingtracker.model.OJPlatform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HostRateLimiter：按 host 划分的自适应令牌桶限流器。
+ * 每个 host 的最大速率按所属 OJPlatform 配置（crawler.rate-limit.{平台}，单位 次/秒），
+ * 遇到 429/503 或 Codeforces "Call limit exceeded" 时速率减半，请求成功后逐步加回到最大速率（AIMD）。
+ * 获取令牌是非阻塞的：返回一个在预约时间点完成的 CompletableFuture。
+ */
+@Component
+public class HostRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostRateLimiter.class);
+
+    /** 未配置平台时的默认速率（次/秒） */
+    private static final double DEFAULT_RATE = 2.0;
+    /** 速率下限 = 最大速率 / MIN_RATE_DIVISOR */
+    private static final double MIN_RATE_DIVISOR = 16.0;
+    /** 每次成功后加回的速率 = 最大速率 / INCREASE_STEPS */
+    private static final double INCREASE_STEPS = 20.0;
+
+    private final Environment env;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public HostRateLimiter(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * 为一次请求预约令牌
+     *
+     * @param url 请求地址
+     * @return 令牌可用时完成的 Future
+     */
+    public CompletableFuture<Void> acquire(String url) {
+        Bucket bucket = bucketOf(url);
+        long waitNanos = bucket.reserve();
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        bucket.waiting.incrementAndGet();
+        return CompletableFuture.runAsync(bucket.waiting::decrementAndGet,
+                CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 上游明确限流：速率减半，并清空积攒的突发令牌
+     */
+    public void onThrottled(String url) {
+        Bucket bucket = bucketOf(url);
+        double rate = bucket.decrease();
+        logger.warn("host {} 被限流，速率下调为 {}/s", bucket.host, String.format("%.3f", rate));
+    }
+
+    /**
+     * 请求成功：速率逐步恢复
+     */
+    public void onSuccess(String url) {
+        bucketOf(url).increase();
+    }
+
+    /**
+     * 所有 host 的限流统计（排队等待时间等）
+     */
+    public List<HostRateStatsDTO> snapshot() {
+        return buckets.values().stream()
+                .map(Bucket::stats)
+                .sorted(Comparator.comparing(HostRateStatsDTO::getHost))
+                .toList();
+    }
+
+    /**
+     * 所有 host 累计放行的请求数
+     */
+    public long totalRequests() {
+        long total = 0;
+        for (Bucket bucket : buckets.values()) {
+            total += bucket.requests.sum();
+        }
+        return total;
+    }
+
+    private Bucket bucketOf(String url) {
+        String host = hostOf(url);
+        return buckets.computeIfAbsent(host, h -> {
+            OJPlatform platform = OJPlatform.fromHost(h);
+            double rate = configuredRate(platform);
+            logger.info("初始化 host {} 限流器，平台 {}，最大速率 {}/s", h, platform, rate);
+            return new Bucket(h, platform, rate);
+        });
+    }
+
+    private double configuredRate(OJPlatform platform) {
+        double fallback = env.getProperty("crawler.rate-limit.default", Double.class, DEFAULT_RATE);
+        if (platform == OJPlatform.UNKNOWN) {
+            return fallback;
+        }
+        return env.getProperty("crawler.rate-limit." + platform.name().toLowerCase(), Double.class, fallback);
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    /**
+     * 单个 host 的令牌桶。令牌数允许为负，表示已被预约的未来令牌。
+     */
+    private static final class Bucket {
+        final String host;
+        final OJPlatform platform;
+        final double maxRate;
+        final double minRate;
+        /** 桶容量：最多积攒 1 秒的突发量，至少 1 个 */
+        final double capacity;
+
+        double rate;
+        double tokens;
+        long lastRefill = System.nanoTime();
+
+        final LongAdder requests = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong waiting = new AtomicLong();
+
+        Bucket(String host, OJPlatform platform, double maxRate) {
+            this.host = host;
+            this.platform = platform;
+            this.maxRate = maxRate;
+            this.minRate = maxRate / MIN_RATE_DIVISOR;
+            this.capacity = Math.max(1.0, maxRate);
+            this.rate = maxRate;
+            this.tokens = capacity;
+        }
+
+        synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            long wait = tokens >= 0 ? 0 : (long) (-tokens / rate * 1_000_000_000L);
+            requests.increment();
+            totalWaitNanos.add(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            return wait;
+        }
+
+        synchronized double decrease() {
+            refill();
+            rate = Math.max(minRate, rate / 2);
+            tokens = Math.min(tokens, 0);
+            throttled.increment();
+            return rate;
+        }
+
+        synchronized void increase() {
+            if (rate < maxRate) {
+                refill();
+                rate = Math.min(maxRate, rate + maxRate / INCREASE_STEPS);
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1e9 * rate);
+            lastRefill = now;
+        }
+
+        synchronized HostRateStatsDTO stats() {
+            long count = requests.sum();
+            double avgWait = count == 0 ? 0 : totalWaitNanos.sum() / 1e6 / count;
+            return new HostRateStatsDTO(host, platform, rate, maxRate, count, throttled.sum(),
+                    waiting.get(), avgWait, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+    }
+}
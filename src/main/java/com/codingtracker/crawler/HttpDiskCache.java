@@ -0,0 +1,250 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.OJPlatform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * HttpDiskCache：基于磁盘的 HTTP 响应缓存，按 URL 存放解压后的响应体与校验头（ETag / Last-Modified）。
+ * 在新鲜期（按所属 OJPlatform 配置的 TTL）内直接返回本地副本，过期后由 HttpUtil 带条件请求重新验证，
+ * 服务端返回 304 时继续使用本地副本。总大小超过上限时按最近最少使用淘汰。
+ * 只用于题目页面这类几乎不变的内容，提交记录等实时数据不走缓存。
+ */
+@Component
+public class HttpDiskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpDiskCache.class);
+
+    private static final String SUFFIX = ".entry";
+
+    /** 未配置平台时的默认新鲜期（秒） */
+    private static final long DEFAULT_TTL_SECONDS = 7 * 24 * 3600;
+
+    /**
+     * 一条缓存记录
+     *
+     * @param url          请求地址
+     * @param body         解压后的响应体
+     * @param contentType  Content-Type 响应头，可为空串
+     * @param etag         ETag 响应头，可为空串
+     * @param lastModified Last-Modified 响应头，可为空串
+     * @param storedAt     写入或最近一次验证通过的时间（毫秒）
+     */
+    public record Entry(String url, byte[] body, String contentType, String etag, String lastModified, long storedAt) {
+
+        Entry revalidated() {
+            return new Entry(url, body, contentType, etag, lastModified, System.currentTimeMillis());
+        }
+    }
+
+    private final Environment env;
+    private final boolean enabled;
+    private final Path dir;
+    private final long maxBytes;
+
+    /** 文件名 → 文件大小，按访问顺序排列，队首最久未用 */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public HttpDiskCache(Environment env) {
+        this.env = env;
+        this.dir = Paths.get(env.getProperty("crawler.http-cache.dir", "cache/http"));
+        this.maxBytes = env.getProperty("crawler.http-cache.max-bytes", Long.class, 256L * 1024 * 1024);
+        this.enabled = env.getProperty("crawler.http-cache.enabled", Boolean.class, true) && init();
+    }
+
+    // 创建目录并按文件修改时间重建 LRU 索引，失败时禁用缓存
+    private boolean init() {
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparingLong(HttpDiskCache::modifiedMillis))
+                        .forEach(p -> {
+                            long size = p.toFile().length();
+                            index.put(p.getFileName().toString(), size);
+                            totalBytes += size;
+                        });
+            }
+            logger.info("HTTP 磁盘缓存目录 {}，已有 {} 条、{} KB，上限 {} KB",
+                    dir.toAbsolutePath(), index.size(), totalBytes / 1024, maxBytes / 1024);
+            evict();
+            return true;
+        } catch (IOException e) {
+            logger.warn("HTTP 磁盘缓存目录 {} 不可用，禁用缓存", dir, e);
+            return false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取缓存记录，不存在或损坏时返回 empty
+     */
+    public Optional<Entry> get(String url) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String name = fileName(url);
+        synchronized (this) {
+            if (index.get(name) == null) {
+                return Optional.empty();
+            }
+        }
+        Path file = dir.resolve(name);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            String storedUrl = in.readUTF();
+            String contentType = in.readUTF();
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            long storedAt = in.readLong();
+            byte[] body = in.readNBytes(in.readInt());
+            if (!url.equals(storedUrl)) {
+                return Optional.empty();
+            }
+            // 更新修改时间，重启后重建的 LRU 顺序与访问顺序一致
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(new Entry(storedUrl, body, contentType, etag, lastModified, storedAt));
+        } catch (IOException e) {
+            logger.warn("读取 HTTP 缓存 {} 失败，按未命中处理：{}", url, e.toString());
+            remove(name);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 记录是否仍在所属平台的新鲜期内
+     */
+    public boolean isFresh(Entry entry) {
+        return System.currentTimeMillis() - entry.storedAt() < ttlMillis(entry.url());
+    }
+
+    /**
+     * 写入（或覆盖）一条缓存记录；写入失败只记日志
+     */
+    public void put(Entry entry) {
+        if (!enabled || entry.body().length > maxBytes) {
+            return;
+        }
+        String name = fileName(entry.url());
+        Path file = dir.resolve(name);
+        try {
+            // 先写临时文件再原子替换，并发读到的总是完整记录
+            Path tmp = Files.createTempFile(dir, name, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeUTF(entry.url());
+                out.writeUTF(entry.contentType());
+                out.writeUTF(entry.etag());
+                out.writeUTF(entry.lastModified());
+                out.writeLong(entry.storedAt());
+                out.writeInt(entry.body().length);
+                out.write(entry.body());
+            }
+            long size = Files.size(tmp);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                Long old = index.put(name, size);
+                totalBytes += size - (old == null ? 0 : old);
+            }
+            evict();
+        } catch (IOException e) {
+            logger.warn("写入 HTTP 缓存 {} 失败：{}", entry.url(), e.toString());
+        }
+    }
+
+    /**
+     * 条件请求返回 304：刷新记录的验证时间，重新开始新鲜期
+     */
+    public void revalidated(Entry entry) {
+        put(entry.revalidated());
+    }
+
+    /**
+     * 删除一条缓存记录，用于本地副本解析失败（错误页）时
+     */
+    public void invalidate(String url) {
+        if (enabled) {
+            remove(fileName(url));
+        }
+    }
+
+    // 超过上限时从最久未用的记录开始删除
+    private void evict() {
+        List<String> victims = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> e = it.next();
+                totalBytes -= e.getValue();
+                victims.add(e.getKey());
+                it.remove();
+            }
+        }
+        for (String name : victims) {
+            try {
+                Files.deleteIfExists(dir.resolve(name));
+            } catch (IOException e) {
+                logger.warn("删除 HTTP 缓存文件 {} 失败：{}", name, e.toString());
+            }
+        }
+        if (!victims.isEmpty()) {
+            logger.info("HTTP 磁盘缓存超过上限，淘汰 {} 条", victims.size());
+        }
+    }
+
+    private void remove(String name) {
+        synchronized (this) {
+            Long size = index.remove(name);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        try {
+            Files.deleteIfExists(dir.resolve(name));
+        } catch (IOException ignored) {
+            // 下次写入时覆盖
+        }
+    }
+
+    /**
+     * 新鲜期按 URL 所属平台配置：crawler.http-cache.ttl-seconds.{平台}，未配置时取 default
+     */
+    private long ttlMillis(String url) {
+        OJPlatform platform = OJPlatform.fromHost(HostRateLimiter.hostOf(url));
+        long fallback = env.getProperty("crawler.http-cache.ttl-seconds.default", Long.class, DEFAULT_TTL_SECONDS);
+        long seconds = platform == OJPlatform.UNKNOWN
+                ? fallback
+                : env.getProperty("crawler.http-cache.ttl-seconds." + platform.name().toLowerCase(), Long.class, fallback);
+        return seconds * 1000;
+    }
+
+    private static String fileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long modifiedMillis(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.codingtracker.crawler;
+
+import org.jsoup.HttpStatusException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 带响应体的 HTTP 错误状态异常。
+ * 4xx 响应里常有判断失败原因所需的信息（例如 Codeforces 的 FAILED comment），
+ * 保留解压后的响应体，并记录上游是否表示限流，供 RetryPolicy 和爬虫区分限流、参数错误与账号不存在。
+ */
+public class HttpResponseStatusException extends HttpStatusException {
+
+    /** 保留的响应体最大字节数 */
+    private static final int MAX_BODY_BYTES = 8 * 1024;
+
+    private final String body;
+    private final boolean throttled;
+
+    public HttpResponseStatusException(int statusCode, String url, byte[] body, boolean throttled) {
+        super("HTTP error fetching URL", statusCode, url);
+        this.body = body == null ? "" : new String(body, 0, Math.min(body.length, MAX_BODY_BYTES), StandardCharsets.UTF_8);
+        this.throttled = throttled;
+    }
+
+    /**
+     * 响应体文本（按 UTF-8 解码，最多 8 KB）
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * 上游是否表示限流（429/503 或响应体含 "limit exceeded"）
+     */
+    public boolean isThrottled() {
+        return throttled;
+    }
+}
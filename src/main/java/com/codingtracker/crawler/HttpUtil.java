@@ -1,34 +1,107 @@
 package com.codingtracker.crawler;
 
-import org.apache.commons.io.IOUtils;
+import com.codingtracker.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 /**
- * HttpUtil：提供多种 HTTP 请求方式，包括原生 Java URL、Jsoup 及 HTTPS 支持。
- * 通过 repeatDo 方法重试调用，保证请求的可靠性。
+ * HttpUtil：提供多种 HTTP 请求方式，包括纯文本、Jsoup 及 HTTPS 支持。
+ * 底层共用一个 java.net.http.HttpClient（连接保持复用、HTTPS 下协商 HTTP/2、gzip 压缩），
+ * 每个读取方法都有返回 CompletableFuture 的异步版本，同步方法只是对异步版本的薄封装。
+ * 每次发起请求前都会向 HostRateLimiter 预约对应 host 的令牌。
+ * 通过 repeatDo / retryAsync 重试调用，是否重试、退避多久、是否对冲请求都由 RetryPolicy 决定。
+ * 批内逐账号的阻塞抓取可经 fanOut 执行，virtual 模式下在虚拟线程上并发。
+ * 题目页面等几乎不变的内容可走 readJsoupURLCached，由 HttpDiskCache 缓存并用 ETag / Last-Modified 重新验证，调用方解析成功后才写入缓存。
  */
 @Component
 public class HttpUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(HttpUtil.class);
 
+    /** 默认重试次数 */
+    private static final int MAX_TIMES = 5;
+
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; CodingTracker)";
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration URL_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration JSOUP_TIMEOUT = Duration.ofSeconds(8);
+    private static final Duration HTTPS_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * 全局共享的 HttpClient：内部维护按 host 复用的长连接池，
+     * 避免每次请求都重新进行 TCP + TLS 握手
+     */
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+    @Autowired
+    private HostRateLimiter rateLimiter;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private HttpDiskCache diskCache;
+
+    @Value("${crawler.executor.mode:platform}")
+    private String executorMode = "platform";
+
+    /** virtual 模式下一批内同时拉取的账号数 */
+    @Value("${crawler.fetch.handle-parallelism:4}")
+    private int handleParallelism = 4;
+
+    /** fanOut 用的虚拟线程执行器，platform 模式或运行时不支持时为 null */
+    private ExecutorService fanOutExecutor;
+
     /**
-     * 重试执行任务，直到返回非空结果或达到最大重试次数后抛出最后一次异常
+     * 重试执行任务，直到返回非空结果或达到最大重试次数后抛出最后一次异常。
+     * 每次失败先由 RetryPolicy 分类，不可重试的错误（如 404）直接抛出，可重试的按指数退避等待。
      *
      * @param task 要执行的 Callable 任务
      * @param times 最大重试次数
@@ -44,117 +117,263 @@ public class HttpUtil {
                 if (result != null) {
                     return result;
                 }
+                lastEx = new IOException("第 " + i + " 次执行返回空结果");
             } catch (Exception e) {
                 lastEx = e;
-                logger.warn("第 {} 次执行失败，重试中...", i, e);
             }
+            FailureType type = retryPolicy.classify(unwrap(lastEx));
+            if (i >= times || !retryPolicy.shouldRetry(type, i)) {
+                break;
+            }
+            long delay = retryPolicy.backoffMillis(type, i);
+            logger.warn("第 {} 次执行失败（{}），{} ms 后重试...", i, type, delay, lastEx);
+            Thread.sleep(delay);
         }
         throw lastEx;
     }
 
     /**
-     * 通过 Java 原生 URL 读取文本内容（UTF-8），最多重试 5 次
+     * 异步重试执行任务：每次失败后重新发起，直到成功或达到最大重试次数，
+     * 返回的 Future 以最后一次异常结束
+     *
+     * @param task  每次调用都发起一次新的异步请求
+     * @param times 最大重试次数
+     * @param <T>   返回类型
+     * @return 异步结果
+     */
+    public <T> CompletableFuture<T> retryAsync(Supplier<CompletableFuture<T>> task, int times) {
+        return retryAsync(task, times, 1);
+    }
+
+    private <T> CompletableFuture<T> retryAsync(Supplier<CompletableFuture<T>> task, int times, int attempt) {
+        CompletableFuture<T> future;
+        try {
+            future = task.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.exceptionallyCompose(ex -> {
+            Throwable cause = unwrap(ex);
+            FailureType type = retryPolicy.classify(cause);
+            if (attempt >= times || !retryPolicy.shouldRetry(type, attempt)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            long delay = retryPolicy.backoffMillis(type, attempt);
+            logger.warn("第 {} 次执行失败（{}），{} ms 后重试...", attempt, type, delay, cause);
+            Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+            return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(v -> retryAsync(task, times, attempt + 1));
+        });
+    }
+
+    /**
+     * 重置本轮重试预算，每次重建开始时调用
+     */
+    public void resetRetryBudget() {
+        retryPolicy.resetBudget();
+    }
+
+    // ===================================== 异步读取
+
+    /**
+     * 异步读取文本内容，最多重试 5 次
+     *
+     * @param urlString 请求地址
+     * @return 响应文本
+     */
+    public CompletableFuture<String> readURLAsync(String urlString) {
+        return readURLAsync(urlString, null);
+    }
+
+    /**
+     * 带 Cookie 的异步文本读取，最多重试 5 次
+     *
+     * @param urlString 请求地址
+     * @param cookies   要注入的 Cookie（key→value）
+     * @return 响应文本
+     */
+    public CompletableFuture<String> readURLAsync(String urlString, Map<String, String> cookies) {
+        return retryAsync(() -> {
+            logger.info("[*] readURL: {}", urlString);
+            return fetchAsync(urlString, cookies, URL_TIMEOUT).thenApply(HttpUtil::bodyAsString);
+        }, MAX_TIMES);
+    }
+
+    /**
+     * 异步 GET 请求并解析为 Jsoup Document，最多重试 5 次
+     *
+     * @param urlString 请求地址
+     * @return 解析后的 Document
+     */
+    public CompletableFuture<Document> readJsoupURLAsync(String urlString) {
+        return readJsoupURLAsync(urlString, null);
+    }
+
+    /**
+     * 带 Cookie 的异步 Jsoup 请求，最多重试 5 次
+     *
+     * @param urlString 请求地址
+     * @param cookies   要注入的 Cookie（key→value）
+     * @return 解析后的 Document
+     */
+    public CompletableFuture<Document> readJsoupURLAsync(String urlString, Map<String, String> cookies) {
+        return retryAsync(() -> {
+            logger.info("[*] readJsoupURL: {}", urlString);
+            return fetchAsync(urlString, cookies, JSOUP_TIMEOUT).thenApply(HttpUtil::bodyAsDocument);
+        }, MAX_TIMES);
+    }
+
+    /**
+     * 异步 HTTPS GET 请求，最多重试 5 次
+     *
+     * @param urlString 请求地址
+     * @return 响应文本
+     */
+    public CompletableFuture<String> readHttpsURLAsync(String urlString) {
+        return readHttpsURLAsync(urlString, null);
+    }
+
+    /**
+     * 带 Cookie 的异步 HTTPS GET 请求，最多重试 5 次
+     *
+     * @param urlString 请求地址
+     * @param cookies   要注入的 Cookie（key→value）
+     * @return 响应文本
+     */
+    public CompletableFuture<String> readHttpsURLAsync(String urlString, Map<String, String> cookies) {
+        return retryAsync(() -> {
+            logger.info("[*] readHttpsURL: {}", urlString);
+            return fetchAsync(urlString, cookies, HTTPS_TIMEOUT).thenApply(HttpUtil::bodyAsString);
+        }, MAX_TIMES);
+    }
+
+    // ===================================== 同步读取（异步版本的薄封装）
+
+    /**
+     * 读取文本内容（默认 UTF-8），最多重试 5 次
      *
      * @param urlString 请求地址
      * @return 响应文本
      */
     public String readURL(String urlString) {
-        try {
-            return repeatDo(() -> {
-                logger.info("[*] readURL: {}", urlString);
-                return IOUtils.toString(new URL(urlString), "UTF-8");
-            }, 5);
-        } catch (Exception e) {
-            throw new RuntimeException("readURL 失败: " + urlString, e);
-        }
+        return join(readURLAsync(urlString), "readURL 失败: " + urlString);
     }
 
     /**
-     * 使用 Jsoup 发起 GET 请求并解析为 Document，最多重试 5 次
+     * 使用 Jsoup 解析 GET 请求结果为 Document，最多重试 5 次
      *
      * @param urlString 请求地址
      * @return 解析后的 Document
      */
     public Document readJsoupURL(String urlString) {
-        try {
-            return repeatDo(() -> {
-                logger.info("[*] readJsoupURL: {}", urlString);
-                return Jsoup.connect(urlString)
-                        .timeout(8000)
-                        .ignoreContentType(true)
-                        .get();
-            }, 5);
-        } catch (Exception e) {
-            throw new RuntimeException("readJsoupURL 失败: " + urlString, e);
-        }
+        return join(readJsoupURLAsync(urlString), "readJsoupURL 失败: " + urlString);
     }
 
     /**
-     * 通过原生 HTTPS（HttpURLConnection）获取文本响应，最多重试 5 次
+     * 通过 HTTPS 获取文本响应，最多重试 5 次
      *
      * @param urlString 请求地址
      * @return 响应文本
      */
     public String readHttpsURL(String urlString) {
-        try {
-            return repeatDo(() -> {
-                logger.info("[*] readHttpsURL: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setInstanceFollowRedirects(true);
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), "UTF-8")
-                );
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
-                }
-                reader.close();
-                return sb.toString();
-            }, 5);
-        } catch (Exception e) {
-            throw new RuntimeException("readHttpsURL 失败: " + urlString, e);
+        return join(readHttpsURLAsync(urlString), "readHttpsURL 失败: " + urlString);
+    }
+
+
+// =====================================磁盘缓存
+
+    /**
+     * 经磁盘缓存读取页面，交给 parser 解析：新鲜期内直接用本地副本，
+     * 过期后带 If-None-Match / If-Modified-Since 重新验证，304 时沿用本地副本。
+     * 只有 parser 成功返回后才写入（或刷新）缓存；parser 抛异常时不写入，已有的本地副本一并删除，
+     * 避免反爬页、"System Error" 页等 2xx 错误页在新鲜期内被反复命中。
+     *
+     * @param urlString 请求地址
+     * @param parser    页面解析函数，页面不是预期内容时应抛出异常
+     * @param <T>       解析结果类型
+     * @return 解析结果
+     */
+    public <T> CompletableFuture<T> readJsoupURLCachedAsync(String urlString, Function<Document, T> parser) {
+        return readJsoupURLCachedAsync(urlString, null, parser);
+    }
+
+    /**
+     * 带 Cookie、经磁盘缓存的异步 Jsoup 请求，缓存按 URL 区分，不区分 Cookie
+     *
+     * @param urlString 请求地址
+     * @param cookies   要注入的 Cookie（key→value）
+     * @param parser    页面解析函数，页面不是预期内容时应抛出异常
+     * @param <T>       解析结果类型
+     * @return 解析结果
+     */
+    public <T> CompletableFuture<T> readJsoupURLCachedAsync(String urlString, Map<String, String> cookies,
+                                                           Function<Document, T> parser) {
+        if (!diskCache.isEnabled()) {
+            return readJsoupURLAsync(urlString, cookies).thenApply(parser);
+        }
+        Optional<HttpDiskCache.Entry> cached = diskCache.get(urlString);
+        if (cached.isPresent() && diskCache.isFresh(cached.get())) {
+            logger.debug("[*] cache hit: {}", urlString);
+            return CompletableFuture.supplyAsync(() -> parseEntry(cached.get(), parser));
         }
+        Map<String, String> conditional = new HashMap<>();
+        cached.ifPresent(entry -> {
+            if (!entry.etag().isEmpty()) {
+                conditional.put("If-None-Match", entry.etag());
+            }
+            if (!entry.lastModified().isEmpty()) {
+                conditional.put("If-Modified-Since", entry.lastModified());
+            }
+        });
+        // 只对请求本身重试；解析失败（错误页）不重试，直接交给调用方
+        return retryAsync(() -> {
+            logger.info("[*] readJsoupURL (cached): {}", urlString);
+            return fetchAsync(urlString, cookies, conditional, JSOUP_TIMEOUT);
+        }, MAX_TIMES).thenApply(resp -> {
+            if (resp.statusCode() == 304 && cached.isPresent()) {
+                T result = parseEntry(cached.get(), parser);
+                diskCache.revalidated(cached.get());
+                return result;
+            }
+            HttpDiskCache.Entry entry = new HttpDiskCache.Entry(urlString, decodeBody(resp),
+                    resp.headers().firstValue("Content-Type").orElse(""),
+                    resp.headers().firstValue("ETag").orElse(""),
+                    resp.headers().firstValue("Last-Modified").orElse(""),
+                    System.currentTimeMillis());
+            T result = parser.apply(entryAsDocument(entry));
+            diskCache.put(entry);
+            return result;
+        });
+    }
+
+    /**
+     * 同步版本，见 {@link #readJsoupURLCachedAsync(String, Map, Function)}
+     */
+    public <T> T readJsoupURLCached(String urlString, Map<String, String> cookies, Function<Document, T> parser) {
+        return join(readJsoupURLCachedAsync(urlString, cookies, parser), "readJsoupURLCached 失败: " + urlString);
     }
 
+    // 解析本地副本；解析失败说明副本本身是错误页，删除后再抛出
+    private <T> T parseEntry(HttpDiskCache.Entry entry, Function<Document, T> parser) {
+        try {
+            return parser.apply(entryAsDocument(entry));
+        } catch (RuntimeException e) {
+            diskCache.invalidate(entry.url());
+            throw e;
+        }
+    }
 
 // =====================================带cookie的
 
     /**
-     * 带 Cookie 的原生 URL GET 请求，最多重试 5 次
+     * 带 Cookie 的 GET 请求，最多重试 5 次
      *
      * @param urlString 请求地址
      * @param cookies   要注入的 Cookie（key→value）
      * @return 响应文本
      */
     public String readURL(String urlString, Map<String, String> cookies) {
-        try {
-            return repeatDo((Callable<String>) () -> {
-                logger.info("[*] readURL with cookies: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                // 拼装 Cookie 头
-                if (cookies != null && !cookies.isEmpty()) {
-                    String cookieHeader = cookies.entrySet().stream()
-                            .map(e -> e.getKey() + "=" + e.getValue())
-                            .collect(Collectors.joining("; "));
-                    conn.setRequestProperty("Cookie", cookieHeader);
-                }
-
-                try (InputStream in = conn.getInputStream()) {
-                    return IOUtils.toString(in, StandardCharsets.UTF_8);
-                }
-            }, 5);
-        } catch (Exception e) {
-            throw new RuntimeException("readURL with cookies 失败: " + urlString, e);
-        }
+        return join(readURLAsync(urlString, cookies), "readURL with cookies 失败: " + urlString);
     }
 
     /**
@@ -165,58 +384,404 @@ public class HttpUtil {
      * @return 解析后的 Document
      */
     public Document readJsoupURL(String urlString, Map<String, String> cookies) {
-        try {
-            return repeatDo((Callable<Document>) () -> {
-                logger.info("[*] readJsoupURL with cookies: {}", urlString);
-                return Jsoup.connect(urlString)
-                        .timeout(8000)
-                        .ignoreContentType(true)
-                        .cookies(cookies == null ? Map.of() : cookies)
-                        .get();
-            }, 5);
-        } catch (Exception e) {
-            throw new RuntimeException("readJsoupURL with cookies 失败: " + urlString, e);
-        }
+        return join(readJsoupURLAsync(urlString, cookies), "readJsoupURL with cookies 失败: " + urlString);
     }
 
     /**
-     * 带 Cookie 的原生 HTTPS GET 请求，最多重试 5 次
+     * 带 Cookie 的 HTTPS GET 请求，最多重试 5 次
      *
      * @param urlString 请求地址
      * @param cookies   要注入的 Cookie（key→value）
      * @return 响应文本
      */
     public String readHttpsURL(String urlString, Map<String, String> cookies) {
+        return join(readHttpsURLAsync(urlString, cookies), "readHttpsURL with cookies 失败: " + urlString);
+    }
+
+// =====================================流式读取
+
+    /**
+     * 响应体流的读取函数
+     *
+     * @param <T> 读取结果类型
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * 以流的方式读取响应体（自动解压 gzip），不在内存中缓存整段响应，最多重试 5 次。
+     * 每次重试都会重新请求并重新调用 reader，reader 不应返回 null。
+     * 读到一半断开的那次调用已经读出的数据不会撤销，因此 reader 应在内部创建结果并通过返回值交出，
+     * 不要把数据写进外部集合等有副作用的目标，否则重试后会重复。
+     *
+     * @param urlString 请求地址
+     * @param reader    响应流读取函数
+     * @param <T>       读取结果类型
+     * @return reader 的返回值
+     */
+    public <T> T readStream(String urlString, BodyReader<T> reader) {
         try {
-            return repeatDo((Callable<String>) () -> {
-                logger.info("[*] readHttpsURL with cookies: {}", urlString);
-                HttpURLConnection conn = (HttpURLConnection) new URL(urlString).openConnection();
-                conn.setInstanceFollowRedirects(true);
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-
-                // 拼装 Cookie 头
-                if (cookies != null && !cookies.isEmpty()) {
-                    String cookieHeader = cookies.entrySet().stream()
-                            .map(e -> e.getKey() + "=" + e.getValue())
-                            .collect(Collectors.joining("; "));
-                    conn.setRequestProperty("Cookie", cookieHeader);
+            return repeatDo(() -> {
+                logger.info("[*] readStream: {}", urlString);
+                rateLimiter.acquire(urlString).join();
+                long start = System.nanoTime();
+                HttpResponse<InputStream> resp = client.send(
+                        buildRequest(urlString, null, Map.of(), URL_TIMEOUT), HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream in = decodeStream(resp)) {
+                    int status = resp.statusCode();
+                    if (status >= 400) {
+                        byte[] body = in.readAllBytes();
+                        boolean throttled = isThrottled(status, body);
+                        if (throttled) {
+                            rateLimiter.onThrottled(urlString);
+                        }
+                        throw new HttpResponseStatusException(status, urlString, body, throttled);
+                    }
+                    rateLimiter.onSuccess(urlString);
+                    retryPolicy.recordLatency(urlString, System.nanoTime() - start);
+                    return reader.read(in);
                 }
+            }, MAX_TIMES);
+        } catch (Exception e) {
+            throw new RuntimeException("readStream 失败: " + urlString, e);
+        }
+    }
+
+// =====================================批量并发
+
+    /**
+     * 并发执行一批异步请求，同时在途的请求不超过 parallelism 个。
+     * 单个 key 失败或返回 null 时只记日志并跳过，不影响其他 key。
+     *
+     * @param keys        请求参数
+     * @param fetcher     key → 异步请求
+     * @param parallelism 最大在途请求数
+     * @return key → 成功的结果
+     */
+    public <K, V> Map<K, V> fetchAll(Collection<K> keys, Function<K, CompletableFuture<V>> fetcher, int parallelism) {
+        Map<K, V> results = new ConcurrentHashMap<>();
+        Iterator<K> it = keys.iterator();
+        int workers = Math.min(Math.max(1, parallelism), keys.size());
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            lanes[i] = nextFetch(it, fetcher, results);
+        }
+        CompletableFuture.allOf(lanes).join();
+        return results;
+    }
+
+    // 每条"通道"串行地从共享迭代器取下一个 key，通道数即并发上限
+    private <K, V> CompletableFuture<Void> nextFetch(Iterator<K> it,
+                                                     Function<K, CompletableFuture<V>> fetcher,
+                                                     Map<K, V> results) {
+        K key;
+        synchronized (it) {
+            if (!it.hasNext()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            key = it.next();
+        }
+        CompletableFuture<V> future;
+        try {
+            future = fetcher.apply(key);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((value, err) -> {
+                    if (err != null) {
+                        logger.warn("批量请求 {} 失败: {}", key, unwrap(err).toString());
+                    } else if (value != null) {
+                        results.put(key, value);
+                    }
+                    return null;
+                })
+                .thenComposeAsync(ignored -> nextFetch(it, fetcher, results));
+    }
+
+    /**
+     * 单个 key 的阻塞抓取函数
+     */
+    @FunctionalInterface
+    public interface BlockingFetch<K, V> {
+        V fetch(K key) throws IOException;
+    }
+
+    /**
+     * 对一批 key 执行阻塞的抓取函数，返回 key → 结果，顺序与 keys 相同；单个 key 失败时其 future 以该异常完成。
+     * virtual 模式下每个 key 在虚拟线程上执行，同一次调用至多 handleParallelism 个同时在途，批内逐账号的请求由此重叠等待；
+     * platform 模式（或运行时不支持虚拟线程）下在调用线程上依次执行，并发仍由舱壁线程数决定。
+     * 不经舱壁再次提交：调用方已占着舱壁额度，嵌套提交可能互相等待而死锁。
+     * fetch 可能在多个线程上并发执行，只应做网络读取和解码，合并结果由调用方在返回后串行完成。
+     *
+     * @param keys  请求参数
+     * @param fetch key → 抓取结果
+     * @return key → 结果 future（调用 join 时按 key 顺序等待）
+     */
+    public <K, V> Map<K, CompletableFuture<V>> fanOut(Collection<K> keys, BlockingFetch<K, V> fetch) {
+        Map<K, CompletableFuture<V>> results = new LinkedHashMap<>();
+        ExecutorService executor = fanOutExecutor;
+        if (executor == null || keys.size() <= 1) {
+            for (K key : keys) {
+                CompletableFuture<V> future = new CompletableFuture<>();
+                runFetch(fetch, key, future);
+                results.put(key, future);
+            }
+            return results;
+        }
+        Semaphore inFlight = new Semaphore(Math.max(1, handleParallelism));
+        for (K key : keys) {
+            CompletableFuture<V> future = new CompletableFuture<>();
+            results.put(key, future);
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                // 保留中断标志，之后的 key 都直接以中断完成
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        runFetch(fetch, key, future);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                future.completeExceptionally(e);
+            }
+        }
+        return results;
+    }
+
+    private static <K, V> void runFetch(BlockingFetch<K, V> fetch, K key, CompletableFuture<V> future) {
+        try {
+            future.complete(fetch.fetch(key));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    @PostConstruct
+    void startFanOutExecutor() {
+        if ("virtual".equalsIgnoreCase(executorMode)) {
+            fanOutExecutor = VirtualThreads.newPerTaskExecutor();
+        }
+        logger.info("批内抓取{}", fanOutExecutor != null ? "并发数 " + Math.max(1, handleParallelism) : "串行执行");
+    }
+
+    @PreDestroy
+    void stopFanOutExecutor() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+
+    // ===================================== 内部实现
+
+    /**
+     * 通知限流器该地址的上游已限流（例如 Codeforces 返回 FAILED: Call limit exceeded）
+     *
+     * @param urlString 请求地址
+     */
+    public void reportThrottled(String urlString) {
+        rateLimiter.onThrottled(urlString);
+    }
 
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)
-                );
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    sb.append(line);
+    /**
+     * 发起一次 GET 请求（不重试）。若 RetryPolicy 要求对冲，则主请求在对冲延迟内未返回时
+     * 再发一个相同请求，取先成功的那个；两个都失败才算失败。
+     */
+    private CompletableFuture<HttpResponse<byte[]>> fetchAsync(String urlString,
+                                                               Map<String, String> cookies,
+                                                               Duration timeout) {
+        return fetchAsync(urlString, cookies, Map.of(), timeout);
+    }
+
+    /**
+     * 同上，附加额外的请求头（如条件请求头）
+     */
+    private CompletableFuture<HttpResponse<byte[]>> fetchAsync(String urlString,
+                                                               Map<String, String> cookies,
+                                                               Map<String, String> headers,
+                                                               Duration timeout) {
+        Optional<Duration> hedge = retryPolicy.hedgeDelay(urlString);
+        if (hedge.isEmpty()) {
+            return limitedSendAsync(urlString, cookies, headers, timeout);
+        }
+
+        CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        AtomicInteger inFlight = new AtomicInteger(1);
+        BiConsumer<HttpResponse<byte[]>, Throwable> onDone = (resp, ex) -> {
+            if (ex == null) {
+                result.complete(resp);
+            } else if (inFlight.decrementAndGet() == 0) {
+                result.completeExceptionally(ex);
+            }
+        };
+        CompletableFuture<HttpResponse<byte[]>> primary = limitedSendAsync(urlString, cookies, headers, timeout);
+        primary.whenComplete(onDone);
+
+        CompletableFuture.delayedExecutor(hedge.get().toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            // 主请求已返回或已失败（交给外层重试）时不再对冲
+            if (result.isDone() || inFlight.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+                return;
+            }
+            logger.info("[*] hedge after {} ms: {}", hedge.get().toMillis(), urlString);
+            CompletableFuture<HttpResponse<byte[]>> backup = limitedSendAsync(urlString, cookies, headers, timeout);
+            backup.whenComplete(onDone);
+            result.whenComplete((r, ex) -> backup.cancel(true));
+        });
+        result.whenComplete((r, ex) -> primary.cancel(true));
+        return result;
+    }
+
+    /**
+     * 预约限流令牌后发送请求
+     */
+    private CompletableFuture<HttpResponse<byte[]>> limitedSendAsync(String urlString,
+                                                                     Map<String, String> cookies,
+                                                                     Map<String, String> headers,
+                                                                     Duration timeout) {
+        return rateLimiter.acquire(urlString)
+                .thenCompose(v -> sendAsync(urlString, cookies, headers, timeout));
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(String urlString,
+                                                              Map<String, String> cookies,
+                                                              Map<String, String> headers,
+                                                              Duration timeout) {
+        long start = System.nanoTime();
+        return client.sendAsync(buildRequest(urlString, cookies, headers, timeout), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(resp -> {
+                    int status = resp.statusCode();
+                    if (status >= 400) {
+                        byte[] body = decodeBody(resp);
+                        boolean throttled = isThrottled(status, body);
+                        if (throttled) {
+                            rateLimiter.onThrottled(urlString);
+                        }
+                        throw new CompletionException(new HttpResponseStatusException(status, urlString, body, throttled));
+                    }
+                    rateLimiter.onSuccess(urlString);
+                    retryPolicy.recordLatency(urlString, System.nanoTime() - start);
+                    return resp;
+                });
+    }
+
+    private static HttpRequest buildRequest(String urlString, Map<String, String> cookies,
+                                            Map<String, String> headers, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(urlString))
+                .GET()
+                .timeout(timeout)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", "gzip");
+        headers.forEach(builder::header);
+        // 明文 http 不走 h2c 升级，部分老 OJ（HDU/POJ）对 Upgrade 头处理有问题
+        if (urlString.startsWith("http://")) {
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        // 拼装 Cookie 头
+        if (cookies != null && !cookies.isEmpty()) {
+            String cookieHeader = cookies.entrySet().stream()
+                    .map(e -> e.getKey() + "=" + e.getValue())
+                    .collect(Collectors.joining("; "));
+            builder.header("Cookie", cookieHeader);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 429/503 或 Codeforces 的 "Call limit exceeded" 视为上游限流
+     */
+    private static boolean isThrottled(int status, byte[] body) {
+        if (status == 429 || status == 503) {
+            return true;
+        }
+        return new String(body, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT).contains("limit exceeded");
+    }
+
+    /**
+     * 解压响应体（服务端可能按 Accept-Encoding 返回 gzip）
+     */
+    private static byte[] decodeBody(HttpResponse<byte[]> resp) {
+        String encoding = resp.headers().firstValue("Content-Encoding").orElse("");
+        if (!"gzip".equalsIgnoreCase(encoding.trim())) {
+            return resp.body();
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(resp.body()))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("gzip 解压失败: " + resp.uri(), e);
+        }
+    }
+
+    private static InputStream decodeStream(HttpResponse<InputStream> resp) throws IOException {
+        String encoding = resp.headers().firstValue("Content-Encoding").orElse("");
+        return "gzip".equalsIgnoreCase(encoding.trim()) ? new GZIPInputStream(resp.body()) : resp.body();
+    }
+
+    /**
+     * 从 Content-Type 中取出 charset，没有则返回 null
+     */
+    private static String charsetOf(HttpResponse<?> resp) {
+        return charsetOf(resp.headers().firstValue("Content-Type").orElse(""));
+    }
+
+    private static String charsetOf(String contentType) {
+        for (String part : contentType.split(";")) {
+            String p = part.trim();
+            if (p.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String name = p.substring("charset=".length()).replace("\"", "").trim();
+                if (Charset.isSupported(name)) {
+                    return name;
                 }
-                reader.close();
-                return sb.toString();
-            }, 5);
-        } catch (Exception e) {
-            throw new RuntimeException("readHttpsURL with cookies 失败: " + urlString, e);
+            }
+        }
+        return null;
+    }
+
+    private static String bodyAsString(HttpResponse<byte[]> resp) {
+        String charset = charsetOf(resp);
+        return new String(decodeBody(resp), charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8);
+    }
+
+    private static Document bodyAsDocument(HttpResponse<byte[]> resp) {
+        try {
+            // charset 为空时由 Jsoup 根据 BOM / meta 自动识别（HDU 页面为 GBK）
+            return Jsoup.parse(new ByteArrayInputStream(decodeBody(resp)), charsetOf(resp), resp.uri().toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析页面失败: " + resp.uri(), e);
+        }
+    }
+
+    private static Document entryAsDocument(HttpDiskCache.Entry entry) {
+        try {
+            return Jsoup.parse(new ByteArrayInputStream(entry.body()), charsetOf(entry.contentType()), entry.url());
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析缓存页面失败: " + entry.url(), e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    /**
+     * 同步等待异步结果，失败时包装为 RuntimeException 抛出
+     */
+    private static <T> T join(CompletableFuture<T> future, String message) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(message, unwrap(e));
         }
     }
 }
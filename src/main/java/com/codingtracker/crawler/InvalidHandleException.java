@@ -0,0 +1,43 @@
+package com.codingtracker.crawler;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * 账号在 OJ 上不存在或格式非法。
+ * 不是 IOException，RetryPolicy 将其归为 PERMANENT，不会重试；爬虫捕获后记入无效账号负缓存
+ */
+public class InvalidHandleException extends RuntimeException {
+
+    public InvalidHandleException(String message) {
+        super(message);
+    }
+
+    /**
+     * 从异常链中识别账号无效：InvalidHandleException，或接口 400/404 且响应体明确提示 "not found"。
+     * 限流（如 Codeforces 的 "Call limit exceeded"）和其他参数错误同样返回 400，不算账号无效
+     *
+     * @return 无效原因，不是账号问题时返回 empty
+     */
+    public static Optional<String> reasonOf(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof InvalidHandleException ihe) {
+                return Optional.of(ihe.getMessage());
+            }
+            if (e instanceof HttpResponseStatusException hse && isNotFound(hse)) {
+                return Optional.of("HTTP " + hse.getStatusCode() + "：" + hse.getBody());
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isNotFound(HttpResponseStatusException e) {
+        int status = e.getStatusCode();
+        return (status == 400 || status == 404)
+                && !e.isThrottled()
+                && e.getBody().toLowerCase(Locale.ROOT).contains("not found");
+    }
+}
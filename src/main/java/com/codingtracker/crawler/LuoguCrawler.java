@@ -1,14 +1,18 @@
 package com.codingtracker.crawler;
 
+import com.codingtracker.dto.TagMetaDTO;
 import com.codingtracker.init.TagMetaLoader;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
-import com.codingtracker.repository.TagRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
+import com.codingtracker.service.InvalidHandleService;
+import com.codingtracker.service.ProblemCatalogService;
+import com.codingtracker.service.SyncCursorService;
+import com.codingtracker.service.TagDictionary;
+import com.codingtracker.util.UrlTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.common.util.StringUtils;
-import jakarta.transaction.Transactional;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -18,11 +22,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 /**
@@ -40,17 +48,26 @@ public class LuoguCrawler {
     private HttpUtil httpUtil;
 
     @Autowired
-    private ExtOjLinkRepository linkRepo;
+    private ExtOjLinkRegistry linkRegistry;
 
     @Autowired
     private ExtOjPbInfoRepository pbInfoRepo;
 
     @Autowired
-    private TagRepository tagRepo;
+    private TagDictionary tagDictionary;
+
+    @Autowired
+    private ProblemCatalogService problemCatalogService;
 
     @Autowired
     private TagMetaLoader tagMetaLoader;
 
+    @Autowired
+    private SyncCursorService syncCursorService;
+
+    @Autowired
+    private InvalidHandleService invalidHandleService;
+
     /**
      * 本爬虫对应的平台类型
      */
@@ -59,180 +76,362 @@ public class LuoguCrawler {
     }
 
     public static Map<String,String> parseCookies(String cookieHeader) {
-        if (cookieHeader == null || cookieHeader.isBlank()) {
-            return Map.of();
-        }
-        return Arrays.stream(cookieHeader.split(";"))
-                .map(String::trim)
-                .filter(s -> s.contains("="))
-                .map(s -> s.split("=", 2))
-                .collect(Collectors.toMap(a -> a[0], a -> a[1]));
+        return ExtOjLinkRegistry.parseCookies(cookieHeader);
     }
 
     /**
      * 拉取单个 Luogu 题目信息并构建实体
      */
     public ExtOjPbInfo fetchProblem(String pid) {
-        ExtOjLink link = linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing Luogu link config"));
-        String url = String.format(link.getProblemLink(), pid);
-        Map<String, String> cookies = parseCookies(link.getAuthToken());
+        ExtOjLinkRegistry.Links links = linkRegistry.get(getOjType());
+        String url = links.problem().format(pid);
+        Map<String, String> cookies = links.cookies();
 
         logger.info("调用 Luogu 题目详情页面，url：{}", url);
         try {
-            // 1) 取页面并解析 JSON
-            Document doc = httpUtil.readJsoupURL(url, cookies);
-            String ctxJson = doc.getElementById("lentille-context").html();
-            JsonNode problemNode = new ObjectMapper()
-                    .readTree(ctxJson)
-                    .path("data")
-                    .path("problem");
-
-            // 2) 标题优先取 JSON，再 fallback 到 DOM
-            String title = Optional.ofNullable(problemNode.path("title").asText(null))
-                    .filter(t -> !t.isEmpty())
-                    .orElseGet(() -> Optional.ofNullable(doc.selectFirst(".ttitle"))
-                            .map(Element::text)
-                            .orElse(doc.title()));
-
-            // 3) 拿到题目所有 tag ID
-            List<Integer> tagIds = new ArrayList<>();
-            problemNode.path("tags").forEach(n -> tagIds.add(n.asInt()));
-
-            // 4) 使用 TagMetaLoader 从内存中映射出每个 TagMetaDTO，然后存库
-            Set<Tag> tags = tagIds.stream()
-                    .map(tagMetaLoader::get)                    // 从内存 Map 拿 DTO
-                    .filter(Objects::nonNull)
-                    .map(dto -> tagRepo
-                            .findByName(dto.getName())         // 先按 name 查
-                            .orElseGet(() -> tagRepo.save(
-                                    Tag.builder()
-                                            .name(dto.getName())
-                                            .build())))
-                    .collect(Collectors.toSet());
-
-            // 5) 构建并返回
-            return ExtOjPbInfo.builder()
-                    .ojName(getOjType())
-                    .pid(pid)
-                    .name(title)
-                    .type("PROGRAMMING")
-                    .points(null)
-                    .url(url)
-                    .tags(tags)
-                    .build();
-
+            // 解析成功后才写入缓存，反爬验证页不会被缓存
+            return httpUtil.readJsoupURLCached(url, cookies, doc -> parseProblem(pid, url, doc));
         } catch (Exception e) {
             logger.error("拉取 Luogu 题目 {} 信息失败", pid, e);
             return null;
         }
     }
 
-    @Transactional
+    /**
+     * 从题目页面内嵌的 lentille-context JSON 构建题目实体，页面缺少该节点（如反爬验证页）时抛出异常
+     */
+    private ExtOjPbInfo parseProblem(String pid, String url, Document doc) {
+        // 1) 取页面并解析 JSON
+        Element ctx = doc.getElementById("lentille-context");
+        if (ctx == null) {
+            throw new RuntimeException("Luogu 题目页缺少 lentille-context，可能是反爬验证页: " + url);
+        }
+        JsonNode problemNode;
+        try {
+            problemNode = new ObjectMapper()
+                    .readTree(ctx.html())
+                    .path("data")
+                    .path("problem");
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析 Luogu 题目 JSON 失败: " + url, e);
+        }
+
+        // 2) 标题优先取 JSON，再 fallback 到 DOM
+        String title = Optional.ofNullable(problemNode.path("title").asText(null))
+                .filter(t -> !t.isEmpty())
+                .orElseGet(() -> Optional.ofNullable(doc.selectFirst(".ttitle"))
+                        .map(Element::text)
+                        .orElse(doc.title()));
+
+        // 3) 拿到题目所有 tag ID
+        List<Integer> tagIds = new ArrayList<>();
+        problemNode.path("tags").forEach(n -> tagIds.add(n.asInt()));
+
+        // 4) 使用 TagMetaLoader 从内存中映射出每个 TagMetaDTO，再从标签字典取（缺失时创建）
+        List<String> tagNames = tagIds.stream()
+                .map(tagMetaLoader::get)                    // 从内存 Map 拿 DTO
+                .filter(Objects::nonNull)
+                .map(TagMetaDTO::getName)
+                .toList();
+        Set<Tag> tags = new HashSet<>(tagDictionary.getOrCreateAll(tagNames).values());
+
+        // 5) 构建并返回
+        return ExtOjPbInfo.builder()
+                .ojName(getOjType())
+                .pid(pid)
+                .name(title)
+                .type("PROGRAMMING")
+                .points(null)
+                .url(url)
+                .tags(tags)
+                .build();
+    }
+
     public List<UserTryProblem> userTryProblems(User user) {
+        return userTryProblems(user, false);
+    }
+
+    /**
+     * 拉取用户的 Luogu 提交记录。
+     * 有游标的 uid 从第 1 页往后翻，遇到已同步过的记录即停止；
+     * 首次同步或 fullSync 时先读第 1 页得到总页数，其余页并发拉取（速率由 HostRateLimiter 约束）。
+     *
+     * @param user     用户
+     * @param fullSync 是否忽略游标全量拉取
+     * @return UserTryProblem 列表
+     */
+    public List<UserTryProblem> userTryProblems(User user, boolean fullSync) {
+        return userTryProblems(List.of(user), fullSync).getOrDefault(user.getId(), Collections.emptyList());
+    }
+
+    /**
+     * 批量拉取一组用户的 Luogu 提交记录。
+     * 多个账号共用的 uid 只拉取一次（有任一账号没有游标时全量，否则翻页到最小游标为止），再按各账号游标过滤；
+     * 整批出现的题目用一次目录解析、一次批量写入。
+     * 无效账号负缓存冷却期内的 uid 直接跳过；非数字的 uid 和接口返回不存在的 uid 记入负缓存。
+     * virtual 模式下各 uid 经 HttpUtil.fanOut 并发拉取，拉取完成后再依次合并。
+     *
+     * @param users    用户（需已加载 OJ 账号）
+     * @param fullSync 是否忽略游标全量拉取
+     * @return userId → UserTryProblem 列表
+     */
+    public Map<Integer, List<UserTryProblem>> userTryProblems(List<User> users, boolean fullSync) {
         // 1. 获取 Luogu 链接配置
-        ExtOjLink link = linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing Luogu link config"));
-        String userInfoTemplate = link.getUserInfoLink();
-        String problemPageTemplate = link.getProblemLink();
-        Map<String, String> cookies = parseCookies(link.getAuthToken());
-
-        // 2. 收集所有 uid
-        List<String> uids = user.getOjAccounts().stream()
-                .filter(uo -> uo.getPlatform() == getOjType())
-                .map(UserOJ::getAccountName)
-                .flatMap(s -> Arrays.stream(s.split("\\s*,\\s*")))
-                .filter(StringUtils::isNotBlank)
-                .toList();
-        if (uids.isEmpty()) {
-            logger.warn("用户 {} 未配置 {} 账号", user.getUsername(), getOjType());
-            return Collections.emptyList();
+        ExtOjLinkRegistry.Links links = linkRegistry.get(getOjType());
+        UrlTemplate userInfoTemplate = links.userInfo();
+        UrlTemplate problemPageTemplate = links.problem();
+        Map<String, String> cookies = links.cookies();
+
+        // 2. 收集整批账号及其 uid，并一次读取增量游标
+        Map<UserOJ, User> accountOwners = new LinkedHashMap<>();
+        for (User user : users) {
+            user.getOjAccounts().stream()
+                    .filter(uo -> uo.getPlatform() == getOjType())
+                    .forEach(uo -> accountOwners.put(uo, user));
+        }
+        // fullSync 时也要读出已有游标：只忽略其位置，提交时更新原行而不是插入重复行
+        Map<String, SyncCursor> cursors = accountOwners.isEmpty()
+                ? Collections.emptyMap()
+                : syncCursorService.cursorsOf(accountOwners.keySet(), getOjType());
+        Map<String, List<UidOwner>> byUid = new LinkedHashMap<>();
+        accountOwners.forEach((account, user) -> {
+            for (String uid : splitUids(account.getAccountName())) {
+                byUid.computeIfAbsent(uid, k -> new ArrayList<>())
+                        .add(new UidOwner(user, account, uid, cursors.get(SyncCursorService.key(account, uid)), fullSync));
+            }
+        });
+        if (byUid.isEmpty()) {
+            logger.warn("{} 位用户均未配置 {} 账号", users.size(), getOjType());
+            return Collections.emptyMap();
         }
 
-        // 3. 拉取所有提交记录（分页）
-        List<JsonNode> allRecs = new ArrayList<>();
-        for (String uid : uids) {
-            int page = 1;
-            while (true) {
-                String url = String.format(userInfoTemplate, uid, page);
-                logger.info("调用 Luogu 用户 AC 接口，url：{}", url);
-                try {
-                    String json = httpUtil.readURL(url, cookies);
-                    JsonNode arr = mapper.readTree(json)
-                            .path("currentData").path("records").path("result");
-                    if (!arr.isArray() || arr.isEmpty()) break;
-                    arr.forEach(allRecs::add);
-                    page++;
-                } catch (IOException e) {
-                    logger.error("获取 Luogu 用户 {} 第 {} 页记录失败", uid, page, e);
-                    break;
+        Map<String, InvalidHandle> invalidUids = invalidHandleService.find(getOjType(), byUid.keySet());
+
+        // 3. 每个 uid 拉取一次（增量翻页或并发全量；virtual 模式下批内各 uid 并发），再依次按各账号的游标分发
+        Map<Integer, List<JsonNode>> recsByUser = new LinkedHashMap<>();
+        Map<String, String> titles = new LinkedHashMap<>();
+        Exception lastError = null;
+        int failures = 0;
+        int invalid = 0;
+        List<String> recovered = new ArrayList<>();
+        Map<String, List<UidOwner>> toFetch = new LinkedHashMap<>();
+        for (Map.Entry<String, List<UidOwner>> e : byUid.entrySet()) {
+            String uid = e.getKey();
+            if (InvalidHandleService.isBlocked(invalidUids.get(uid))) {
+                invalid++;
+            } else if (!uid.chars().allMatch(Character::isDigit)) {
+                invalidHandleService.recordInvalid(getOjType(), uid, "Luogu uid 应为数字");
+                invalid++;
+            } else {
+                toFetch.put(uid, e.getValue());
+            }
+        }
+        Map<String, CompletableFuture<List<JsonNode>>> fetches = httpUtil.fanOut(toFetch.keySet(), uid -> {
+            Long since = sinceOf(toFetch.get(uid));
+            return since == null
+                    ? fetchAllRecords(userInfoTemplate, uid, cookies)
+                    : fetchNewRecords(userInfoTemplate, uid, cookies, since);
+        });
+        for (Map.Entry<String, List<UidOwner>> e : toFetch.entrySet()) {
+            String uid = e.getKey();
+            List<UidOwner> owners = e.getValue();
+            Long since = sinceOf(owners);
+            List<JsonNode> recs;
+            try {
+                recs = fetches.get(uid).join();
+            } catch (RuntimeException ex) {
+                Optional<String> reason = InvalidHandleException.reasonOf(ex);
+                if (reason.isPresent()) {
+                    invalidHandleService.recordInvalid(getOjType(), uid, reason.get());
+                    invalid++;
+                    continue;
                 }
+                logger.error("获取 Luogu 用户 {} 记录失败", uid, ex);
+                lastError = ex;
+                failures++;
+                continue;
+            }
+            if (invalidUids.containsKey(uid)) {
+                recovered.add(uid);
+            }
+            recs.forEach(r -> titles.putIfAbsent(r.path("problem").path("pid").asText(),
+                    r.path("problem").path("title").asText()));
+            recs.stream().max(Comparator.comparingLong(r -> r.path("id").asLong())).ifPresent(newest -> {
+                for (UidOwner o : owners) {
+                    syncCursorService.stage(o.user(), syncCursorService.advance(o.cursor(), o.account(), getOjType(),
+                            uid, newest.path("id").asLong(),
+                            LocalDateTime.ofEpochSecond(newest.path("submitTime").asLong(), 0, ZoneOffset.UTC)));
+                }
+            });
+            for (UidOwner o : owners) {
+                List<JsonNode> mine = o.lastId() == null || o.lastId().equals(since)
+                        ? recs
+                        : recs.stream().filter(r -> r.path("id").asLong() > o.lastId()).toList();
+                recsByUser.computeIfAbsent(o.user().getId(), k -> new ArrayList<>()).addAll(mine);
             }
         }
-        if (allRecs.isEmpty()) {
-            return Collections.emptyList();
+        // 全部 uid 都失败多半是平台不可用，抛出交给熔断器计数
+        if (failures > 0 && failures == byUid.size() - invalid) {
+            throw new RuntimeException("Luogu 全部 " + failures + " 个账号抓取失败", lastError);
+        }
+        invalidHandleService.recordValid(getOjType(), recovered);
+        if (titles.isEmpty()) {
+            return Collections.emptyMap();
         }
 
-        // 4. 收集所有 PID，并批量查询题目信息
-        Set<String> allPids = allRecs.stream()
-                .map(r -> r.path("problem").path("pid").asText())
-                .collect(Collectors.toSet());
-        List<ExtOjPbInfo> existInfos = pbInfoRepo.findAllByOjNameAndPidIn(getOjType(), allPids);
-        Map<String, ExtOjPbInfo> infoMap = existInfos.stream()
-                .collect(Collectors.toMap(ExtOjPbInfo::getPid, Function.identity()));
-
-        List<ExtOjPbInfo> toInsert = new ArrayList<>();
-        List<ExtOjPbInfo> toUpdate = new ArrayList<>();
-        List<UserTryProblem> tries = new ArrayList<>();
-
-        // 5. 构建或更新题目信息，并准备尝试记录
-        for (JsonNode rec : allRecs) {
-            String pid = rec.path("problem").path("pid").asText();
-            String title = rec.path("problem").path("title").asText();
-            long secs = rec.path("submitTime").asLong();
-            LocalDateTime attemptTime = LocalDateTime.ofEpochSecond(secs, 0, ZoneOffset.UTC);
-
-            ExtOjPbInfo info = infoMap.get(pid);
-            if (info == null) {
-                // 新题目：初始化 tags 保持为空
-                info = ExtOjPbInfo.builder()
+        // 4. 整批题目一次解析，库中没有的新题批量写入
+        Map<String, ExtOjPbInfo> infoMap = problemCatalogService.resolve(getOjType(), titles.keySet());
+        List<ProblemCatalogService.Entry> missing = titles.entrySet().stream()
+                .filter(e -> !infoMap.containsKey(e.getKey()))
+                .map(e -> new ProblemCatalogService.Entry(ExtOjPbInfo.builder()
                         .ojName(getOjType())
-                        .pid(pid)
-                        .name(title)
+                        .pid(e.getKey())
+                        .name(e.getValue())
                         .type("PROGRAMMING")
                         .points(null)
-                        .url(String.format(problemPageTemplate, pid))
-                        .tags(new HashSet<>())
-                        .build();
-                toInsert.add(info);
-                infoMap.put(pid, info);
-            } else if (!Objects.equals(info.getName(), title)) {
-                // 题目名称有变化：更新名称，保留原有 tags
-                info.setName(title);
-                toUpdate.add(info);
+                        .url(problemPageTemplate.format(e.getKey()))
+                        .build(), null))
+                .toList();
+        if (!missing.isEmpty()) {
+            infoMap.putAll(problemCatalogService.upsert(getOjType(), missing));
+        }
+
+        // 5. 按用户构造尝试记录
+        Map<Integer, User> usersById = new HashMap<>();
+        users.forEach(u -> usersById.put(u.getId(), u));
+        Map<Integer, List<UserTryProblem>> result = new LinkedHashMap<>();
+        recsByUser.forEach((userId, recs) -> {
+            User user = usersById.get(userId);
+            List<UserTryProblem> tries = new ArrayList<>();
+            for (JsonNode rec : recs) {
+                ExtOjPbInfo info = infoMap.get(rec.path("problem").path("pid").asText());
+                if (info == null) continue;
+                long secs = rec.path("submitTime").asLong();
+                tries.add(UserTryProblem.builder()
+                        .user(user)
+                        .extOjPbInfo(info)
+                        .ojName(getOjType())
+                        .result(ProblemResult.AC)
+                        .attemptTime(LocalDateTime.ofEpochSecond(secs, 0, ZoneOffset.UTC))
+                        .build());
             }
+            logger.info("Luogu 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
+            result.put(userId, tries);
+        });
+        return result;
+    }
+
+    /**
+     * 共用 uid 的账号中最小的游标；有任一账号没有游标时为 null（需要全量拉取）
+     */
+    private static Long sinceOf(List<UidOwner> owners) {
+        return owners.stream().anyMatch(o -> o.lastId() == null)
+                ? null
+                : owners.stream().mapToLong(UidOwner::lastId).min().orElseThrow();
+    }
+
+    /**
+     * 使用某个 uid 的账号及其游标
+     *
+     * @param fullSync 是否忽略游标位置（游标仍用于前移后回写）
+     */
+    private record UidOwner(User user, UserOJ account, String uid, SyncCursor cursor, boolean fullSync) {
+
+        Long lastId() {
+            return cursor == null || fullSync ? null : cursor.getLastSubmissionId();
+        }
+    }
+
+
+    private static List<String> splitUids(String accountName) {
+        if (accountName == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(accountName.split("\\s*,\\s*"))
+                .filter(StringUtils::isNotBlank)
+                .toList();
+    }
+
+    /**
+     * 读取一页记录，返回 currentData.records 节点（含 result、count、perPage）
+     */
+    private JsonNode readRecordPage(UrlTemplate template, String uid, int page, Map<String, String> cookies) throws IOException {
+        String url = template.format(uid, page);
+        logger.info("调用 Luogu 用户 AC 接口，url：{}", url);
+        return parseRecords(httpUtil.readURL(url, cookies));
+    }
 
-            // 构造尝试记录
-            tries.add(UserTryProblem.builder()
-                    .user(user)
-                    .extOjPbInfo(info)
-                    .ojName(getOjType())
-                    .result(ProblemResult.AC)
-                    .attemptTime(attemptTime)
-                    .build());
+    private static JsonNode parseRecords(String json) throws IOException {
+        JsonNode root = mapper.readTree(json);
+        // 用户不存在时返回 code 404 与错误信息，没有 records
+        int code = root.path("code").asInt(200);
+        if (code == 404) {
+            throw new InvalidHandleException(root.path("currentData").path("errorMessage").asText("code " + code));
         }
+        return root.path("currentData").path("records");
+    }
 
-        // 6. 批量保存题目信息
-        if (!toInsert.isEmpty()) {
-            pbInfoRepo.saveAll(toInsert);
+    /**
+     * 全量拉取：先读第 1 页拿到总条数与每页条数，再并发拉取其余页。
+     * 任意一页失败则整个 uid 视为失败，不推进游标。
+     */
+    private List<JsonNode> fetchAllRecords(UrlTemplate template, String uid, Map<String, String> cookies) throws IOException {
+        JsonNode first = readRecordPage(template, uid, 1, cookies);
+        List<JsonNode> recs = new ArrayList<>();
+        first.path("result").forEach(recs::add);
+        if (recs.isEmpty()) {
+            return recs;
+        }
+
+        int count = first.path("count").asInt(0);
+        int perPage = first.path("perPage").asInt(0);
+        if (count <= 0 || perPage <= 0) {
+            // 响应里没有分页信息：退回逐页拉取直到空页
+            for (int page = 2; ; page++) {
+                JsonNode arr = readRecordPage(template, uid, page, cookies).path("result");
+                if (!arr.isArray() || arr.isEmpty()) break;
+                arr.forEach(recs::add);
+            }
+            return recs;
         }
-        if (!toUpdate.isEmpty()) {
-            pbInfoRepo.saveAll(toUpdate);
+
+        int pages = (count + perPage - 1) / perPage;
+        logger.info("Luogu 用户 {} 共 {} 条记录，{} 页，并发拉取", uid, count, pages);
+        List<CompletableFuture<String>> futures = IntStream.rangeClosed(2, pages)
+                .mapToObj(page -> httpUtil.readURLAsync(template.format(uid, page), cookies))
+                .toList();
+        try {
+            for (CompletableFuture<String> future : futures) {
+                parseRecords(future.join()).path("result").forEach(recs::add);
+            }
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IOException("并发拉取 Luogu 用户 " + uid + " 记录失败", e.getCause());
         }
-        logger.info("Luogu 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
-        return tries;
+        return recs;
     }
 
+    /**
+     * 增量拉取：记录按 ID 倒序返回，从第 1 页往后翻，遇到 ID 不大于 lastId 的记录即停止
+     */
+    private List<JsonNode> fetchNewRecords(UrlTemplate template, String uid, Map<String, String> cookies,
+                                           long lastId) throws IOException {
+        List<JsonNode> recs = new ArrayList<>();
+        for (int page = 1; ; page++) {
+            JsonNode arr = readRecordPage(template, uid, page, cookies).path("result");
+            if (!arr.isArray() || arr.isEmpty()) {
+                break;
+            }
+            for (JsonNode rec : arr) {
+                if (rec.path("id").asLong() <= lastId) {
+                    logger.info("Luogu 用户 {} 增量拉取 {} 条新记录，翻页 {} 页", uid, recs.size(), page);
+                    return recs;
+                }
+                recs.add(rec);
+            }
+        }
+        return recs;
+    }
 
     /**
      * 批量获取 Luogu 题目信息
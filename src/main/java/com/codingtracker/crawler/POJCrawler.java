@@ -1,8 +1,12 @@
 package com.codingtracker.crawler;
 
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
+import com.codingtracker.service.InvalidHandleService;
+import com.codingtracker.service.ProblemCatalogService;
+import com.codingtracker.service.ResponseFingerprintService;
+import com.codingtracker.util.UrlTemplate;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -10,13 +14,16 @@ import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * POJCrawler 类（POJ OJ 爬虫），
@@ -28,8 +35,27 @@ public class POJCrawler {
 
     private static final Logger logger = LoggerFactory.getLogger(POJCrawler.class);
 
+    /** 响应指纹中状态页的接口名称 */
+    private static final String STATUS_ENDPOINT = "status";
+
+    /** 状态页对不存在的用户给出的提示（"Sorry,xxx doesn't exist"） */
+    private static final String NO_SUCH_USER = "doesn't exist";
+
+    @Autowired
+    private ExtOjLinkRegistry linkRegistry;
+
+    @Autowired
+    private ProblemCatalogService problemCatalogService;
+
+    @Autowired
+    private ResponseFingerprintService fingerprintService;
+
     @Autowired
-    private ExtOjLinkRepository linkRepo;
+    private InvalidHandleService invalidHandleService;
+
+    /** 并发抓取题目页面的最大在途请求数 */
+    @Value("${crawler.problem-fetch.parallelism:8}")
+    private int fetchParallelism;
 
     @Autowired
     private ExtOjPbInfoRepository pbInfoRepo;
@@ -48,16 +74,25 @@ public class POJCrawler {
      * 拉取或创建单个 POJ 题目信息实体
      */
     private ExtOjPbInfo fetchProblem(String pid) {
-        ExtOjLink link = linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing POJ link config"));
-        String problemUrl = String.format(link.getProblemLink(), pid);
-        logger.info("调用 POJ 题目页面，url：{}", problemUrl);
         try {
-            Document doc = Jsoup.connect(problemUrl)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(10000)
-                    .get();
-            String title = Optional.ofNullable(doc.selectFirst("h1")).map(Element::text).orElse(doc.title());
+            return fetchProblemAsync(pid).join();
+        } catch (Exception e) {
+            logger.error("拉取 POJ 题目 {} 信息失败", pid, e);
+            return null;
+        }
+    }
+
+    /**
+     * 异步抓取 POJ 题目页面并构建题目信息
+     */
+    private CompletableFuture<ExtOjPbInfo> fetchProblemAsync(String pid) {
+        String problemUrl = linkRegistry.get(getOjType()).problem().format(pid);
+        logger.info("调用 POJ 题目页面，url：{}", problemUrl);
+        return httpUtil.readJsoupURLCachedAsync(problemUrl, doc -> {
+            // 题目名称在 .ptt；"Error Occurred" 等错误页没有该节点，不能写入缓存
+            String title = Optional.ofNullable(doc.selectFirst(".ptt, h1"))
+                    .map(Element::text)
+                    .orElseThrow(() -> new RuntimeException("POJ 题目页缺少标题，可能是错误页: " + problemUrl));
             return ExtOjPbInfo.builder()
                     .ojName(getOjType())
                     .pid(pid)
@@ -67,45 +102,87 @@ public class POJCrawler {
                     .url(problemUrl)
                     .tags(Collections.emptySet())
                     .build();
-        } catch (IOException e) {
-            logger.error("拉取 POJ 题目 {} 信息失败", pid, e);
-            return null;
-        }
+        });
     }
 
     /**
-     * 获取指定用户的所有尝试记录（含 Accepted），映射为 UserTryProblem 列表
+     * 获取某用户的所有尝试记录（含 Accepted），映射为 UserTryProblem 列表
      */
     public List<UserTryProblem> userTryProblems(User user) {
-        ExtOjLink link = linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing POJ link config"));
-        String statusTpl = link.getUserInfoLink(); // e.g. "http://poj.org/status?user_id=%s"
-
-        // 收集用户所有 POJ 账号
-        List<String> handles = user.getOjAccounts().stream()
-                .filter(uo -> uo.getPlatform() == getOjType())
-                .map(UserOJ::getAccountName)
-                .collect(Collectors.toList());
-        if (handles.isEmpty()) {
-            logger.warn("用户 {} 未配置 POJ 账号", user.getUsername());
-            return Collections.emptyList();
+        return userTryProblems(List.of(user), false).getOrDefault(user.getId(), Collections.emptyList());
+    }
+
+    /**
+     * 批量获取一组用户的尝试记录（含 Accepted）。
+     * 多个用户共用的账号只抓取一次状态页；整批收集到的 pid 合并后一次解析，库中没有的题目一起抓取、一次写入。
+     * 状态页与上次成功同步时的响应指纹相同时跳过该账号，不再解析页面和写入记录。
+     * 无效账号负缓存冷却期内的账号直接跳过；状态页明确提示用户不存在时记入负缓存，其他缺少表格的页面按失败处理。
+     *
+     * @param users    用户（需已加载 OJ 账号）
+     * @param fullSync 是否强制全量同步（忽略响应指纹）
+     * @return userId → UserTryProblem 列表
+     */
+    public Map<Integer, List<UserTryProblem>> userTryProblems(List<User> users, boolean fullSync) {
+        UrlTemplate statusTpl = linkRegistry.get(getOjType()).userInfo(); // e.g. "http://poj.org/status?user_id=%s"
+
+        // 账号 → 使用它的用户
+        Map<String, List<User>> byHandle = new LinkedHashMap<>();
+        for (User user : users) {
+            user.getOjAccounts().stream()
+                    .filter(uo -> uo.getPlatform() == getOjType())
+                    .map(UserOJ::getAccountName)
+                    .distinct()
+                    .forEach(h -> byHandle.computeIfAbsent(h, k -> new ArrayList<>()).add(user));
+        }
+        if (byHandle.isEmpty()) {
+            logger.warn("{} 位用户均未配置 {} 账号", users.size(), getOjType());
+            return Collections.emptyMap();
         }
 
-        List<UserTryProblem> tries = new ArrayList<>();
-        for (String handle : handles) {
-            String url = String.format(statusTpl, handle);
+        Map<String, InvalidHandle> invalidHandles = invalidHandleService.find(getOjType(), byHandle.keySet());
+        Map<String, ResponseFingerprint> fingerprints = fullSync
+                ? Collections.emptyMap()
+                : fingerprintService.find(getOjType(), STATUS_ENDPOINT, 1, byHandle.keySet());
+
+        // 1. 每个账号解析一次状态页的 Accepted 行，按用户收集 pid
+        Map<Integer, List<String>> acPidsByUser = new LinkedHashMap<>();
+        Set<String> allPids = new LinkedHashSet<>();
+        RuntimeException lastError = null;
+        int failures = 0;
+        int unchanged = 0;
+        int invalid = 0;
+        List<String> recovered = new ArrayList<>();
+        for (Map.Entry<String, List<User>> e : byHandle.entrySet()) {
+            String handle = e.getKey();
+            if (InvalidHandleService.isBlocked(invalidHandles.get(handle))) {
+                invalid++;
+                continue;
+            }
+            String url = statusTpl.format(handle);
             logger.info("调用 POJ 用户状态页面，url：{}", url);
+            List<String> acPids = new ArrayList<>();
             try {
-                Document doc = Jsoup.connect(url)
-                        .userAgent("Mozilla/5.0")
-                        .timeout(10000)
-                        .get();
+                byte[] body = httpUtil.readStream(url, InputStream::readAllBytes);
+                ResponseFingerprintService.Fingerprint fp = ResponseFingerprintService.Fingerprint.of(body);
+                if (fp.matches(fingerprints.get(handle))) {
+                    unchanged++;
+                    continue;
+                }
+                // charset 交给 Jsoup 按 BOM / meta 识别
+                Document doc = Jsoup.parse(new ByteArrayInputStream(body), null, url);
                 Element table = doc.selectFirst("table.a");
                 if (table == null) {
-                    logger.warn("用户 {} 的提交记录表格未找到", handle);
-                    continue;
+                    // 只有明确的"用户不存在"提示才记为无效账号；维护页、反爬页、截断页同样没有表格，按可重试失败处理
+                    if (doc.text().contains(NO_SUCH_USER)) {
+                        throw new InvalidHandleException("POJ 提示用户不存在");
+                    }
+                    throw new IOException("POJ 状态页没有提交记录表格: " + url);
                 }
                 Elements rows = table.select("tr");
+                ResponseFingerprintService.Fingerprint staged = fp.withFirstSubmissionId(firstRunId(rows));
+                for (User user : e.getValue()) {
+                    fingerprintService.stage(user, getOjType(), handle, STATUS_ENDPOINT, 1, staged);
+                }
                 for (Element row : rows) {
                     Elements cols = row.select("td");
                     if (cols.size() >= 9) {
@@ -113,28 +190,96 @@ public class POJCrawler {
                         String verdict = cols.get(3).text().trim();
                         // 只记录 AC
                         if (!"Accepted".equalsIgnoreCase(verdict)) continue;
-                        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
-                        ExtOjPbInfo info = pbInfoRepo.findByOjNameAndPid(getOjType(), pid)
-                                .orElseGet(() -> {
-                                    ExtOjPbInfo p = fetchProblem(pid);
-                                    return (p != null) ? pbInfoRepo.save(p) : null;
-                                });
-                        if (info == null) continue;
-                        tries.add(UserTryProblem.builder()
-                                .user(user)
-                                .extOjPbInfo(info)
-                                .ojName(getOjType())
-                                .result(ProblemResult.AC)
-                                .attemptTime(now)
-                                .build());
+                        acPids.add(pid);
                     }
                 }
-            } catch (IOException e) {
-                logger.error("获取 POJ 用户 {} 提交记录失败", handle, e);
+            } catch (Exception ex) {
+                Optional<String> reason = InvalidHandleException.reasonOf(ex);
+                if (reason.isPresent()) {
+                    invalidHandleService.recordInvalid(getOjType(), handle, reason.get());
+                    invalid++;
+                    continue;
+                }
+                logger.error("获取 POJ 用户 {} 提交记录失败", handle, ex);
+                lastError = ex instanceof RuntimeException re ? re : new RuntimeException(ex);
+                failures++;
+                continue;
+            }
+            if (invalidHandles.containsKey(handle)) {
+                recovered.add(handle);
             }
+            allPids.addAll(acPids);
+            for (User user : e.getValue()) {
+                acPidsByUser.computeIfAbsent(user.getId(), k -> new ArrayList<>()).addAll(acPids);
+            }
+        }
+        // 全部账号都失败多半是平台不可用，抛出交给熔断器计数
+        if (failures > 0 && failures == byHandle.size() - invalid) {
+            throw new RuntimeException("POJ 全部 " + failures + " 个账号抓取失败", lastError);
+        }
+        invalidHandleService.recordValid(getOjType(), recovered);
+        if (unchanged > 0) {
+            logger.info("POJ {} 个账号状态页与上次响应指纹相同，跳过解析", unchanged);
+        }
+        if (allPids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // 2. 整批题目一次解析
+        Map<String, ExtOjPbInfo> infos = resolveProblems(allPids);
+
+        // 3. 按用户构造 UserTryProblem
+        Map<Integer, User> usersById = new HashMap<>();
+        users.forEach(u -> usersById.put(u.getId(), u));
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        Map<Integer, List<UserTryProblem>> result = new LinkedHashMap<>();
+        acPidsByUser.forEach((userId, acPids) -> {
+            User user = usersById.get(userId);
+            List<UserTryProblem> tries = new ArrayList<>();
+            for (String pid : acPids) {
+                ExtOjPbInfo info = infos.get(pid);
+                if (info == null) continue;
+                tries.add(UserTryProblem.builder()
+                        .user(user)
+                        .extOjPbInfo(info)
+                        .ojName(getOjType())
+                        .result(ProblemResult.AC)
+                        .attemptTime(now)
+                        .build());
+            }
+            logger.info("POJ 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
+            result.put(userId, tries);
+        });
+        return result;
+    }
+
+    /**
+     * 状态页第一行（最新一条提交）的 Run ID，表头行跳过，解析不到时返回 null
+     */
+    private static Long firstRunId(Elements rows) {
+        for (Element row : rows) {
+            Elements cols = row.select("td");
+            if (!cols.isEmpty() && cols.get(0).text().trim().matches("\\d+")) {
+                return Long.parseLong(cols.get(0).text().trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 先查题目索引和一次 IN 查询，库中没有的题目并发抓取页面后一次批量写入
+     */
+    private Map<String, ExtOjPbInfo> resolveProblems(Set<String> pids) {
+        Map<String, ExtOjPbInfo> infos = problemCatalogService.resolve(getOjType(), pids);
+        List<String> missing = pids.stream().filter(pid -> !infos.containsKey(pid)).toList();
+        if (!missing.isEmpty()) {
+            logger.info("POJ 有 {} 道题不在库中，并发抓取题目页面", missing.size());
+            Map<String, ExtOjPbInfo> fetched = httpUtil.fetchAll(missing, this::fetchProblemAsync, fetchParallelism);
+            infos.putAll(problemCatalogService.upsert(getOjType(), fetched.values().stream()
+                    .map(info -> new ProblemCatalogService.Entry(info, null))
+                    .toList()));
         }
-        logger.info("POJ 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
-        return tries;
+        return infos;
     }
 
     /**
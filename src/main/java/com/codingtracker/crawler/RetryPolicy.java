@@ -0,0 +1,57 @@
+package com.codingtracker.crawler;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 爬虫重试策略：失败分类、退避时长、重试预算以及对冲请求（hedging）
+ */
+public interface RetryPolicy {
+
+    /**
+     * 对一次失败进行分类
+     *
+     * @param error 失败原因（已解开 CompletionException 包装）
+     * @return 失败类型
+     */
+    FailureType classify(Throwable error);
+
+    /**
+     * 第 attempt 次失败后是否还应重试；返回 true 时会消耗一次重试预算
+     *
+     * @param type    失败类型
+     * @param attempt 已经执行的次数（从 1 开始）
+     * @return 是否重试
+     */
+    boolean shouldRetry(FailureType type, int attempt);
+
+    /**
+     * 第 attempt 次失败后的退避时长（已加随机抖动）
+     *
+     * @param type    失败类型
+     * @param attempt 已经执行的次数（从 1 开始）
+     * @return 退避毫秒数
+     */
+    long backoffMillis(FailureType type, int attempt);
+
+    /**
+     * 对该地址是否发起对冲请求，以及主请求发出多久后发起
+     *
+     * @param url 请求地址
+     * @return 对冲延迟；为空表示不对冲
+     */
+    Optional<Duration> hedgeDelay(String url);
+
+    /**
+     * 记录一次成功请求的耗时，用于计算对冲延迟
+     *
+     * @param url         请求地址
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    void recordLatency(String url, long elapsedNanos);
+
+    /**
+     * 立即补满重试预算并开始新的预算窗口，每次重建开始时调用
+     */
+    void resetBudget();
+}
@@ -0,0 +1,60 @@
+package com.codingtracker.dto;
+
+import com.codingtracker.model.CrawlJob;
+import com.codingtracker.model.OJPlatform;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 重建任务进度
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrawlJobProgressDTO {
+    /** 任务 ID */
+    private String jobId;
+    /** 任务状态 */
+    private CrawlJob.Status status;
+    /** 是否全量重建 */
+    private boolean fullSync;
+    /** 发起人 */
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    /** 全部平台合计 */
+    private Progress total;
+    /** 各平台进度 */
+    private List<Progress> platforms;
+
+    /**
+     * 单个平台（或合计）的进度
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Progress {
+        /** 平台，合计时为 null */
+        private OJPlatform platform;
+        /** 单元总数 */
+        private long totalUnits;
+        /** 已完成单元数 */
+        private long doneUnits;
+        /** 失败单元数 */
+        private long failedUnits;
+        /** 已取消单元数 */
+        private long cancelledUnits;
+        /** 执行中单元数 */
+        private long runningUnits;
+        /** 新增记录数 */
+        private long insertedRows;
+        /** 自任务开始的平均写入速度（条/秒） */
+        private double rowsPerSecond;
+        /** 按自任务开始的单元完成速度估算的剩余秒数，无法估算时为 null */
+        private Long etaSeconds;
+    }
+}
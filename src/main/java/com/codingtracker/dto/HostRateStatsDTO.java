@@ -0,0 +1,33 @@
+package com.codingtracker.dto;
+
+import com.codingtracker.model.OJPlatform;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个 host 的限流统计信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HostRateStatsDTO {
+    /** 请求的 host */
+    private String host;
+    /** 对应的 OJ 平台 */
+    private OJPlatform platform;
+    /** 当前自适应速率（次/秒） */
+    private double currentRate;
+    /** 配置的最大速率（次/秒） */
+    private double maxRate;
+    /** 已放行的请求数 */
+    private long requests;
+    /** 被上游限流（429/503/Call limit exceeded）的次数 */
+    private long throttled;
+    /** 当前排队等待令牌的请求数 */
+    private long waiting;
+    /** 平均排队等待时间（毫秒） */
+    private double avgWaitMillis;
+    /** 最长排队等待时间（毫秒） */
+    private long maxWaitMillis;
+}
@@ -1,9 +1,14 @@
 package com.codingtracker.dto;
 
+import com.codingtracker.model.InvalidHandle;
 import com.codingtracker.model.UserOJ;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
 @Getter
 @Setter
 public class UserOJDTO {
@@ -11,10 +16,31 @@ public class UserOJDTO {
     private String username;
     private String accountName;
 
+    /** 无效账号负缓存中的 handle，为空表示账号正常 */
+    private List<String> invalidHandles;
+    /** 最近一次判定无效的原因 */
+    private String invalidReason;
+    /** 冷却结束、下次重新尝试同步的时间 */
+    private LocalDateTime retryAfter;
+
     // 构造函数
     public UserOJDTO(UserOJ userOJ) {
+        this(userOJ, List.of());
+    }
+
+    /**
+     * @param invalid 该账号各 handle 在负缓存中的记录
+     */
+    public UserOJDTO(UserOJ userOJ, List<InvalidHandle> invalid) {
         this.username = userOJ.getUser().getUsername();
         this.platform = userOJ.getPlatform().toString();
         this.accountName = userOJ.getAccountName();
+        this.invalidHandles = invalid.stream().map(InvalidHandle::getHandle).toList();
+        invalid.stream()
+                .max(Comparator.comparing(InvalidHandle::getLastFailedAt))
+                .ifPresent(latest -> {
+                    this.invalidReason = latest.getReason();
+                    this.retryAfter = latest.getRetryAfter();
+                });
     }
 }
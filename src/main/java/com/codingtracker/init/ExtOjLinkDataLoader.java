@@ -3,35 +3,74 @@ package com.codingtracker.init;
 import com.codingtracker.model.ExtOjLink;
 import com.codingtracker.model.OJPlatform;
 import com.codingtracker.repository.ExtOjLinkRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 加载 oj_links.json 到数据库并发布到 ExtOjLinkRegistry。
+ * 工作目录下存在外部 oj_links.json（路径由 crawler.links.file 配置）时优先使用它，
+ * 并监听该文件，修改后自动重新加载；否则使用 classpath 中的默认配置。
+ */
 @Component
 public class ExtOjLinkDataLoader {
 
     private static final Logger log = LoggerFactory.getLogger(ExtOjLinkDataLoader.class);
     private final ExtOjLinkRepository repository;
     private final ObjectMapper objectMapper;
+    private final ExtOjLinkRegistry registry;
+    private final Path externalFile;
 
-    public ExtOjLinkDataLoader(ExtOjLinkRepository repository, ObjectMapper objectMapper) {
+    private WatchService watchService;
+
+    public ExtOjLinkDataLoader(ExtOjLinkRepository repository,
+                               ObjectMapper objectMapper,
+                               ExtOjLinkRegistry registry,
+                               @Value("${crawler.links.file:oj_links.json}") String externalFile) {
         this.repository = repository;
         this.objectMapper = objectMapper;
+        this.registry = registry;
+        this.externalFile = Paths.get(externalFile).toAbsolutePath();
     }
 
     @PostConstruct
     public void init() throws Exception {
-        InputStream is = getClass().getClassLoader().getResourceAsStream("oj_links.json");
+        reload();
+        watchExternalFile();
+    }
 
-        Map<String, ExtOjLinkDTO> map = objectMapper.readValue(is, new TypeReference<>() {});
+    /**
+     * 重新读取 oj_links.json，写库并发布到注册表
+     *
+     * @return 加载的平台配置
+     */
+    public synchronized List<ExtOjLink> reload() throws IOException {
+        Map<String, ExtOjLinkDTO> map;
+        if (Files.isRegularFile(externalFile)) {
+            log.info("load oj links from {}", externalFile);
+            try (InputStream is = Files.newInputStream(externalFile)) {
+                map = objectMapper.readValue(is, new TypeReference<>() {});
+            }
+        } else {
+            try (InputStream is = getClass().getClassLoader().getResourceAsStream("oj_links.json")) {
+                map = objectMapper.readValue(is, new TypeReference<>() {});
+            }
+        }
 
+        List<ExtOjLink> links = new ArrayList<>();
         for (Map.Entry<String, ExtOjLinkDTO> entry : map.entrySet()) {
             ExtOjLinkDTO dto = entry.getValue();
 
@@ -41,13 +80,71 @@ public class ExtOjLinkDataLoader {
                     .indexLink(dto.indexLink)
                     .userInfoLink(dto.userInfoLink)
                     .pbStatusLink(dto.pbStatusLink)
+                    .contestStatusLink(dto.contestStatusLink)
                     .problemLink(dto.problemLink)
                     .loginLink(dto.loginLink)
                     .authToken(dto.authToken)
                     .build();
+            links.add(entity);
+        }
+        repository.saveAll(links);
+        log.info("saved {} oj links", links.size());
+        registry.publish(links);
+        return links;
+    }
+
+    /**
+     * 监听外部配置文件所在目录，文件被修改或新建时重新加载
+     */
+    private void watchExternalFile() {
+        Path dir = externalFile.getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("无法监听 {}，oj 链接配置只能通过接口重新加载", externalFile, e);
+            return;
+        }
+        Thread watcher = new Thread(this::watchLoop, "oj-links-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("watching {} for oj link changes", externalFile);
+    }
+
+    private void watchLoop() {
+        Path fileName = externalFile.getFileName();
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean changed = key.pollEvents().stream()
+                    .anyMatch(ev -> fileName.equals(ev.context()));
+            key.reset();
+            if (!changed) {
+                continue;
+            }
+            try {
+                // 编辑器保存时可能连续触发多次事件，稍等文件写完
+                Thread.sleep(200);
+                reload();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("重新加载 {} 失败，继续使用旧配置", externalFile, e);
+            }
+        }
+    }
 
-            repository.save(entity);
-            log.info("saved oj link {}", entity);
+    @PreDestroy
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
         }
     }
 
@@ -55,6 +152,7 @@ public class ExtOjLinkDataLoader {
         public String indexLink;
         public String userInfoLink;
         public String pbStatusLink;
+        public String contestStatusLink;
         public String problemLink;
         public String loginLink;
         public String authToken;
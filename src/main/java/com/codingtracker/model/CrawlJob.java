@@ -0,0 +1,63 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次重建任务，拆分为同一 batch_id 下的若干 CrawlUnit。
+ * 任务持久化在库中，实例重启后按剩余单元继续执行。
+ * active 在任务运行时为 TRUE，结束后置为 NULL，借助唯一约束保证所有实例中同时只有一个运行中的任务。
+ */
+@Entity
+@Table(name = "crawl_job",
+        uniqueConstraints = @UniqueConstraint(name = "uk_crawl_job_active", columnNames = "active"),
+        indexes = @Index(name = "idx_crawl_job_status", columnList = "status"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class CrawlJob {
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        RUNNING,
+        DONE,
+        CANCELLED
+    }
+
+    /** 即单元的 batch_id */
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    /** 运行中为 TRUE，结束后为 NULL */
+    private Boolean active;
+
+    /** 是否全量重建 */
+    @Column(name = "full_sync", nullable = false)
+    private boolean fullSync;
+
+    /** 入队的单元数，入队完成前为 null */
+    @Column(name = "total_units")
+    private Integer totalUnits;
+
+    /** 发起人 */
+    @Column(name = "created_by", length = 64)
+    private String createdBy;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,112 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 可租约的抓取单元：一个 (用户, 平台) 的同步任务。
+ * 多个实例通过 SELECT ... FOR UPDATE SKIP LOCKED 认领单元并定期续约，实例崩溃后租约过期，单元由其他实例接手。
+ * active 在单元待执行或执行中时为 TRUE，结束后置为 NULL，
+ * 借助唯一约束保证同一 (用户, 平台) 同时只有一个未完成的单元。
+ * 每个完成的单元即一个检查点，重建中断后只需执行剩余单元。
+ */
+@Entity
+@Table(name = "crawl_unit",
+        uniqueConstraints = @UniqueConstraint(name = "uk_crawl_unit_active",
+                columnNames = {"user_id", "platform", "active"}),
+        indexes = {
+                @Index(name = "idx_crawl_unit_status_lease", columnList = "active, status, lease_until"),
+                @Index(name = "idx_crawl_unit_batch", columnList = "batch_id, active"),
+                @Index(name = "idx_crawl_unit_finished", columnList = "active, finished_at")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class CrawlUnit {
+
+    /**
+     * 单元状态
+     */
+    public enum Status {
+        PENDING,
+        LEASED,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * 单元来源
+     */
+    public enum Kind {
+        /** 手动重建 */
+        REBUILD,
+        /** 定时调度 */
+        SCHEDULED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** 所属批次，同一次重建的单元共用一个批次 ID */
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OJPlatform platform;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    /** 是否忽略增量游标全量拉取 */
+    @Column(name = "full_sync", nullable = false)
+    private boolean fullSync;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    /** 未完成时为 TRUE，完成后为 NULL */
+    private Boolean active;
+
+    /** 持有租约的实例 */
+    @Column(length = 128)
+    private String owner;
+
+    /** 租约到期时间（数据库时钟） */
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    /** 已认领次数 */
+    private int attempts;
+
+    /** 最近一次开始执行的时间（数据库时钟） */
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    /** 完成时记录的抓取条数 */
+    private Long fetched;
+
+    /** 完成时记录的新增条数 */
+    private Long inserted;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -32,6 +32,10 @@ public class ExtOjLink implements Serializable {
     @Column(length = 1024)
     private String pbStatusLink;
 
+    /** 获取整场比赛提交记录的链接模板（Codeforces contest.status） */
+    @Column(length = 1024)
+    private String contestStatusLink;
+
     /** 获取题目详情的链接模板 */
     @Column(length = 1024)
     private String problemLink;
@@ -11,7 +11,12 @@ import java.util.Set;
  * 外部 OJ 题目信息实体，保存题目基础元数据和标签
  */
 @Entity
-@Table(name = "extoj_pb_info")
+@Table(
+        name = "extoj_pb_info",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_pb_oj_pid", columnNames = {"oj_name", "pid"})
+        }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -41,15 +46,27 @@ public class ExtOjPbInfo implements Serializable {
     /** 题目分值 */
     private Double points;
 
+    /** 题目难度（Codeforces rating），未知为 null */
+    private Integer rating;
+
     /** 题目链接 URL */
     @Column(length = 256)
     private String url;
 
+    /** 名称、类型、分值、难度和链接的哈希，目录合并时据此跳过未变化的题目 */
+    @Column(name = "content_hash")
+    private Long contentHash;
+
+    /** 标签的哈希，标签从未写入过时为 null */
+    @Column(name = "tag_hash")
+    private Long tagHash;
+
     /**
-     * 题目标签，通过中间表 problem_tags 关联到 tag 表
+     * 题目标签，通过中间表 problem_tags 关联到 tag 表。
+     * 标签统一由 TagDictionary 预先创建，这里只引用，不级联 persist
      */
     @ManyToMany(fetch = FetchType.LAZY,
-            cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+            cascade = {CascadeType.MERGE})
     @JoinTable(
             name = "problem_tags",
             joinColumns = @JoinColumn(name = "problem_id"),
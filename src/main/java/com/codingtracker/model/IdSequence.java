@@ -0,0 +1,28 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * 批量写入使用的主键号段表：每行一个序列，next_val 为下一个可用 ID。
+ * 由 JDBC 按块原子推进（LAST_INSERT_ID），不经过 Hibernate 的序列优化器
+ */
+@Entity
+@Table(name = "id_sequence")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class IdSequence {
+
+    /** 序列名，通常为表名 */
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /** 下一个可用 ID */
+    @Column(name = "next_val", nullable = false)
+    private long nextVal;
+}
@@ -0,0 +1,50 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 无效账号负缓存：某平台上确认不存在或格式非法的 handle。
+ * 在 retryAfter 之前同步时直接跳过，连续确认无效时冷却时间指数增长
+ */
+@Entity
+@Table(name = "invalid_handle",
+        uniqueConstraints = @UniqueConstraint(name = "uk_invalid_handle", columnNames = {"platform", "handle"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class InvalidHandle {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** OJ 平台 */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private OJPlatform platform;
+
+    /** 账号中的单个 handle（Codeforces 不区分大小写，存小写） */
+    @Column(nullable = false, length = 64)
+    private String handle;
+
+    /** 最近一次判定无效的原因 */
+    @Column(length = 255)
+    private String reason;
+
+    /** 连续判定无效的次数 */
+    @Column(nullable = false)
+    private int failures;
+
+    @Column(name = "last_failed_at")
+    private LocalDateTime lastFailedAt;
+
+    /** 冷却截止时间，之前不再请求该 handle */
+    @Column(name = "retry_after", nullable = false)
+    private LocalDateTime retryAfter;
+}
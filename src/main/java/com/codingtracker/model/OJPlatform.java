@@ -13,10 +13,10 @@ public enum OJPlatform {
     CODEFORCES("codeforces", "cf", "codeforces.com"),      // Codeforces 平台
     VIRTUAL_JUDGE("vjudge", "vjudge.com"),                   // Virtual Judge 平台
     BEE_CROWD("beecrowd", "uri", "beecrowd.com"),            // Beecrowd 平台（原 URI OJ）
-    HDU("hdu", "hdu.ac.cn"),                                // 杭电 OJ (HDU)
+    HDU("hdu", "hdu.ac.cn", "hdu.edu.cn"),                  // 杭电 OJ (HDU)
     POJ("poj", "poj.org"),                                  // 北京大学 OJ (POJ)
     LEETCODE("leetcode", "leetcode.cn"),                    // 力扣中国站 (leetcode.cn)
-    LUOGU("luogu", "luogu.org"),                            // 洛谷平台
+    LUOGU("luogu", "luogu.org", "luogu.com.cn"),            // 洛谷平台
     ATCODER("atcoder", "atcoder.jp"),                       // AtCoder 平台（日本）
     CODECHEF("codechef", "codechef.com"),                  // CodeChef 平台
     TOPCODER("topcoder", "topcoder.com"),                   // TopCoder 平台
@@ -51,4 +51,21 @@ public enum OJPlatform {
         }
         return UNKNOWN;  // 如果没有匹配的名称，返回 UNKNOWN
     }
+
+    // 根据请求的 host 获取枚举值（匹配别名中的域名，例如 acm.hdu.edu.cn -> HDU）
+    public static OJPlatform fromHost(String host) {
+        if (host == null) {
+            return UNKNOWN;
+        }
+        String h = host.toLowerCase();
+        for (OJPlatform platform : OJPlatform.values()) {
+            for (String name : platform.getNames()) {
+                if (name.contains(".") && !name.contains("/")
+                        && (h.equals(name) || h.endsWith("." + name))) {
+                    return platform;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
 }
@@ -0,0 +1,59 @@
+package com.codingtracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 响应指纹：某个 handle 在某个接口某一页上次成功同步时的响应摘要。
+ * 再次抓取到的响应与指纹一致时说明没有新提交，跳过解析和写库
+ */
+@Entity
+@Table(name = "response_fingerprint",
+        uniqueConstraints = @UniqueConstraint(name = "uk_fingerprint_page",
+                columnNames = {"platform", "handle", "endpoint", "page"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class ResponseFingerprint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** OJ 平台 */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private OJPlatform platform;
+
+    /** 账号中的单个 handle */
+    @Column(nullable = false, length = 64)
+    private String handle;
+
+    /** 接口名，如 user.status */
+    @Column(nullable = false, length = 32)
+    private String endpoint;
+
+    /** 页码，从 1 开始 */
+    @Column(nullable = false)
+    private int page;
+
+    /** 响应体 SHA-256（十六进制） */
+    @Column(nullable = false, length = 64)
+    private String digest;
+
+    /** 响应体字节数 */
+    @Column(name = "body_length", nullable = false)
+    private long bodyLength;
+
+    /** 该页第一条（最新）提交的 ID，页面为空或无法解析时为 null */
+    @Column(name = "first_submission_id")
+    private Long firstSubmissionId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
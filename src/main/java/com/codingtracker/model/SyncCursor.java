@@ -0,0 +1,55 @@
+package com.codingtracker.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * 增量同步游标：记录某个 OJ 账号（UserOJ 中的单个 handle）上次同步到的最新提交，
+ * 下次增量同步只拉取比它更新的提交
+ */
+@Entity
+@Table(name = "sync_cursor",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cursor_account_handle",
+                columnNames = {"user_oj_id", "platform", "handle"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString(exclude = "userOj")
+public class SyncCursor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** 关联的 OJ 账号，账号删除时游标一并删除 */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_oj_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JsonIgnore
+    private UserOJ userOj;
+
+    /** OJ 平台 */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OJPlatform platform;
+
+    /** 账号中的单个 handle（accountName 可用逗号分隔多个） */
+    @Column(nullable = false)
+    private String handle;
+
+    /** 已同步的最新提交 ID */
+    private Long lastSubmissionId;
+
+    /** 已同步的最新提交时间 */
+    private LocalDateTime lastSubmissionTime;
+
+    /** 游标更新时间 */
+    private LocalDateTime updatedAt;
+}
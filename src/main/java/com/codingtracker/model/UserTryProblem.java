@@ -30,9 +30,8 @@ import java.util.Objects;
 @Builder
 @ToString
 public class UserTryProblem implements Serializable, Comparable<UserTryProblem> {
+    /** 主键由 TryBulkWriter 从 id_sequence 按块分配，不由 JPA 生成 */
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "utp_seq")
-    @SequenceGenerator(name = "utp_seq", sequenceName = "utp_seq", allocationSize = 50)
     private Long id;
 
     /** 关联的用户 */
@@ -0,0 +1,38 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.CrawlJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 重建任务仓库
+ */
+@Repository
+public interface CrawlJobRepository extends JpaRepository<CrawlJob, String> {
+
+    boolean existsByStatus(CrawlJob.Status status);
+
+    List<CrawlJob> findByStatus(CrawlJob.Status status);
+
+    Optional<CrawlJob> findFirstByOrderByCreatedAtDesc();
+
+    // 仅当任务仍在运行时结束它，多个实例并发调用也只有一个成功
+    @Modifying
+    @Query("UPDATE CrawlJob j SET j.status = :to, j.active = NULL, j.finishedAt = :time " +
+            "WHERE j.id = :id AND j.status = :running")
+    int finishIfRunning(@Param("id") String id,
+                        @Param("to") CrawlJob.Status to,
+                        @Param("time") LocalDateTime time,
+                        @Param("running") CrawlJob.Status running);
+
+    @Modifying
+    @Query("UPDATE CrawlJob j SET j.totalUnits = :total WHERE j.id = :id")
+    int updateTotalUnits(@Param("id") String id, @Param("total") Integer total);
+}
@@ -0,0 +1,17 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.CrawlUnit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 抓取单元仓库，认领、续约等并发操作见 CrawlLeaseService
+ */
+@Repository
+public interface CrawlUnitRepository extends JpaRepository<CrawlUnit, Long> {
+
+    /**
+     * 某批次中未完成的单元数
+     */
+    long countByBatchIdAndActiveTrue(String batchId);
+}
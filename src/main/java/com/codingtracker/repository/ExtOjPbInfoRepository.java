@@ -3,8 +3,11 @@ package com.codingtracker.repository;
 import com.codingtracker.model.ExtOjPbInfo;
 import com.codingtracker.model.OJPlatform;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -30,5 +33,21 @@ public interface ExtOjPbInfoRepository extends JpaRepository<ExtOjPbInfo, Long>
 
     List<ExtOjPbInfo> findByOjNameAndPidIn(OJPlatform ojType, Set<String> allPids);
 
-    List<ExtOjPbInfo> findByOjNameAndPidInWithTags(OJPlatform ojType, Set<String> allPids);
+    /**
+     * 按平台 + PID 批量查询题目，并一次性抓取其标签
+     */
+    @Query("select distinct p from ExtOjPbInfo p left join fetch p.tags where p.ojName = :ojName and p.pid in :pids")
+    List<ExtOjPbInfo> findByOjNameAndPidInWithTags(@Param("ojName") OJPlatform ojType, @Param("pids") Set<String> allPids);
+
+    /**
+     * 查询某平台全部题目的 (pid, id)，用于构建内存索引
+     */
+    @Query("select p.pid, p.id from ExtOjPbInfo p where p.ojName = :ojName")
+    List<Object[]> findPidAndIdByOjName(@Param("ojName") OJPlatform ojName);
+
+    /**
+     * 查询指定 PID 的 (pid, id)
+     */
+    @Query("select p.pid, p.id from ExtOjPbInfo p where p.ojName = :ojName and p.pid in :pids")
+    List<Object[]> findPidAndIdByOjNameAndPidIn(@Param("ojName") OJPlatform ojName, @Param("pids") Collection<String> pids);
 }
@@ -0,0 +1,33 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.InvalidHandle;
+import com.codingtracker.model.OJPlatform;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 无效账号负缓存仓库
+ */
+@Repository
+public interface InvalidHandleRepository extends JpaRepository<InvalidHandle, Long> {
+
+    Optional<InvalidHandle> findByPlatformAndHandle(OJPlatform platform, String handle);
+
+    /**
+     * 查询一批 handle 在某平台上的负缓存记录
+     */
+    List<InvalidHandle> findByPlatformAndHandleIn(OJPlatform platform, Collection<String> handles);
+
+    /**
+     * 删除一批已恢复正常的 handle
+     */
+    @Modifying
+    @Transactional
+    void deleteByPlatformAndHandleIn(OJPlatform platform, Collection<String> handles);
+}
@@ -0,0 +1,22 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.ResponseFingerprint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 响应指纹仓库，写入见 ResponseFingerprintService
+ */
+@Repository
+public interface ResponseFingerprintRepository extends JpaRepository<ResponseFingerprint, Long> {
+
+    /**
+     * 查询一批 handle 在某接口某页上的指纹
+     */
+    List<ResponseFingerprint> findByPlatformAndEndpointAndPageAndHandleIn(OJPlatform platform, String endpoint,
+                                                                          int page, Collection<String> handles);
+}
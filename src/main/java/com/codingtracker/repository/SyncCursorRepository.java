@@ -0,0 +1,22 @@
+package com.codingtracker.repository;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.SyncCursor;
+import com.codingtracker.model.UserOJ;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 增量同步游标仓库
+ */
+@Repository
+public interface SyncCursorRepository extends JpaRepository<SyncCursor, Long> {
+
+    /**
+     * 查询一批 OJ 账号在指定平台上的所有游标
+     */
+    List<SyncCursor> findByUserOjInAndPlatform(Collection<UserOJ> accounts, OJPlatform platform);
+}
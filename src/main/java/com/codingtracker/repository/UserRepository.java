@@ -2,8 +2,13 @@ package com.codingtracker.repository;
 
 import com.codingtracker.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +31,19 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     boolean existsByRealName(String realName);
 
     List<User> findAllById(Iterable<Integer> ids);
+
+    // 连同 OJ 账号一起加载，供会话外的爬虫线程使用
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.ojAccounts")
+    List<User> findAllWithOjAccounts();
+
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.ojAccounts WHERE u.id = :id")
+    Optional<User> findByIdWithOjAccounts(@Param("id") Integer id);
+
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.ojAccounts WHERE u.id IN :ids")
+    List<User> findAllByIdWithOjAccounts(@Param("ids") Collection<Integer> ids);
+
+    // 仅当新时间更晚时更新用户最后尝试时间
+    @Modifying
+    @Query("UPDATE User u SET u.lastTryDate = :time WHERE u.id = :id AND (u.lastTryDate IS NULL OR u.lastTryDate < :time)")
+    int advanceLastTryDate(@Param("id") Integer id, @Param("time") LocalDateTime time);
 }
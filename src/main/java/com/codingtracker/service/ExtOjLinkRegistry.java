@@ -0,0 +1,136 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.ExtOjLink;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.ExtOjLinkRepository;
+import com.codingtracker.util.UrlTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 外部 OJ 链接配置的内存注册表。
+ * 由 ExtOjLinkDataLoader 在启动和热加载时发布整份配置，读操作只读一个 volatile 快照，无锁、不查库；
+ * 链接模板在发布时预编译，Cookie 形式的 authToken 也预先解析好。
+ */
+@Service
+public class ExtOjLinkRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtOjLinkRegistry.class);
+
+    private final ExtOjLinkRepository linkRepo;
+
+    /** 当前生效的配置快照，发布时整体替换 */
+    private volatile Map<OJPlatform, Links> snapshot = Collections.emptyMap();
+
+    public ExtOjLinkRegistry(ExtOjLinkRepository linkRepo) {
+        this.linkRepo = linkRepo;
+    }
+
+    /**
+     * 单个平台的链接配置及其预编译结果
+     *
+     * @param link          原始配置
+     * @param userInfo      用户记录链接模板
+     * @param problem       题目详情链接模板
+     * @param contestStatus 整场比赛提交记录链接模板
+     * @param cookies       authToken 解析出的 Cookie
+     */
+    public record Links(ExtOjLink link, UrlTemplate userInfo, UrlTemplate problem, UrlTemplate contestStatus,
+                        Map<String, String> cookies) {
+
+        static Links of(ExtOjLink link) {
+            return new Links(link,
+                    UrlTemplate.compile(link.getUserInfoLink()),
+                    UrlTemplate.compile(link.getProblemLink()),
+                    UrlTemplate.compile(link.getContestStatusLink()),
+                    parseCookies(link.getAuthToken()));
+        }
+    }
+
+    /**
+     * 获取平台的链接配置
+     *
+     * @throws RuntimeException 平台未配置
+     */
+    public Links get(OJPlatform platform) {
+        Links links = snapshot.get(platform);
+        if (links == null) {
+            throw new RuntimeException("Missing link config for " + platform);
+        }
+        return links;
+    }
+
+    /**
+     * 获取平台的原始链接配置
+     */
+    public ExtOjLink link(OJPlatform platform) {
+        return get(platform).link();
+    }
+
+    /**
+     * 当前所有平台的链接配置
+     */
+    public List<ExtOjLink> all() {
+        return snapshot.values().stream().map(Links::link).toList();
+    }
+
+    /**
+     * 发布一份新的完整配置，替换当前快照
+     */
+    public synchronized void publish(Collection<ExtOjLink> links) {
+        Map<OJPlatform, Links> next = new EnumMap<>(OJPlatform.class);
+        for (ExtOjLink link : links) {
+            next.put(link.getOj(), Links.of(link));
+        }
+        snapshot = Collections.unmodifiableMap(next);
+        logger.info("已发布 {} 个平台的链接配置", next.size());
+    }
+
+    /**
+     * 更换某平台的登录令牌（如 Luogu 的 __client_id Cookie），写库并立即生效。
+     * 下次从 oj_links.json 重新加载时会以文件内容为准。
+     *
+     * @param platform  平台
+     * @param authToken 新令牌
+     * @return 更新后的配置
+     */
+    public synchronized ExtOjLink rotateAuthToken(OJPlatform platform, String authToken) {
+        ExtOjLink current = link(platform);
+        ExtOjLink updated = ExtOjLink.builder()
+                .oj(current.getOj())
+                .indexLink(current.getIndexLink())
+                .userInfoLink(current.getUserInfoLink())
+                .pbStatusLink(current.getPbStatusLink())
+                .contestStatusLink(current.getContestStatusLink())
+                .problemLink(current.getProblemLink())
+                .loginLink(current.getLoginLink())
+                .authToken(authToken)
+                .build();
+        linkRepo.save(updated);
+
+        Map<OJPlatform, Links> next = new EnumMap<>(OJPlatform.class);
+        next.putAll(snapshot);
+        next.put(platform, Links.of(updated));
+        snapshot = Collections.unmodifiableMap(next);
+        logger.info("{} 登录令牌已更新", platform);
+        return updated;
+    }
+
+    /**
+     * 解析 "k1=v1; k2=v2" 形式的 Cookie 串
+     */
+    public static Map<String, String> parseCookies(String cookieHeader) {
+        if (cookieHeader == null || cookieHeader.isBlank()) {
+            return Map.of();
+        }
+        return Arrays.stream(cookieHeader.split(";"))
+                .map(String::trim)
+                .filter(s -> s.contains("="))
+                .map(s -> s.split("=", 2))
+                .collect(Collectors.toUnmodifiableMap(a -> a[0], a -> a[1], (a, b) -> b));
+    }
+}
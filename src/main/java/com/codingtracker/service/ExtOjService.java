@@ -1,189 +1,214 @@
 package com.codingtracker.service;
 
-import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.crawler.HttpUtil;
+import com.codingtracker.model.CrawlJob;
+import com.codingtracker.model.OJPlatform;
 import com.codingtracker.model.User;
+import com.codingtracker.model.UserOJ;
 import com.codingtracker.model.UserTryProblem;
-import com.codingtracker.repository.ExtOjPbInfoRepository;
 import com.codingtracker.repository.UserRepository;
 import com.codingtracker.repository.UserTryProblemRepository;
 import com.codingtracker.service.extoj.IExtOJAdapter;
+import com.codingtracker.service.sync.CrawlJobService;
+import com.codingtracker.service.sync.CrawlLeaseService;
+import com.codingtracker.service.sync.TrySyncPipeline;
 import com.codingtracker.init.SystemStatsLoader;  // 引入加载器
-import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.BinaryOperator;
-import java.util.stream.Collectors;
 
 @Service
 public class ExtOjService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExtOjService.class);
 
+    /** 同步刷新时等待批次完成的最长时间和轮询间隔 */
+    private static final long REBUILD_WAIT_MINUTES = 100;
+    private static final long REBUILD_POLL_MILLIS = 2000;
+
     private final UserRepository userRepository;
     private final UserTryProblemRepository tryRepo;
-    private final ExtOjPbInfoRepository pbInfoRepo;
     private final SystemStatsLoader statsLoader;  // 注入加载器
     private final List<IExtOJAdapter> adapters;
+    private final HttpUtil httpUtil;
+    private final TrySyncPipeline tryPipeline;
+    private final CrawlLeaseService leaseService;
+    private final CrawlJobService jobService;
+    private final long catalogRefreshMillis;
+
+    /** 上次题库目录同步完成的时间（毫秒），0 表示本次启动后尚未同步 */
+    private volatile long lastCatalogSync = 0;
 
     @Lazy
     @Autowired
     private ExtOjService selfProxy;
-    // 是否正在更新
-    @Getter
-    private volatile boolean updating = false;
 
     public ExtOjService(UserRepository userRepository,
                         UserTryProblemRepository tryRepo,
-                        ExtOjPbInfoRepository pbInfoRepo,
                         SystemStatsLoader statsLoader,
-                        List<IExtOJAdapter> adapters) {  // 注入自己
+                        List<IExtOJAdapter> adapters,
+                        HttpUtil httpUtil,
+                        TrySyncPipeline tryPipeline,
+                        CrawlLeaseService leaseService,
+                        CrawlJobService jobService,
+                        @Value("${crawler.catalog.refresh-hours:24}") long catalogRefreshHours) {  // 注入自己
         this.userRepository = userRepository;
         this.tryRepo = tryRepo;
-        this.pbInfoRepo = pbInfoRepo;
         this.statsLoader = statsLoader;
         this.adapters = adapters;
+        this.httpUtil = httpUtil;
+        this.tryPipeline = tryPipeline;
+        this.leaseService = leaseService;
+        this.jobService = jobService;
+        this.catalogRefreshMillis = TimeUnit.HOURS.toMillis(catalogRefreshHours);
         this.selfProxy = selfProxy;
     }
 
-    // 触发异步刷新所有用户尝试记录
-    public synchronized boolean triggerFlushTriesDB() {
-        if (updating) {
-            return false; // 已经在更新中
-        }
-        updating = true;
-        selfProxy.asyncFlushTriesDB();
-        return true;
+    /**
+     * 创建重建任务并异步入队，已有任务在运行时返回 empty
+     *
+     * @param fullSync  是否忽略增量游标全量重爬
+     * @param createdBy 发起人
+     * @return 新建的任务
+     */
+    public Optional<CrawlJob> triggerFlushTriesDB(boolean fullSync, String createdBy) {
+        Optional<CrawlJob> job = jobService.create(fullSync, createdBy);
+        job.ifPresent(j -> selfProxy.asyncFlushTriesDB(j.getId()));
+        return job;
+    }
+
+    /**
+     * 是否有重建正在进行（任一实例）
+     */
+    public boolean isUpdating() {
+        return jobService.isRunning();
     }
 
     @Async  // 需要配置 @EnableAsync
-    @Transactional
-    void asyncFlushTriesDB() {
+    void asyncFlushTriesDB(String jobId) {
         try {
-            flushTriesDB();
+            enqueueRebuild(jobId, true);
         } catch (Exception e) {
             logger.error("异步刷新尝试记录异常", e);
-        } finally {
-            updating = false;
         }
     }
 
+    /**
+     * 启动时继续入队前就中断的重建任务；已入队的单元由 CrawlUnitWorker 自动继续
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRebuilds() {
+        for (CrawlJob job : jobService.unenqueued()) {
+            logger.info("继续入队中断的重建任务 {}", job.getId());
+            selfProxy.asyncFlushTriesDB(job.getId());
+        }
+    }
+
+    // 按 用户×平台 拆成抓取单元入队，由各实例的 CrawlUnitWorker 认领执行
+    private void enqueueRebuild(String jobId, boolean syncCatalogs) {
+        httpUtil.resetRetryBudget();
+        if (syncCatalogs) {
+            syncProblemCatalogsIfStale();
+        }
+        Set<OJPlatform> platforms = EnumSet.noneOf(OJPlatform.class);
+        adapters.forEach(a -> platforms.add(a.getOjType()));
+        Map<Integer, Set<OJPlatform>> units = new LinkedHashMap<>();
+        for (User user : userRepository.findAllWithOjAccounts()) {
+            if (user.getOjAccounts() == null) {
+                continue;
+            }
+            user.getOjAccounts().stream()
+                    .map(UserOJ::getPlatform)
+                    .filter(platforms::contains)
+                    .forEach(p -> units.computeIfAbsent(user.getId(), k -> EnumSet.noneOf(OJPlatform.class)).add(p));
+        }
+        jobService.enqueue(jobId, units);
+    }
+
     private List<IExtOJAdapter> allExtOjServices() {
         return adapters;
     }
 
-    private SortedSet<UserTryProblem> fetchAllUserTries(List<User> users) {
-        SortedSet<UserTryProblem> set = new TreeSet<>();
-        logger.info("开始抓取 {} 位用户的尝试记录", users.size());
+    public void flushTriesByUser(User user) {
+        flushTriesByUser(user, false);
+    }
 
-        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<Future<List<UserTryProblem>>> futures = new ArrayList<>();
+    // 不开外层事务：抓取期间不占用数据库连接，写库由流水线按批在短事务中完成
+    public void flushTriesByUser(User user, boolean fullSync) {
+        logger.info("刷新用户 {} 的尝试记录", user.getUsername());
+        // 预先加载账号列表，爬虫线程在会话外读取
+        User loaded = userRepository.findByIdWithOjAccounts(user.getId()).orElse(user);
+        TrySyncPipeline.Result result = tryPipeline.run(Collections.singletonList(loaded), fullSync);
+        logger.info("用户 {} 新增 {} 条尝试记录，跳过 {} 条已有记录", user.getUsername(), result.inserted(), result.skipped());
+    }
 
-        for (IExtOJAdapter adapter : adapters) {
-            for (User user : users) {
-                futures.add(pool.submit(() -> adapter.getUserTriesOnline(user)));
-            }
-        }
+    public void flushTriesDB() {
+        flushTriesDB(false);
+    }
 
+    // 创建任务并等待其单元全部完成（单元可能由其他实例执行），统计时间由任务收尾时更新
+    public void flushTriesDB(boolean fullSync) {
+        Optional<CrawlJob> created = jobService.create(fullSync, null);
+        if (created.isEmpty()) {
+            logger.warn("已有重建任务在运行，本次刷新跳过");
+            return;
+        }
+        String jobId = created.get().getId();
+        logger.info("刷新所有用户的尝试记录（{}），任务 {}", fullSync ? "全量" : "增量", jobId);
+        enqueueRebuild(jobId, true);
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(REBUILD_WAIT_MINUTES);
         try {
-            pool.shutdown();
-            if (!pool.awaitTermination(100, TimeUnit.MINUTES)) {
-                logger.warn("所有任务未在指定时间内完成，强制关闭线程池");
+            while (leaseService.activeInBatch(jobId) > 0) {
+                if (System.currentTimeMillis() > deadline) {
+                    logger.warn("任务 {} 未在 {} 分钟内完成，不再等待", jobId, REBUILD_WAIT_MINUTES);
+                    return;
+                }
+                Thread.sleep(REBUILD_POLL_MILLIS);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.error("线程池等待任务完成时发生中断", e);
+            return;
         }
+        logger.info("刷新完成，任务 {}，更新时间 {}", jobId, statsLoader.getLastUpdateTime());
+    }
 
-        for (Future<List<UserTryProblem>> f : futures) {
+    /**
+     * 下载各平台完整题库并批量写入题目目录，之后用户记录爬取只需按内存索引引用题目
+     *
+     * @return 写入的题目总数
+     */
+    public synchronized int syncProblemCatalogs() {
+        int total = 0;
+        for (IExtOJAdapter adapter : allExtOjServices()) {
             try {
-                List<UserTryProblem> problems = f.get(30, TimeUnit.SECONDS);
-                if (problems != null) {
-                    set.addAll(problems);
+                int count = adapter.syncProblemCatalog();
+                if (count > 0) {
+                    logger.info("{} 题库同步完成，共 {} 道题", adapter.getOjType(), count);
                 }
-            } catch (TimeoutException | InterruptedException e) {
-                logger.error("任务超时", e);
-            } catch (ExecutionException e) {
-                logger.error("获取尝试记录出错", e);
+                total += count;
+            } catch (Exception e) {
+                logger.error("{} 题库同步失败", adapter.getOjType(), e);
             }
         }
-
-        logger.info("抓取完成，共 {} 条尝试记录", set.size());
-        return set;
+        lastCatalogSync = System.currentTimeMillis();
+        return total;
     }
 
-    private SortedSet<ExtOjPbInfo> fetchAllProblemInfo() {
-        SortedSet<ExtOjPbInfo> set = new TreeSet<>();
-        for (IExtOJAdapter adapter : adapters) {
-            set.addAll(adapter.getAllPbInfoOnline());
+    // 距上次题库同步超过 crawler.catalog.refresh-hours 时先同步题库
+    private void syncProblemCatalogsIfStale() {
+        if (System.currentTimeMillis() - lastCatalogSync >= catalogRefreshMillis) {
+            syncProblemCatalogs();
         }
-        logger.info("抓取完成，共 {} 道题目信息", set.size());
-        return set;
-    }
-
-    @Transactional
-    public void flushUserLastTryDate(Set<UserTryProblem> tries) {
-        Map<User, LocalDateTime> lastTimes = tries.stream()
-                .collect(Collectors.toMap(
-                        UserTryProblem::getUser,
-                        UserTryProblem::getAttemptTime,
-                        BinaryOperator.maxBy(Comparator.naturalOrder())
-                ));
-        lastTimes.forEach((user, time) -> user.setLastTryDate(time));
-        userRepository.saveAll(lastTimes.keySet());
-        logger.info("已更新 {} 位用户的最后尝试时间", lastTimes.size());
-    }
-
-    @Transactional
-    public void flushTriesByUser(User user) {
-        logger.info("刷新用户 {} 的尝试记录", user.getUsername());
-        SortedSet<UserTryProblem> current = fetchAllUserTries(Collections.singletonList(user));
-        List<UserTryProblem> existing = tryRepo.findByUser(user);
-        Set<UserTryProblem> added = new HashSet<>(current);
-        existing.forEach(added::remove);
-        tryRepo.saveAll(added);
-        flushUserLastTryDate(added);
-        logger.info("用户 {} 新增 {} 条尝试记录", user.getUsername(), added.size());
-    }
-
-    @Transactional
-    public void flushTriesDB() {
-        logger.info("刷新所有用户的尝试记录");
-        List<User> users = userRepository.findAll();
-        SortedSet<UserTryProblem> current = fetchAllUserTries(users);
-        List<UserTryProblem> existing = tryRepo.findAll();
-        Set<UserTryProblem> added = new HashSet<>(current);
-        existing.forEach(added::remove);
-        tryRepo.saveAll(added);
-        flushUserLastTryDate(added);
-
-        statsLoader.updateStats(
-                statsLoader.getUserCount(),
-                statsLoader.getSumProblemCount(),
-                statsLoader.getSumTryCount()
-        );
-
-        logger.info("刷新完成，新增 {} 条尝试记录，更新时间 {}", added.size(), statsLoader.getLastUpdateTime());
-    }
-
-    @Transactional
-    public void flushPbInfoDB() {
-        logger.info("刷新题目信息库");
-        SortedSet<ExtOjPbInfo> current = fetchAllProblemInfo();
-        List<ExtOjPbInfo> existing = pbInfoRepo.findAll();
-        List<ExtOjPbInfo> merged = new ArrayList<>(current);
-        existing.stream().filter(info -> !current.contains(info)).forEach(merged::add);
-        pbInfoRepo.deleteAll();
-        pbInfoRepo.saveAll(merged);
-        logger.info("题目信息刷新完成，共 {} 条记录", merged.size());
     }
 
     public List<UserTryProblem> getUserTries(User user) {
@@ -0,0 +1,74 @@
+package com.codingtracker.service;
+
+import com.codingtracker.crawler.CFCrawler;
+import com.codingtracker.model.InvalidHandle;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.UserOJ;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 绑定 OJ 账号时的 handle 校验。
+ * 新账号在绑定时就校验一次，不存在的 handle 立即记入无效账号负缓存，不必等同步时逐个请求、超时后才发现。
+ * Codeforces 用一次 user.info 批量校验；Luogu 只检查 uid 格式；其余平台没有廉价的校验接口，留给同步时发现。
+ */
+@Service
+public class HandleValidationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HandleValidationService.class);
+
+    private final CFCrawler cfCrawler;
+    private final InvalidHandleService invalidHandleService;
+
+    public HandleValidationService(CFCrawler cfCrawler, InvalidHandleService invalidHandleService) {
+        this.cfCrawler = cfCrawler;
+        this.invalidHandleService = invalidHandleService;
+    }
+
+    /**
+     * 校验新绑定的账号，无效的 handle 记入负缓存
+     *
+     * @param accounts 新绑定的账号
+     * @return 无效 handle 的说明，如 "CODEFORCES: tourlst"，全部有效或无法校验时为空
+     */
+    public List<String> validate(Collection<UserOJ> accounts) {
+        Map<OJPlatform, Set<String>> handles = new EnumMap<>(OJPlatform.class);
+        for (UserOJ account : accounts) {
+            Arrays.stream(account.getAccountName().split("\\s*,\\s*"))
+                    .map(String::trim)
+                    .filter(h -> !h.isEmpty())
+                    .forEach(h -> handles.computeIfAbsent(account.getPlatform(), k -> new LinkedHashSet<>()).add(h));
+        }
+        List<String> invalid = new ArrayList<>();
+
+        Set<String> cfHandles = handles.getOrDefault(OJPlatform.CODEFORCES, Set.of());
+        if (!cfHandles.isEmpty()) {
+            try {
+                Set<String> missing = cfCrawler.findMissingHandles(cfHandles);
+                for (String h : missing) {
+                    invalidHandleService.recordInvalid(OJPlatform.CODEFORCES, h, "Codeforces 不存在该 handle");
+                    invalid.add(OJPlatform.CODEFORCES + ": " + h);
+                }
+                // 重新绑定曾经无效、现在已存在的 handle 时清除旧记录
+                Set<String> found = new HashSet<>(cfHandles);
+                found.removeAll(missing);
+                Map<String, InvalidHandle> stale = invalidHandleService.find(OJPlatform.CODEFORCES, found);
+                invalidHandleService.recordValid(OJPlatform.CODEFORCES, stale.keySet());
+            } catch (RuntimeException e) {
+                // 平台不可用时不阻塞绑定，留给同步时判断
+                logger.warn("校验 Codeforces handle {} 失败，跳过：{}", cfHandles, e.toString());
+            }
+        }
+
+        for (String uid : handles.getOrDefault(OJPlatform.LUOGU, Set.of())) {
+            if (!uid.chars().allMatch(Character::isDigit)) {
+                invalidHandleService.recordInvalid(OJPlatform.LUOGU, uid, "Luogu uid 应为数字");
+                invalid.add(OJPlatform.LUOGU + ": " + uid);
+            }
+        }
+        return invalid;
+    }
+}
@@ -0,0 +1,119 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.InvalidHandle;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.UserOJ;
+import com.codingtracker.repository.InvalidHandleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 无效账号负缓存服务。
+ * 账号名写错时，每次同步都要为它发请求、等超时；确认 handle 不存在后记入负缓存，冷却期内爬虫直接跳过。
+ * 冷却时间从 base-minutes 起，每次再确认无效翻倍，最长 max-hours；某次抓取成功即移除记录。
+ */
+@Service
+public class InvalidHandleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvalidHandleService.class);
+
+    private final InvalidHandleRepository invalidHandleRepo;
+    private final Duration baseCoolDown;
+    private final Duration maxCoolDown;
+
+    public InvalidHandleService(InvalidHandleRepository invalidHandleRepo,
+                                @Value("${crawler.negative-cache.base-minutes:30}") long baseMinutes,
+                                @Value("${crawler.negative-cache.max-hours:168}") long maxHours) {
+        this.invalidHandleRepo = invalidHandleRepo;
+        this.baseCoolDown = Duration.ofMinutes(Math.max(1, baseMinutes));
+        this.maxCoolDown = Duration.ofHours(Math.max(1, maxHours));
+    }
+
+    /**
+     * 负缓存中使用的 handle 形式：Codeforces / Gym 不区分大小写，统一小写
+     */
+    public static String normalize(OJPlatform platform, String handle) {
+        String h = handle.trim();
+        return platform == OJPlatform.CODEFORCES || platform == OJPlatform.GYM ? h.toLowerCase() : h;
+    }
+
+    /**
+     * 记录是否仍在冷却期
+     */
+    public static boolean isBlocked(InvalidHandle record) {
+        return record != null && record.getRetryAfter().isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * 查询一批 handle 的负缓存记录（含已过冷却期的）
+     *
+     * @return 规范化后的 handle → 记录
+     */
+    public Map<String, InvalidHandle> find(OJPlatform platform, Collection<String> handles) {
+        if (handles.isEmpty()) {
+            return new HashMap<>();
+        }
+        Set<String> normalized = handles.stream().map(h -> normalize(platform, h)).collect(Collectors.toSet());
+        return invalidHandleRepo.findByPlatformAndHandleIn(platform, normalized).stream()
+                .collect(Collectors.toMap(InvalidHandle::getHandle, r -> r, (a, b) -> a));
+    }
+
+    /**
+     * 某个账号（可能含多个逗号分隔的 handle）在负缓存中的记录
+     */
+    public List<InvalidHandle> statusOf(UserOJ account) {
+        List<String> handles = Arrays.stream(account.getAccountName().split("\\s*,\\s*"))
+                .filter(h -> !h.isBlank())
+                .toList();
+        return new ArrayList<>(find(account.getPlatform(), handles).values());
+    }
+
+    /**
+     * 确认 handle 无效：新建记录或累加次数，冷却时间按次数指数增长
+     */
+    public void recordInvalid(OJPlatform platform, String handle, String reason) {
+        String h = normalize(platform, handle);
+        LocalDateTime now = LocalDateTime.now();
+        InvalidHandle record = invalidHandleRepo.findByPlatformAndHandle(platform, h)
+                .orElseGet(() -> InvalidHandle.builder().platform(platform).handle(h).build());
+        record.setFailures(record.getFailures() + 1);
+        record.setReason(reason == null ? null : reason.substring(0, Math.min(reason.length(), 255)));
+        record.setLastFailedAt(now);
+        record.setRetryAfter(now.plus(coolDown(record.getFailures())));
+        try {
+            invalidHandleRepo.save(record);
+            logger.warn("{} 账号 {} 无效（第 {} 次）：{}，{} 前不再同步",
+                    platform, h, record.getFailures(), reason, record.getRetryAfter());
+        } catch (DataIntegrityViolationException e) {
+            // 另一个线程刚写入同一 handle，以它为准
+            logger.debug("{} 账号 {} 的负缓存记录已由其他线程写入", platform, h);
+        }
+    }
+
+    /**
+     * 这些 handle 抓取成功，移除它们的负缓存记录
+     */
+    public void recordValid(OJPlatform platform, Collection<String> handles) {
+        if (handles.isEmpty()) {
+            return;
+        }
+        Set<String> normalized = handles.stream().map(h -> normalize(platform, h)).collect(Collectors.toSet());
+        invalidHandleRepo.deleteByPlatformAndHandleIn(platform, normalized);
+        logger.info("{} 账号 {} 已恢复，移出负缓存", platform, normalized);
+    }
+
+    // 第 n 次确认无效的冷却时间：base × 2^(n-1)，不超过 max
+    private Duration coolDown(int failures) {
+        int shift = Math.min(Math.max(0, failures - 1), 30);
+        Duration d = baseCoolDown.multipliedBy(1L << shift);
+        return d.compareTo(maxCoolDown) > 0 ? maxCoolDown : d;
+    }
+}
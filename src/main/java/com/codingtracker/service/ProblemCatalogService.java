@@ -0,0 +1,374 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.ExtOjPbInfoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 题目目录服务：
+ * 1. 维护每个平台 pid → 题目 ID 的内存索引，爬取用户记录时直接按索引引用题目，不查题目表；
+ * 2. 用 JDBC 批量合并题目、标签及 problem_tags 关联，供题库目录同步和新题兜底插入使用：
+ *    题目字段和标签各有一个哈希，与库中比较后只插入新题、只更新有变化的题，标签关联只对标签变化的题按差集增删，
+ *    题库基本不变时一次刷新只需几次查询，不改写任何行。
+ */
+@Service
+public class ProblemCatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProblemCatalogService.class);
+
+    /** 每批写入的行数 */
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT_STATE_SQL_PREFIX =
+            "SELECT pid, id, content_hash, tag_hash FROM extoj_pb_info WHERE oj_name = ? AND pid IN ";
+    // 并发插入同一题时以先到者为准，之后按哈希差异更新
+    private static final String INSERT_PROBLEM_SQL =
+            "INSERT IGNORE INTO extoj_pb_info (oj_name, pid, name, type, points, rating, url, content_hash, tag_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // 标签未知（tags 为 null）时 tag_hash 传 null，保留库中的值
+    private static final String UPDATE_PROBLEM_SQL =
+            "UPDATE extoj_pb_info SET name = ?, type = ?, points = ?, rating = COALESCE(?, rating), url = ?, " +
+            "content_hash = ?, tag_hash = COALESCE(?, tag_hash) WHERE id = ?";
+    private static final String SELECT_PROBLEM_TAGS_SQL_PREFIX =
+            "SELECT problem_id, tag_id FROM problem_tags WHERE problem_id IN ";
+    private static final String INSERT_PROBLEM_TAG_SQL = "INSERT IGNORE INTO problem_tags (problem_id, tag_id) VALUES (?, ?)";
+    private static final String DELETE_PROBLEM_TAG_SQL = "DELETE FROM problem_tags WHERE problem_id = ? AND tag_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExtOjPbInfoRepository pbInfoRepo;
+    private final TagDictionary tagDictionary;
+
+    /** 平台 → (pid → 题目 ID) */
+    private final Map<OJPlatform, Map<String, Long>> index = new ConcurrentHashMap<>();
+
+    public ProblemCatalogService(JdbcTemplate jdbcTemplate,
+                                 ExtOjPbInfoRepository pbInfoRepo,
+                                 TagDictionary tagDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pbInfoRepo = pbInfoRepo;
+        this.tagDictionary = tagDictionary;
+    }
+
+    /**
+     * 一条待写入的目录记录
+     *
+     * @param problem 题目（无需 ID，不读取其 tags）
+     * @param tags    标签名
+     */
+    public record Entry(ExtOjPbInfo problem, String[] tags) {
+    }
+
+    /**
+     * 库中已有题目的 ID、题目字段哈希与标签哈希（未写过时为 null）
+     */
+    private record State(long id, Long hash, Long tagHash) {
+    }
+
+    /**
+     * 查询题目 ID，索引中没有时返回 null
+     */
+    public Long idOf(OJPlatform platform, String pid) {
+        return indexOf(platform).get(pid);
+    }
+
+    /**
+     * 返回只带 ID 的题目引用，可直接挂到 UserTryProblem 上写库；索引中没有时返回 null
+     */
+    public ExtOjPbInfo reference(OJPlatform platform, String pid) {
+        Long id = idOf(platform, pid);
+        return id == null ? null : reference(platform, pid, id);
+    }
+
+    /**
+     * 批量解析题目：先查内存索引，未命中的 pid 用一次 IN 查询补查并写回索引
+     *
+     * @param platform 平台
+     * @param pids     待解析的 pid
+     * @return pid → 题目引用（只带 ID），库中不存在的 pid 不在结果中
+     */
+    public Map<String, ExtOjPbInfo> resolve(OJPlatform platform, Collection<String> pids) {
+        Map<String, Long> platformIndex = indexOf(platform);
+        Map<String, ExtOjPbInfo> refs = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String pid : pids) {
+            Long id = platformIndex.get(pid);
+            if (id != null) {
+                refs.put(pid, reference(platform, pid, id));
+            } else {
+                misses.add(pid);
+            }
+        }
+        for (int i = 0; i < misses.size(); i += BATCH_SIZE) {
+            List<String> chunk = misses.subList(i, Math.min(i + BATCH_SIZE, misses.size()));
+            for (Object[] row : pbInfoRepo.findPidAndIdByOjNameAndPidIn(platform, chunk)) {
+                String pid = (String) row[0];
+                Long id = (Long) row[1];
+                platformIndex.put(pid, id);
+                refs.put(pid, reference(platform, pid, id));
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * 丢弃并从数据库重建某平台的索引
+     */
+    public void reload(OJPlatform platform) {
+        index.put(platform, load(platform));
+    }
+
+    /**
+     * 批量合并题目目录：题目按 (oj_name, pid) 分别对比题目字段哈希和标签哈希，新题批量插入、变化的题批量更新、未变化的跳过；
+     * tags 为 null 表示标签未知，不参与比较，也不改动库中的标签哈希和关联；带标签且标签有变化的题，其题目-标签关联按差集增删。
+     *
+     * @param platform 平台
+     * @param entries  目录记录，同一 pid 以最后一条为准
+     * @return pid → 题目引用（只带 ID）
+     */
+    @Transactional
+    public Map<String, ExtOjPbInfo> upsert(OJPlatform platform, Collection<Entry> entries) {
+        if (entries.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, Entry> byPid = new LinkedHashMap<>();
+        entries.forEach(e -> byPid.put(e.problem().getPid(), e));
+
+        // 1. 读出已有题目的 ID 与哈希，按哈希分出新题、变化的题和标签变化的题
+        Map<String, State> states = loadStates(platform, byPid.keySet());
+        List<Entry> inserts = new ArrayList<>();
+        List<Entry> updates = new ArrayList<>();
+        List<Entry> tagUpdates = new ArrayList<>();
+        Map<String, Long> hashes = new HashMap<>();
+        Map<String, Long> tagHashes = new HashMap<>();
+        for (Entry e : byPid.values()) {
+            String pid = e.problem().getPid();
+            long hash = contentHash(e.problem());
+            Long tagHash = tagHash(e.tags());
+            hashes.put(pid, hash);
+            tagHashes.put(pid, tagHash);
+            State state = states.get(pid);
+            if (state == null) {
+                inserts.add(e);
+                continue;
+            }
+            boolean tagsChanged = tagHash != null && !tagHash.equals(state.tagHash());
+            if (tagsChanged) {
+                tagUpdates.add(e);
+            }
+            if (tagsChanged || state.hash() == null || state.hash() != hash) {
+                updates.add(e);
+            }
+        }
+
+        // 2. 批量插入新题、批量更新变化的题
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PROBLEM_SQL, inserts, BATCH_SIZE, (ps, e) -> {
+                ExtOjPbInfo p = e.problem();
+                ps.setString(1, platform.name());
+                ps.setString(2, p.getPid());
+                ps.setString(3, p.getName() == null ? "" : p.getName());
+                ps.setString(4, p.getType());
+                ps.setObject(5, p.getPoints());
+                ps.setObject(6, p.getRating());
+                ps.setString(7, p.getUrl());
+                ps.setLong(8, hashes.get(p.getPid()));
+                ps.setObject(9, tagHashes.get(p.getPid()));
+            });
+            Set<String> insertedPids = inserts.stream().map(e -> e.problem().getPid()).collect(Collectors.toSet());
+            states.putAll(loadStates(platform, insertedPids));
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PROBLEM_SQL, updates, BATCH_SIZE, (ps, e) -> {
+                ExtOjPbInfo p = e.problem();
+                ps.setString(1, p.getName() == null ? "" : p.getName());
+                ps.setString(2, p.getType());
+                ps.setObject(3, p.getPoints());
+                ps.setObject(4, p.getRating());
+                ps.setString(5, p.getUrl());
+                ps.setLong(6, hashes.get(p.getPid()));
+                ps.setObject(7, tagHashes.get(p.getPid()));
+                ps.setLong(8, states.get(p.getPid()).id());
+            });
+        }
+
+        // 3. 更新索引
+        Map<String, Long> platformIndex = indexOf(platform);
+        states.forEach((pid, state) -> platformIndex.put(pid, state.id()));
+
+        // 4. 新题和标签变化的题按差集增删标签关联
+        int[] tagChanges = diffTags(inserts, tagUpdates, states);
+
+        logger.info("{} 题目目录合并 {} 道题：新增 {}，更新 {}，未变 {}；标签关联 +{} -{}",
+                platform, byPid.size(), inserts.size(), updates.size(),
+                byPid.size() - inserts.size() - updates.size(), tagChanges[0], tagChanges[1]);
+
+        Map<String, ExtOjPbInfo> refs = new HashMap<>();
+        byPid.keySet().forEach(pid -> {
+            State state = states.get(pid);
+            if (state != null) {
+                refs.put(pid, reference(platform, pid, state.id()));
+            }
+        });
+        return refs;
+    }
+
+    /**
+     * 题目字段哈希（64 位 FNV-1a）：名称、类型、分值、难度和链接，不含标签
+     */
+    static long contentHash(ExtOjPbInfo p) {
+        return fnv1a(new StringBuilder(128)
+                .append(p.getName() == null ? "" : p.getName()).append('\u0001')
+                .append(p.getType()).append('\u0001')
+                .append(p.getPoints()).append('\u0001')
+                .append(p.getRating()).append('\u0001')
+                .append(p.getUrl()).append('\u0001'));
+    }
+
+    /**
+     * 标签哈希：去重排序后的标签。tags 为 null 表示标签未知，返回 null，不能当作"没有标签"，
+     * 否则只带题目字段的来源（如比赛模式补写）会把库中已有的标签哈希覆盖掉
+     */
+    static Long tagHash(String[] tags) {
+        if (tags == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(64).append('\u0002');
+        Arrays.stream(tags)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new))
+                .forEach(t -> sb.append(t).append('\u0003'));
+        return fnv1a(sb);
+    }
+
+    private static long fnv1a(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private Map<String, State> loadStates(OJPlatform platform, Collection<String> pids) {
+        Map<String, State> states = new HashMap<>();
+        List<String> list = new ArrayList<>(pids);
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            List<String> chunk = list.subList(i, Math.min(i + BATCH_SIZE, list.size()));
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(platform.name());
+            args.addAll(chunk);
+            jdbcTemplate.query(SELECT_STATE_SQL_PREFIX + placeholders(chunk.size()), rs -> {
+                states.put(rs.getString(1), new State(rs.getLong(2),
+                        rs.getObject(3, Long.class), rs.getObject(4, Long.class)));
+            }, args.toArray());
+        }
+        return states;
+    }
+
+    // 返回 {新增关联数, 删除关联数}
+    private int[] diffTags(List<Entry> inserts, List<Entry> updates, Map<String, State> states) {
+        List<Entry> changed = new ArrayList<>();
+        inserts.stream().filter(e -> e.tags() != null).forEach(changed::add);
+        updates.stream().filter(e -> e.tags() != null).forEach(changed::add);
+        if (changed.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        Set<String> tagNames = changed.stream()
+                .flatMap(e -> Arrays.stream(e.tags()))
+                .collect(Collectors.toSet());
+        Map<String, Long> tagIds = new HashMap<>();
+        tagDictionary.getOrCreateAll(tagNames).forEach((name, tag) -> tagIds.put(name, tag.getId()));
+
+        // 目标关联
+        Map<Long, Set<Long>> desired = new HashMap<>();
+        for (Entry e : changed) {
+            State state = states.get(e.problem().getPid());
+            if (state == null) {
+                continue;
+            }
+            Set<Long> ids = desired.computeIfAbsent(state.id(), k -> new HashSet<>());
+            for (String tag : e.tags()) {
+                Long tagId = tagIds.get(tag);
+                if (tagId != null) {
+                    ids.add(tagId);
+                }
+            }
+        }
+
+        // 现有关联：只有更新的题可能已有
+        Map<Long, Set<Long>> current = new HashMap<>();
+        List<Long> updatedIds = updates.stream()
+                .filter(e -> e.tags() != null)
+                .map(e -> states.get(e.problem().getPid()).id())
+                .toList();
+        for (int i = 0; i < updatedIds.size(); i += BATCH_SIZE) {
+            List<Long> chunk = updatedIds.subList(i, Math.min(i + BATCH_SIZE, updatedIds.size()));
+            jdbcTemplate.query(SELECT_PROBLEM_TAGS_SQL_PREFIX + placeholders(chunk.size()),
+                    rs -> {
+                        current.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getLong(2));
+                    }, chunk.toArray());
+        }
+
+        List<long[]> toAdd = new ArrayList<>();
+        List<long[]> toRemove = new ArrayList<>();
+        desired.forEach((problemId, want) -> {
+            Set<Long> have = current.getOrDefault(problemId, Set.of());
+            want.stream().filter(t -> !have.contains(t)).forEach(t -> toAdd.add(new long[]{problemId, t}));
+            have.stream().filter(t -> !want.contains(t)).forEach(t -> toRemove.add(new long[]{problemId, t}));
+        });
+        if (!toAdd.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PROBLEM_TAG_SQL, toAdd, BATCH_SIZE, (ps, link) -> {
+                ps.setLong(1, link[0]);
+                ps.setLong(2, link[1]);
+            });
+        }
+        if (!toRemove.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_PROBLEM_TAG_SQL, toRemove, BATCH_SIZE, (ps, link) -> {
+                ps.setLong(1, link[0]);
+                ps.setLong(2, link[1]);
+            });
+        }
+        return new int[]{toAdd.size(), toRemove.size()};
+    }
+
+    private static String placeholders(int n) {
+        return Collections.nCopies(n, "?").stream().collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static ExtOjPbInfo reference(OJPlatform platform, String pid, Long id) {
+        return ExtOjPbInfo.builder()
+                .id(id)
+                .ojName(platform)
+                .pid(pid)
+                .build();
+    }
+
+    private Map<String, Long> indexOf(OJPlatform platform) {
+        Map<String, Long> platformIndex = index.get(platform);
+        if (platformIndex == null) {
+            Map<String, Long> loaded = load(platform);
+            platformIndex = index.putIfAbsent(platform, loaded);
+            if (platformIndex == null) {
+                platformIndex = loaded;
+            }
+        }
+        return platformIndex;
+    }
+
+    private Map<String, Long> load(OJPlatform platform) {
+        Map<String, Long> map = new ConcurrentHashMap<>();
+        pbInfoRepo.findPidAndIdByOjName(platform)
+                .forEach(row -> map.put((String) row[0], (Long) row[1]));
+        logger.info("加载 {} 题目索引 {} 条", platform, map.size());
+        return map;
+    }
+}
@@ -0,0 +1,177 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.ResponseFingerprint;
+import com.codingtracker.model.User;
+import com.codingtracker.repository.ResponseFingerprintRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 响应指纹服务。
+ * 各 OJ 都不返回可用的 ETag，只能在客户端比较响应摘要：抓取到的 (handle, 接口, 页) 响应与上次成功同步时的指纹一致，
+ * 说明没有新提交，爬虫直接跳过解析，流水线也就没有记录要写。
+ * 与增量游标一样，新指纹先暂存，等该用户的记录写库成功后随游标一起提交，写库失败则丢弃。
+ */
+@Service
+public class ResponseFingerprintService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseFingerprintService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO response_fingerprint (platform, handle, endpoint, page, digest, body_length, first_submission_id, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE digest = VALUES(digest), " +
+            "body_length = VALUES(body_length), first_submission_id = VALUES(first_submission_id), updated_at = VALUES(updated_at)";
+
+    private final ResponseFingerprintRepository fingerprintRepo;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** 待提交的指纹：userId → (指纹 key → 指纹) */
+    private final Map<Integer, Map<String, ResponseFingerprint>> pending = new ConcurrentHashMap<>();
+
+    public ResponseFingerprintService(ResponseFingerprintRepository fingerprintRepo, JdbcTemplate jdbcTemplate) {
+        this.fingerprintRepo = fingerprintRepo;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 一次响应的摘要
+     *
+     * @param digest            响应体 SHA-256（十六进制）
+     * @param length            响应体字节数
+     * @param firstSubmissionId 该页第一条提交的 ID，仅作记录，不参与比较
+     */
+    public record Fingerprint(String digest, long length, Long firstSubmissionId) {
+
+        public static Fingerprint of(byte[] body) {
+            try {
+                return new Fingerprint(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body)),
+                        body.length, null);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public Fingerprint withFirstSubmissionId(Long id) {
+            return new Fingerprint(digest, length, id);
+        }
+
+        /**
+         * 与已存指纹的摘要和长度都一致
+         */
+        public boolean matches(ResponseFingerprint stored) {
+            return stored != null && stored.getBodyLength() == length && digest.equals(stored.getDigest());
+        }
+    }
+
+    /**
+     * 查询一批 handle 在某接口某页上的已提交指纹
+     *
+     * @return handle → 指纹
+     */
+    public Map<String, ResponseFingerprint> find(OJPlatform platform, String endpoint, int page, Collection<String> handles) {
+        if (handles.isEmpty()) {
+            return new HashMap<>();
+        }
+        return fingerprintRepo.findByPlatformAndEndpointAndPageAndHandleIn(platform, endpoint, page, handles).stream()
+                .collect(Collectors.toMap(ResponseFingerprint::getHandle, f -> f, (a, b) -> a));
+    }
+
+    /**
+     * 暂存指纹，等待该用户的记录写库后提交
+     */
+    public void stage(User user, OJPlatform platform, String handle, String endpoint, int page, Fingerprint fingerprint) {
+        ResponseFingerprint row = ResponseFingerprint.builder()
+                .platform(platform)
+                .handle(handle)
+                .endpoint(endpoint)
+                .page(page)
+                .digest(fingerprint.digest())
+                .bodyLength(fingerprint.length())
+                .firstSubmissionId(fingerprint.firstSubmissionId())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        pending.computeIfAbsent(user.getId(), k -> new ConcurrentHashMap<>())
+                .put(platform + "|" + handle + "|" + endpoint + "|" + page, row);
+    }
+
+    /**
+     * 提交这些用户暂存的指纹
+     */
+    public void commit(Collection<User> users) {
+        List<ResponseFingerprint> toSave = new ArrayList<>();
+        for (User user : users) {
+            Map<String, ResponseFingerprint> staged = pending.remove(user.getId());
+            if (staged != null) {
+                toSave.addAll(staged.values());
+            }
+        }
+        save(toSave);
+    }
+
+    /**
+     * 只提交该用户在某平台暂存的指纹
+     */
+    public void commit(User user, OJPlatform platform) {
+        save(takeStaged(user, platform));
+    }
+
+    /**
+     * 丢弃这些用户暂存的指纹
+     */
+    public void discard(Collection<User> users) {
+        users.forEach(u -> pending.remove(u.getId()));
+    }
+
+    /**
+     * 丢弃该用户在某平台暂存的指纹
+     */
+    public void discard(User user, OJPlatform platform) {
+        takeStaged(user, platform);
+    }
+
+    // 多个实例可能同时写同一页的指纹，按唯一键 upsert
+    private void save(List<ResponseFingerprint> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, f) -> {
+            ps.setString(1, f.getPlatform().name());
+            ps.setString(2, f.getHandle());
+            ps.setString(3, f.getEndpoint());
+            ps.setInt(4, f.getPage());
+            ps.setString(5, f.getDigest());
+            ps.setLong(6, f.getBodyLength());
+            ps.setObject(7, f.getFirstSubmissionId());
+            ps.setTimestamp(8, Timestamp.valueOf(f.getUpdatedAt()));
+        });
+        logger.debug("已提交 {} 个响应指纹", rows.size());
+    }
+
+    private List<ResponseFingerprint> takeStaged(User user, OJPlatform platform) {
+        Map<String, ResponseFingerprint> staged = pending.get(user.getId());
+        if (staged == null) {
+            return List.of();
+        }
+        List<ResponseFingerprint> taken = new ArrayList<>();
+        staged.entrySet().removeIf(e -> {
+            if (e.getValue().getPlatform() == platform) {
+                taken.add(e.getValue());
+                return true;
+            }
+            return false;
+        });
+        pending.computeIfPresent(user.getId(), (k, v) -> v.isEmpty() ? null : v);
+        return taken;
+    }
+}
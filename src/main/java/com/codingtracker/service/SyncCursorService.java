@@ -0,0 +1,160 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.SyncCursor;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserOJ;
+import com.codingtracker.repository.SyncCursorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 增量同步游标服务。
+ * 爬虫抓取完成后先把新的游标暂存（stage），等对应用户的尝试记录写库成功后再提交（commit），
+ * 避免记录写库失败而游标已经前移导致数据丢失。
+ * 响应指纹与游标同生命周期，提交与丢弃时一并处理。
+ */
+@Service
+public class SyncCursorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncCursorService.class);
+
+    private final SyncCursorRepository cursorRepo;
+    private final ResponseFingerprintService fingerprintService;
+
+    /** 待提交的游标：userId → (游标 key → 游标) */
+    private final Map<Integer, Map<String, SyncCursor>> pending = new ConcurrentHashMap<>();
+
+    public SyncCursorService(SyncCursorRepository cursorRepo, ResponseFingerprintService fingerprintService) {
+        this.cursorRepo = cursorRepo;
+        this.fingerprintService = fingerprintService;
+    }
+
+    /**
+     * 查询一批账号在指定平台上的游标
+     *
+     * @return 游标 key（见 {@link #key}）→ 游标
+     */
+    public Map<String, SyncCursor> cursorsOf(Collection<UserOJ> accounts, OJPlatform platform) {
+        if (accounts.isEmpty()) {
+            return new HashMap<>();
+        }
+        return cursorRepo.findByUserOjInAndPlatform(accounts, platform).stream()
+                .collect(Collectors.toMap(c -> key(c.getUserOj(), c.getHandle()), c -> c, (a, b) -> a));
+    }
+
+    /**
+     * 游标 key：账号 ID + handle
+     */
+    public static String key(UserOJ account, String handle) {
+        return account.getId() + "|" + handle;
+    }
+
+    /**
+     * 用本次抓取到的最新提交生成前移后的游标（不落库）
+     *
+     * @param current  当前游标，可为 null
+     * @param account  OJ 账号
+     * @param platform 平台
+     * @param handle   handle
+     * @param lastId   本次抓到的最大提交 ID
+     * @param lastTime 本次抓到的最新提交时间
+     * @return 新游标
+     */
+    public SyncCursor advance(SyncCursor current, UserOJ account, OJPlatform platform, String handle,
+                              Long lastId, LocalDateTime lastTime) {
+        SyncCursor cursor = current != null ? current : SyncCursor.builder()
+                .userOj(account)
+                .platform(platform)
+                .handle(handle)
+                .build();
+        if (lastId != null && (cursor.getLastSubmissionId() == null || lastId > cursor.getLastSubmissionId())) {
+            cursor.setLastSubmissionId(lastId);
+        }
+        if (lastTime != null && (cursor.getLastSubmissionTime() == null || lastTime.isAfter(cursor.getLastSubmissionTime()))) {
+            cursor.setLastSubmissionTime(lastTime);
+        }
+        cursor.setUpdatedAt(LocalDateTime.now());
+        return cursor;
+    }
+
+    /**
+     * 暂存游标，等待该用户的记录写库后提交
+     */
+    public void stage(User user, SyncCursor cursor) {
+        pending.computeIfAbsent(user.getId(), k -> new ConcurrentHashMap<>())
+                .put(key(cursor.getUserOj(), cursor.getHandle()), cursor);
+    }
+
+    /**
+     * 提交这些用户暂存的游标
+     */
+    @Transactional
+    public void commit(Collection<User> users) {
+        List<SyncCursor> toSave = new ArrayList<>();
+        for (User user : users) {
+            Map<String, SyncCursor> staged = pending.remove(user.getId());
+            if (staged != null) {
+                toSave.addAll(staged.values());
+            }
+        }
+        if (!toSave.isEmpty()) {
+            cursorRepo.saveAll(toSave);
+            logger.info("已提交 {} 个同步游标", toSave.size());
+        }
+        fingerprintService.commit(users);
+    }
+
+    /**
+     * 只提交该用户在某平台暂存的游标，同一用户其他平台仍在同步时使用
+     */
+    @Transactional
+    public void commit(User user, OJPlatform platform) {
+        List<SyncCursor> toSave = takeStaged(user, platform);
+        if (!toSave.isEmpty()) {
+            cursorRepo.saveAll(toSave);
+            logger.info("已提交用户 {} 的 {} 个 {} 同步游标", user.getUsername(), toSave.size(), platform);
+        }
+        fingerprintService.commit(user, platform);
+    }
+
+    /**
+     * 丢弃这些用户暂存的游标（写库失败时调用）
+     */
+    public void discard(Collection<User> users) {
+        users.forEach(u -> pending.remove(u.getId()));
+        fingerprintService.discard(users);
+    }
+
+    /**
+     * 丢弃该用户在某平台暂存的游标
+     */
+    public void discard(User user, OJPlatform platform) {
+        takeStaged(user, platform);
+        fingerprintService.discard(user, platform);
+    }
+
+    private List<SyncCursor> takeStaged(User user, OJPlatform platform) {
+        Map<String, SyncCursor> staged = pending.get(user.getId());
+        if (staged == null) {
+            return List.of();
+        }
+        List<SyncCursor> taken = new ArrayList<>();
+        staged.entrySet().removeIf(e -> {
+            if (e.getValue().getPlatform() == platform) {
+                taken.add(e.getValue());
+                return true;
+            }
+            return false;
+        });
+        pending.computeIfPresent(user.getId(), (k, v) -> v.isEmpty() ? null : v);
+        return taken;
+    }
+}
@@ -0,0 +1,162 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.Tag;
+import com.codingtracker.repository.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内标签字典。
+ * 首次使用时把 tag 表整体加载到 name → Tag 的并发 Map 和按 ID 下标的数组中，之后爬虫的标签查找全部走内存；
+ * 缺失的标签用 INSERT IGNORE 在独立事务中创建，多个爬虫线程并发创建同名标签也只会落一行。
+ * 返回的 Tag 都已持久化（带 ID），是游离对象，只能作为关联引用使用。
+ */
+@Service
+public class TagDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagDictionary.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_TAG_SQL = "INSERT IGNORE INTO tag (name) VALUES (?)";
+
+    private final TagRepository tagRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    private final Map<String, Tag> byName = new ConcurrentHashMap<>();
+    /** 下标为标签 ID，写时复制 */
+    private volatile Tag[] byId = new Tag[0];
+    private volatile boolean loaded = false;
+
+    public TagDictionary(TagRepository tagRepo,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager) {
+        this.tagRepo = tagRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 按名称查找标签，不存在返回 null
+     */
+    public Tag get(String name) {
+        ensureLoaded();
+        return byName.get(name);
+    }
+
+    /**
+     * 按 ID 查找标签，不存在返回 null
+     */
+    public Tag get(long id) {
+        ensureLoaded();
+        Tag[] arr = byId;
+        return id >= 0 && id < arr.length ? arr[(int) id] : null;
+    }
+
+    /**
+     * 按名称获取标签，不存在时创建
+     */
+    public Tag getOrCreate(String name) {
+        return getOrCreateAll(List.of(name)).get(name);
+    }
+
+    /**
+     * 批量获取标签，不存在的一次性创建
+     *
+     * @param names 标签名
+     * @return 标签名 → 标签
+     */
+    public Map<String, Tag> getOrCreateAll(Collection<String> names) {
+        ensureLoaded();
+        Map<String, Tag> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String name : names) {
+            Tag tag = byName.get(name);
+            if (tag != null) {
+                result.put(name, tag);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            create(missing);
+            for (String name : missing) {
+                Tag tag = byName.get(name);
+                if (tag != null) {
+                    result.put(name, tag);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 当前字典中的标签数
+     */
+    public int size() {
+        ensureLoaded();
+        return byName.size();
+    }
+
+    // 串行化本进程内的建标签操作；插入和回查放在同一个新事务里，
+    // 避免调用方外层事务（REPEATABLE READ）看不到刚提交的行
+    private synchronized void create(Set<String> names) {
+        List<String> todo = names.stream().filter(n -> !byName.containsKey(n)).toList();
+        if (todo.isEmpty()) {
+            return;
+        }
+        List<Tag> created = requiresNew.execute(status -> {
+            jdbcTemplate.batchUpdate(INSERT_TAG_SQL, todo, BATCH_SIZE, (ps, name) -> ps.setString(1, name));
+            return tagRepo.findByNameIn(new HashSet<>(todo));
+        });
+        register(created);
+        // 数据库按不区分大小写的排序规则比较时，返回的名称可能与请求的不同，按请求名补一份映射
+        Map<String, Tag> lower = new HashMap<>();
+        created.forEach(t -> lower.put(t.getName().toLowerCase(), t));
+        for (String name : todo) {
+            if (!byName.containsKey(name)) {
+                Tag tag = lower.get(name.toLowerCase());
+                if (tag != null) {
+                    byName.put(name, tag);
+                }
+            }
+        }
+        logger.info("新建标签 {} 个", todo.size());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                List<Tag> all = tagRepo.findAll();
+                register(all);
+                loaded = true;
+                logger.info("加载标签字典 {} 个", all.size());
+            }
+        }
+    }
+
+    private synchronized void register(Collection<Tag> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        long maxId = tags.stream().mapToLong(Tag::getId).max().orElse(0);
+        Tag[] arr = Arrays.copyOf(byId, (int) Math.max(byId.length, maxId + 1));
+        for (Tag tag : tags) {
+            byName.put(tag.getName(), tag);
+            arr[tag.getId().intValue()] = tag;
+        }
+        byId = arr;
+    }
+}
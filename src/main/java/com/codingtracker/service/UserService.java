@@ -71,9 +71,11 @@ public class UserService {
 
     /**
      * 修改用户信息
+     *
+     * @return 本次新增的 OJ 账号
      */
     @Transactional
-    public void modifyUser(UserInfoDTO userInfoDTO) {
+    public List<UserOJ> modifyUser(UserInfoDTO userInfoDTO) {
         User existingUser = userRepository.findByUsername(userInfoDTO.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -90,6 +92,7 @@ public class UserService {
             existingUser.setAvatar(userInfoDTO.getAvatar());
         }
 
+        List<UserOJ> added = new ArrayList<>();
         Map<String, String> ojAccountsMap = userInfoDTO.getOjAccounts();
         if (ojAccountsMap != null) {
             List<UserOJ> existingOJList = existingUser.getOjAccounts();
@@ -137,12 +140,14 @@ public class UserService {
                         userOJ.setAccountName(acctName);
                         userOJ.setUser(existingUser);
                         existingOJList.add(userOJ);
+                        added.add(userOJ);
                     }
                 }
             }
         }
 
         userRepository.save(existingUser);
+        return added;
     }
 
     /**
@@ -2,16 +2,19 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.CFCrawler;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
+import com.codingtracker.service.ProblemCatalogService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -23,22 +26,23 @@ public class CFService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(CFService.class);
 
     private final CFCrawler cfCrawler;
-    private final ExtOjLinkRepository extOjLinkRepository;
+    private final ExtOjLinkRegistry linkRegistry;
     private final ExtOjPbInfoRepository extOjPbInfoRepository;
+    private final ProblemCatalogService problemCatalogService;
 
     public CFService(CFCrawler cfCrawler,
-                     ExtOjLinkRepository extOjLinkRepository,
-                     ExtOjPbInfoRepository extOjPbInfoRepository) {
+                     ExtOjLinkRegistry linkRegistry,
+                     ExtOjPbInfoRepository extOjPbInfoRepository,
+                     ProblemCatalogService problemCatalogService) {
         this.cfCrawler = cfCrawler;
-        this.extOjLinkRepository = extOjLinkRepository;
+        this.linkRegistry = linkRegistry;
         this.extOjPbInfoRepository = extOjPbInfoRepository;
+        this.problemCatalogService = problemCatalogService;
     }
 
     @Override
     public ExtOjLink getOjLink() {
-        OJPlatform platform = getOjType();
-        return extOjLinkRepository.findById(platform)
-                .orElseThrow(() -> new RuntimeException("Missing link config for " + platform));
+        return linkRegistry.link(getOjType());
     }
 
     @Override
@@ -48,13 +52,44 @@ public class CFService implements IExtOJAdapter {
 
     @Override
     public List<UserTryProblem> getUserTriesOnline(User user) {
-        List<UserTryProblem> tries = cfCrawler.userTryProblems(user);
+        return getUserTriesOnline(user, false);
+    }
+
+    @Override
+    public List<UserTryProblem> getUserTriesOnline(User user, boolean fullSync) {
+        List<UserTryProblem> tries = cfCrawler.userTryProblems(user, fullSync);
 
         logger.info("Codeforces 用户 {} 共抓取到 {} 条尝试记录",
                 user.getUsername(), tries.size());
         return tries;
     }
 
+    @Override
+    public Map<Integer, List<UserTryProblem>> getUserTriesOnline(List<User> users, boolean fullSync) {
+        Map<Integer, List<UserTryProblem>> tries = cfCrawler.userTryProblems(users, fullSync);
+        logger.info("Codeforces 批量抓取 {} 位用户，共 {} 条尝试记录",
+                users.size(), tries.values().stream().mapToInt(List::size).sum());
+        return tries;
+    }
+
+    @Override
+    public int syncProblemCatalog() {
+        ExtOjLinkRegistry.Links links = linkRegistry.get(getOjType());
+        ExtOjLink link = links.link();
+        if (link.getPbStatusLink() == null || link.getPbStatusLink().isBlank()) {
+            logger.warn("{} 未配置 pbStatusLink，跳过题库同步", getOjType());
+            return 0;
+        }
+        List<ProblemCatalogService.Entry> entries;
+        try {
+            entries = cfCrawler.fetchProblemset(link.getPbStatusLink(), links.problem());
+        } catch (IOException e) {
+            throw new RuntimeException("下载 Codeforces 题库失败", e);
+        }
+        problemCatalogService.upsert(getOjType(), entries);
+        return entries.size();
+    }
+
     @Override
     public List<ExtOjPbInfo> getAllPbInfoOnline() {
         // 使用本地存储的 CF 题目信息
@@ -2,8 +2,8 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.HDUCrawler;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * HDU 平台实现
@@ -21,14 +22,14 @@ public class HDUService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(HDUService.class);
 
     private final HDUCrawler hduCrawler;
-    private final ExtOjLinkRepository linkRepo;
+    private final ExtOjLinkRegistry linkRegistry;
     private final ExtOjPbInfoRepository pbInfoRepo;
 
     public HDUService(HDUCrawler hduCrawler,
-                      ExtOjLinkRepository linkRepo,
+                      ExtOjLinkRegistry linkRegistry,
                       ExtOjPbInfoRepository pbInfoRepo) {
         this.hduCrawler = hduCrawler;
-        this.linkRepo = linkRepo;
+        this.linkRegistry = linkRegistry;
         this.pbInfoRepo = pbInfoRepo;
     }
 
@@ -39,8 +40,7 @@ public class HDUService implements IExtOJAdapter {
 
     @Override
     public ExtOjLink getOjLink() {
-        return linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
+        return linkRegistry.link(getOjType());
     }
 
     @Override
@@ -50,6 +50,14 @@ public class HDUService implements IExtOJAdapter {
         return tries;
     }
 
+    @Override
+    public Map<Integer, List<UserTryProblem>> getUserTriesOnline(List<User> users, boolean fullSync) {
+        Map<Integer, List<UserTryProblem>> tries = hduCrawler.userTryProblems(users, fullSync);
+        logger.info("HDU 批量抓取 {} 位用户，共 {} 条尝试记录",
+                users.size(), tries.values().stream().mapToInt(List::size).sum());
+        return tries;
+    }
+
     @Override
     public List<ExtOjPbInfo> getAllPbInfoOnline() {
         // 返回本地保存的 HDU 题目信息
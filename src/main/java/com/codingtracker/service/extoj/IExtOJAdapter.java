@@ -6,7 +6,9 @@ import com.codingtracker.model.ExtOjPbInfo;
 import com.codingtracker.model.ExtOjLink;
 import com.codingtracker.model.OJPlatform;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 外部 OJ 适配器接口，定义从各 OJ 平台抓取数据的统一方法
@@ -21,6 +23,33 @@ public interface IExtOJAdapter {
      */
     List<UserTryProblem> getUserTriesOnline(User user);
 
+    /**
+     * 在线获取某用户在本 OJ 平台的尝试记录，支持增量同步的平台可据此选择全量或增量拉取
+     *
+     * @param user     用户实体
+     * @param fullSync 是否强制全量同步（忽略增量游标）
+     * @return 用户尝试记录列表
+     */
+    default List<UserTryProblem> getUserTriesOnline(User user, boolean fullSync) {
+        return getUserTriesOnline(user);
+    }
+
+    /**
+     * 批量在线获取一组用户的尝试记录。
+     * 默认逐个用户调用；平台实现可合并共用账号的请求、一次解析整批题目，减少请求数和查库次数。
+     *
+     * @param users    用户实体（需已加载 OJ 账号）
+     * @param fullSync 是否强制全量同步（忽略增量游标）
+     * @return userId → 用户尝试记录列表，没有记录的用户可以不出现
+     */
+    default Map<Integer, List<UserTryProblem>> getUserTriesOnline(List<User> users, boolean fullSync) {
+        Map<Integer, List<UserTryProblem>> result = new LinkedHashMap<>();
+        for (User user : users) {
+            result.put(user.getId(), getUserTriesOnline(user, fullSync));
+        }
+        return result;
+    }
+
     /**
      * 在线获取本 OJ 平台所有题目的统计信息
      *
@@ -28,6 +57,15 @@ public interface IExtOJAdapter {
      */
     List<ExtOjPbInfo> getAllPbInfoOnline();
 
+    /**
+     * 下载本 OJ 平台的完整题库并批量写入题目目录，不支持的平台返回 0
+     *
+     * @return 写入的题目数
+     */
+    default int syncProblemCatalog() {
+        return 0;
+    }
+
     /**
      * 获取本 OJ 平台的链接配置，包含用户记录和题目统计页链接
      *
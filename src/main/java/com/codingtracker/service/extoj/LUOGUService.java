@@ -2,13 +2,14 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.LuoguCrawler;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * LOUGU 平台实现
@@ -19,14 +20,14 @@ public class LUOGUService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(LUOGUService.class);
 
     private final LuoguCrawler luoguCrawler;
-    private final ExtOjLinkRepository linkRepo;
+    private final ExtOjLinkRegistry linkRegistry;
     private final ExtOjPbInfoRepository pbInfoRepo;
 
     public LUOGUService(LuoguCrawler luoguCrawler,
-                        ExtOjLinkRepository linkRepo,
+                        ExtOjLinkRegistry linkRegistry,
                         ExtOjPbInfoRepository pbInfoRepo) {
         this.luoguCrawler = luoguCrawler;
-        this.linkRepo = linkRepo;
+        this.linkRegistry = linkRegistry;
         this.pbInfoRepo = pbInfoRepo;
     }
 
@@ -37,17 +38,29 @@ public class LUOGUService implements IExtOJAdapter {
 
     @Override
     public ExtOjLink getOjLink() {
-        return linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
+        return linkRegistry.link(getOjType());
     }
 
     @Override
     public List<UserTryProblem> getUserTriesOnline(User user) {
-        List<UserTryProblem> tries = luoguCrawler.userTryProblems(user);
+        return getUserTriesOnline(user, false);
+    }
+
+    @Override
+    public List<UserTryProblem> getUserTriesOnline(User user, boolean fullSync) {
+        List<UserTryProblem> tries = luoguCrawler.userTryProblems(user, fullSync);
         logger.info("Luogu 用户 {} 共抓取到 {} 条尝试记录", user.getUsername(), tries.size());
         return tries;
     }
 
+    @Override
+    public Map<Integer, List<UserTryProblem>> getUserTriesOnline(List<User> users, boolean fullSync) {
+        Map<Integer, List<UserTryProblem>> tries = luoguCrawler.userTryProblems(users, fullSync);
+        logger.info("Luogu 批量抓取 {} 位用户，共 {} 条尝试记录",
+                users.size(), tries.values().stream().mapToInt(List::size).sum());
+        return tries;
+    }
+
     @Override
     public List<ExtOjPbInfo> getAllPbInfoOnline() {
         return pbInfoRepo.findByOjName(getOjType());
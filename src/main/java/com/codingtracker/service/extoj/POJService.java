@@ -2,13 +2,14 @@ package com.codingtracker.service.extoj;
 
 import com.codingtracker.crawler.POJCrawler;
 import com.codingtracker.model.*;
-import com.codingtracker.repository.ExtOjLinkRepository;
 import com.codingtracker.repository.ExtOjPbInfoRepository;
+import com.codingtracker.service.ExtOjLinkRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * POJ 平台实现
@@ -19,14 +20,14 @@ public class POJService implements IExtOJAdapter {
     private static final Logger logger = LoggerFactory.getLogger(POJService.class);
 
     private final POJCrawler pojCrawler;
-    private final ExtOjLinkRepository linkRepo;
+    private final ExtOjLinkRegistry linkRegistry;
     private final ExtOjPbInfoRepository pbInfoRepo;
 
     public POJService(POJCrawler pojCrawler,
-                      ExtOjLinkRepository linkRepo,
+                      ExtOjLinkRegistry linkRegistry,
                       ExtOjPbInfoRepository pbInfoRepo) {
         this.pojCrawler = pojCrawler;
-        this.linkRepo = linkRepo;
+        this.linkRegistry = linkRegistry;
         this.pbInfoRepo = pbInfoRepo;
     }
 
@@ -37,8 +38,7 @@ public class POJService implements IExtOJAdapter {
 
     @Override
     public ExtOjLink getOjLink() {
-        return linkRepo.findById(getOjType())
-                .orElseThrow(() -> new RuntimeException("Missing link config for " + getOjType()));
+        return linkRegistry.link(getOjType());
     }
 
     @Override
@@ -50,6 +50,14 @@ public class POJService implements IExtOJAdapter {
         return tries;
     }
 
+    @Override
+    public Map<Integer, List<UserTryProblem>> getUserTriesOnline(List<User> users, boolean fullSync) {
+        Map<Integer, List<UserTryProblem>> tries = pojCrawler.userTryProblems(users, fullSync);
+        logger.info("POJ 批量抓取 {} 位用户，共 {} 条尝试记录",
+                users.size(), tries.values().stream().mapToInt(List::size).sum());
+        return tries;
+    }
+
     @Override
     public List<ExtOjPbInfo> getAllPbInfoOnline() {
         // Return all problems stored locally for POJ
@@ -0,0 +1,119 @@
+package com.codingtracker.service.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 单个平台的熔断器。
+ * 连续失败达到阈值后打开，冷却期内的调用直接拒绝；冷却期过后进入半开状态，只放行一个探测调用，
+ * 探测成功则关闭，失败则重新打开并再次冷却。
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long coolDownMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+
+    public CircuitBreaker(String name, int failureThreshold, long coolDownMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.coolDownMillis = coolDownMillis;
+    }
+
+    /**
+     * 是否放行本次调用；冷却期满时转为半开并放行唯一的探测调用
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < coolDownMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                logger.info("熔断器 {} 冷却结束，放行探测调用", name);
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    /**
+     * 调用成功：关闭熔断器并清零失败计数
+     */
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("熔断器 {} 探测成功，恢复调用", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probing = false;
+    }
+
+    /**
+     * 调用失败：半开状态下立即重新打开，关闭状态下连续失败达到阈值时打开
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                logger.warn("熔断器 {} 打开：连续失败 {} 次，{} 秒内不再调用",
+                        name, consecutiveFailures, coolDownMillis / 1000);
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probing = false;
+        }
+    }
+
+    /**
+     * 当前是否处于冷却期（调用会被直接拒绝）
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < coolDownMillis;
+    }
+
+    /**
+     * 是否处于关闭状态（调用全部放行）
+     */
+    public synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * 下一次 tryAcquire 是否会放行探测调用：冷却期已满，或半开且没有探测在进行
+     */
+    public synchronized boolean isProbeReady() {
+        return switch (state) {
+            case CLOSED -> false;
+            case OPEN -> System.currentTimeMillis() - openedAt >= coolDownMillis;
+            case HALF_OPEN -> !probing;
+        };
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
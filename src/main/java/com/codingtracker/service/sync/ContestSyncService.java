@@ -0,0 +1,86 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.crawler.CFCrawler;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Codeforces / Gym 比赛模式同步：一次拉取整场比赛的提交，按本站用户的 handle 过滤后批量写库。
+ * 适合比赛或训练结束后整队刷新，请求数与比赛提交量相关，与队员人数和个人历史长度无关。
+ */
+@Service
+public class ContestSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContestSyncService.class);
+
+    private final CFCrawler cfCrawler;
+    private final UserRepository userRepository;
+    private final TryBulkWriter bulkWriter;
+    private final TransactionTemplate txTemplate;
+    private final int writeChunk;
+
+    public ContestSyncService(CFCrawler cfCrawler,
+                              UserRepository userRepository,
+                              TryBulkWriter bulkWriter,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${crawler.pipeline.write-chunk:1000}") int writeChunk) {
+        this.cfCrawler = cfCrawler;
+        this.userRepository = userRepository;
+        this.bulkWriter = bulkWriter;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.writeChunk = Math.max(1, writeChunk);
+    }
+
+    /**
+     * 同步一场比赛中本站用户的全部提交
+     *
+     * @param contestId Codeforces 比赛编号，不小于 100000 时为 Gym
+     * @return 统计结果，users 为在比赛中有提交的本站用户数
+     */
+    public TrySyncPipeline.Result syncContest(long contestId) {
+        Map<String, List<User>> handleOwners = handleOwners();
+        if (handleOwners.isEmpty()) {
+            logger.warn("没有用户配置 Codeforces 账号，跳过比赛 {} 的同步", contestId);
+            return new TrySyncPipeline.Result(0, 0, 0, 0, 0);
+        }
+        Map<Integer, List<UserTryProblem>> triesByUser = cfCrawler.contestTryProblems(contestId, handleOwners);
+        List<UserTryProblem> all = triesByUser.values().stream().flatMap(List::stream).toList();
+        TryBulkWriter.Counts counts = bulkWriter.write(all, writeChunk);
+
+        triesByUser.forEach((userId, tries) -> tries.stream()
+                .map(UserTryProblem::getAttemptTime)
+                .max(Comparator.naturalOrder())
+                .ifPresent(last -> txTemplate.executeWithoutResult(
+                        status -> userRepository.advanceLastTryDate(userId, last))));
+
+        logger.info("比赛 {}（{}）同步完成：{} 位用户，抓取 {} 条，新增 {} 条，跳过 {} 条", contestId,
+                CFCrawler.contestPlatform(contestId), triesByUser.size(), all.size(), counts.inserted(), counts.skipped());
+        return new TrySyncPipeline.Result(triesByUser.size(), all.size(), counts.inserted(), counts.skipped(), 0);
+    }
+
+    // 小写 handle → 绑定该 handle 的所有用户；Gym 与 Codeforces 共用账号
+    private Map<String, List<User>> handleOwners() {
+        Map<String, List<User>> owners = new HashMap<>();
+        for (User user : userRepository.findAllWithOjAccounts()) {
+            user.getOjAccounts().stream()
+                    .filter(uo -> uo.getPlatform() == OJPlatform.CODEFORCES)
+                    .flatMap(uo -> Arrays.stream(uo.getAccountName().split("\\s*,\\s*")))
+                    .filter(h -> !h.isBlank())
+                    .map(String::toLowerCase)
+                    .distinct()
+                    .forEach(h -> owners.computeIfAbsent(h, k -> new ArrayList<>()).add(user));
+        }
+        return owners;
+    }
+}
@@ -0,0 +1,232 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.dto.CrawlJobProgressDTO;
+import com.codingtracker.init.SystemStatsLoader;
+import com.codingtracker.model.CrawlJob;
+import com.codingtracker.model.CrawlUnit;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.CrawlJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重建任务管理：创建、入队、进度查询、取消和收尾。
+ * 任务与其单元都持久化在库中，已完成的单元即检查点；实例重启后未完成的单元由 CrawlUnitWorker 继续认领，
+ * 入队前就中断的任务由 ExtOjService 在启动时重新入队。
+ */
+@Service
+public class CrawlJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlJobService.class);
+
+    /** 清理时每条 DELETE 的最大行数 */
+    private static final int PURGE_CHUNK = 5000;
+
+    private final CrawlJobRepository jobRepo;
+    private final CrawlLeaseService leaseService;
+    private final SystemStatsLoader statsLoader;
+    private final int unitRetentionDays;
+
+    public CrawlJobService(CrawlJobRepository jobRepo,
+                           CrawlLeaseService leaseService,
+                           SystemStatsLoader statsLoader,
+                           @Value("${crawler.cluster.unit-retention-days:7}") int unitRetentionDays) {
+        this.jobRepo = jobRepo;
+        this.leaseService = leaseService;
+        this.statsLoader = statsLoader;
+        this.unitRetentionDays = unitRetentionDays;
+    }
+
+    /**
+     * 是否有重建任务正在运行（任一实例）
+     */
+    public boolean isRunning() {
+        return jobRepo.existsByStatus(CrawlJob.Status.RUNNING);
+    }
+
+    /**
+     * 创建重建任务，已有任务在运行时返回 empty。
+     * 多个实例同时创建时由唯一约束 uk_crawl_job_active 保证只有一个成功
+     */
+    public Optional<CrawlJob> create(boolean fullSync, String createdBy) {
+        if (isRunning()) {
+            return Optional.empty();
+        }
+        CrawlJob job;
+        try {
+            job = jobRepo.saveAndFlush(CrawlJob.builder()
+                    .id(UUID.randomUUID().toString())
+                    .status(CrawlJob.Status.RUNNING)
+                    .active(true)
+                    .fullSync(fullSync)
+                    .createdBy(createdBy)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            logger.info("其他实例已创建运行中的重建任务，本次不再创建");
+            return Optional.empty();
+        }
+        logger.info("创建重建任务 {}（{}），发起人 {}", job.getId(), fullSync ? "全量" : "增量", createdBy);
+        return Optional.of(job);
+    }
+
+    /**
+     * 入队前就中断（实例重启）的运行中任务
+     */
+    public List<CrawlJob> unenqueued() {
+        return jobRepo.findByStatus(CrawlJob.Status.RUNNING).stream()
+                .filter(j -> j.getTotalUnits() == null)
+                .toList();
+    }
+
+    /**
+     * 为任务入队抓取单元，任务已取消时不入队
+     *
+     * @param jobId 任务 ID
+     * @param pairs userId → 平台
+     */
+    @Transactional
+    public void enqueue(String jobId, Map<Integer, ? extends Collection<OJPlatform>> pairs) {
+        CrawlJob job = jobRepo.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != CrawlJob.Status.RUNNING) {
+            return;
+        }
+        int created = leaseService.enqueue(jobId, pairs, CrawlUnit.Kind.REBUILD, job.isFullSync());
+        jobRepo.updateTotalUnits(jobId, created);
+        if (created == 0) {
+            finish(jobId);
+        }
+    }
+
+    /**
+     * 取消任务，未执行的单元不再执行
+     *
+     * @return 任务原本在运行时返回 true
+     */
+    @Transactional
+    public boolean cancel(String jobId) {
+        if (jobRepo.finishIfRunning(jobId, CrawlJob.Status.CANCELLED, LocalDateTime.now(), CrawlJob.Status.RUNNING) == 0) {
+            return false;
+        }
+        int cancelled = leaseService.cancelBatch(jobId);
+        logger.info("重建任务 {} 已取消，{} 个单元未执行", jobId, cancelled);
+        return true;
+    }
+
+    /**
+     * 单元结束后调用：批次内没有未完成单元时结束任务
+     */
+    @Transactional
+    public void onUnitFinished(String jobId) {
+        if (jobId != null && leaseService.activeInBatch(jobId) == 0) {
+            finish(jobId);
+        }
+    }
+
+    /**
+     * 兜底收尾：先把租约多次过期的单元标记失败，再结束没有未完成单元的任务；
+     * 实例在最后一个单元完成后、收尾前崩溃时，也由任一实例补上
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    @Transactional
+    public void sweep() {
+        leaseService.expireExhausted();
+        for (CrawlJob job : jobRepo.findByStatus(CrawlJob.Status.RUNNING)) {
+            if (job.getTotalUnits() != null && leaseService.activeInBatch(job.getId()) == 0) {
+                finish(job.getId());
+            }
+        }
+    }
+
+    /**
+     * 删除结束已久的抓取单元，crawl_unit 不随调度无限增长
+     */
+    @Scheduled(initialDelay = 10, fixedDelay = 60, timeUnit = TimeUnit.MINUTES)
+    public void purge() {
+        try {
+            leaseService.purgeFinished(unitRetentionDays, PURGE_CHUNK);
+        } catch (Exception e) {
+            logger.error("清理抓取单元失败", e);
+        }
+    }
+
+    /**
+     * 指定任务的进度
+     */
+    public Optional<CrawlJobProgressDTO> progress(String jobId) {
+        return jobRepo.findById(jobId).map(this::toProgress);
+    }
+
+    /**
+     * 最近一次任务的进度
+     */
+    public Optional<CrawlJobProgressDTO> latest() {
+        return jobRepo.findFirstByOrderByCreatedAtDesc().map(this::toProgress);
+    }
+
+    private void finish(String jobId) {
+        if (jobRepo.finishIfRunning(jobId, CrawlJob.Status.DONE, LocalDateTime.now(), CrawlJob.Status.RUNNING) == 0) {
+            return;
+        }
+        statsLoader.updateStats(statsLoader.getUserCount(), statsLoader.getSumProblemCount(), statsLoader.getSumTryCount());
+        logger.info("重建任务 {} 完成，更新时间 {}", jobId, statsLoader.getLastUpdateTime());
+    }
+
+    private CrawlJobProgressDTO toProgress(CrawlJob job) {
+        LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+        long elapsed = Math.max(1, Duration.between(job.getCreatedAt(), end).getSeconds());
+
+        Map<OJPlatform, CrawlJobProgressDTO.Progress> byPlatform = new EnumMap<>(OJPlatform.class);
+        CrawlJobProgressDTO.Progress total = new CrawlJobProgressDTO.Progress();
+        for (CrawlLeaseService.UnitTally t : leaseService.tally(job.getId())) {
+            CrawlJobProgressDTO.Progress p = byPlatform.computeIfAbsent(t.platform(), k -> {
+                CrawlJobProgressDTO.Progress np = new CrawlJobProgressDTO.Progress();
+                np.setPlatform(k);
+                return np;
+            });
+            accumulate(p, t);
+            accumulate(total, t);
+        }
+        List<CrawlJobProgressDTO.Progress> platforms = new ArrayList<>(byPlatform.values());
+        platforms.forEach(p -> estimate(p, elapsed, job.getStatus()));
+        estimate(total, elapsed, job.getStatus());
+
+        return new CrawlJobProgressDTO(job.getId(), job.getStatus(), job.isFullSync(), job.getCreatedBy(),
+                job.getCreatedAt(), job.getFinishedAt(), total, platforms);
+    }
+
+    private static void accumulate(CrawlJobProgressDTO.Progress p, CrawlLeaseService.UnitTally t) {
+        p.setTotalUnits(p.getTotalUnits() + t.units());
+        p.setInsertedRows(p.getInsertedRows() + t.inserted());
+        switch (t.status()) {
+            case DONE -> p.setDoneUnits(p.getDoneUnits() + t.units());
+            case FAILED -> p.setFailedUnits(p.getFailedUnits() + t.units());
+            case CANCELLED -> p.setCancelledUnits(p.getCancelledUnits() + t.units());
+            case LEASED -> p.setRunningUnits(p.getRunningUnits() + t.units());
+            default -> {
+            }
+        }
+    }
+
+    // 速度按任务开始至今计算；剩余时间 = 剩余单元 × 已用时间 / 已结束单元
+    private static void estimate(CrawlJobProgressDTO.Progress p, long elapsedSeconds, CrawlJob.Status status) {
+        p.setRowsPerSecond((double) p.getInsertedRows() / elapsedSeconds);
+        long ended = p.getDoneUnits() + p.getFailedUnits() + p.getCancelledUnits();
+        long remaining = p.getTotalUnits() - ended;
+        if (status != CrawlJob.Status.RUNNING || remaining == 0) {
+            p.setEtaSeconds(0L);
+        } else if (ended > 0) {
+            p.setEtaSeconds(remaining * elapsedSeconds / ended);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.CrawlUnit;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.CrawlUnitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 抓取单元的租约管理，多实例共享同一张 crawl_unit 表。
+ * 认领用 SELECT ... FOR UPDATE SKIP LOCKED，多个实例并发认领互不阻塞也不会拿到同一单元；
+ * 租约时间一律按数据库时钟计算，各实例的本地时钟偏差不影响过期判断。
+ * 同一 (用户, 平台) 同时只会有一个未完成的单元（唯一约束 uk_crawl_unit_active）。重建入队时先接管该组合待执行的定时单元，
+ * 其余用 INSERT IGNORE 写入；正在执行的单元无法接管，这些组合本次不入队并记录日志。
+ * 租约过期的单元只在认领次数未达上限时重新认领，达到上限的由 expireExhausted 标记失败，避免反复崩溃的单元无限重试；
+ * 已结束的单元保留 unit-retention-days 天供进度查询，之后由 purgeFinished 删除。
+ */
+@Service
+public class CrawlLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlLeaseService.class);
+
+    private static final int ERROR_MAX_LENGTH = 512;
+
+    private static final String INSERT_UNIT_SQL =
+            "INSERT IGNORE INTO crawl_unit (batch_id, user_id, platform, kind, full_sync, status, active, attempts, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, 'PENDING', TRUE, 0, CURRENT_TIMESTAMP)";
+    private static final String ADOPT_SQL =
+            "UPDATE crawl_unit SET batch_id = ?, kind = ?, full_sync = (full_sync OR ?) " +
+            "WHERE active = TRUE AND status = 'PENDING' AND batch_id IS NULL AND user_id = ? AND platform = ?";
+    private static final String INSERT_LEASED_SQL =
+            "INSERT IGNORE INTO crawl_unit (user_id, platform, kind, full_sync, status, active, owner, lease_until, attempts, " +
+            "created_at, started_at) VALUES (?, ?, 'SCHEDULED', FALSE, 'LEASED', TRUE, ?, " +
+            "TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP), 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+    private static final String SELECT_CLAIMABLE_SQL =
+            "SELECT id, batch_id, user_id, platform, kind, full_sync FROM crawl_unit " +
+            "WHERE active = TRUE AND (status = 'PENDING' OR " +
+            "(status = 'LEASED' AND lease_until < CURRENT_TIMESTAMP AND attempts < ?)) %s" +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String LEASE_SQL_PREFIX =
+            "UPDATE crawl_unit SET status = 'LEASED', owner = ?, lease_until = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP), " +
+            "started_at = CURRENT_TIMESTAMP, attempts = attempts + 1 WHERE id IN ";
+    private static final String RENEW_SQL_PREFIX =
+            "UPDATE crawl_unit SET lease_until = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) " +
+            "WHERE owner = ? AND status = 'LEASED' AND id IN ";
+    private static final String FINISH_SQL =
+            "UPDATE crawl_unit SET status = ?, active = NULL, owner = NULL, lease_until = NULL, " +
+            "finished_at = CURRENT_TIMESTAMP, last_error = ?, fetched = ?, inserted = ? " +
+            "WHERE id = ? AND owner = ? AND status = 'LEASED'";
+    private static final String CANCEL_SQL =
+            "UPDATE crawl_unit SET status = 'CANCELLED', active = NULL, owner = NULL, lease_until = NULL, " +
+            "finished_at = CURRENT_TIMESTAMP WHERE batch_id = ? AND active = TRUE";
+    private static final String PROGRESS_SQL =
+            "SELECT platform, status, COUNT(*) AS units, COALESCE(SUM(inserted), 0) AS inserted " +
+            "FROM crawl_unit WHERE batch_id = ? GROUP BY platform, status";
+    private static final String EXPIRE_EXHAUSTED_SQL =
+            "UPDATE crawl_unit SET status = 'FAILED', active = NULL, owner = NULL, lease_until = NULL, " +
+            "finished_at = CURRENT_TIMESTAMP, last_error = ? " +
+            "WHERE active = TRUE AND status = 'LEASED' AND lease_until < CURRENT_TIMESTAMP AND attempts >= ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM crawl_unit WHERE active IS NULL AND finished_at < TIMESTAMPADD(DAY, ?, CURRENT_TIMESTAMP) LIMIT ?";
+    private static final String RELEASE_SQL =
+            "UPDATE crawl_unit SET status = 'PENDING', owner = NULL, lease_until = NULL, " +
+            "attempts = GREATEST(attempts - 1, 0) WHERE id = ? AND owner = ? AND status = 'LEASED'";
+    private static final String RETRY_SQL =
+            "UPDATE crawl_unit SET status = 'PENDING', owner = NULL, lease_until = NULL, last_error = ? " +
+            "WHERE id = ? AND owner = ? AND status = 'LEASED' AND attempts < ?";
+    private static final String SINCE_DONE_SQL =
+            "SELECT TIMESTAMPDIFF(SECOND, MAX(finished_at), CURRENT_TIMESTAMP) FROM crawl_unit " +
+            "WHERE user_id = ? AND platform = ? AND status = 'DONE'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CrawlUnitRepository unitRepo;
+    private final TransactionTemplate txTemplate;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final int maxAttempts;
+
+    public CrawlLeaseService(JdbcTemplate jdbcTemplate,
+                             CrawlUnitRepository unitRepo,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${crawler.cluster.node-id:}") String nodeId,
+                             @Value("${crawler.cluster.lease-seconds:90}") int leaseSeconds,
+                             @Value("${crawler.cluster.max-attempts:3}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.unitRepo = unitRepo;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        // 默认 pid@hostname 再加随机后缀，同一主机上的多个实例或重启后的实例互不相同
+        this.nodeId = nodeId == null || nodeId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "#" + UUID.randomUUID().toString().substring(0, 8)
+                : nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        logger.info("抓取节点 ID：{}，租约 {} 秒", this.nodeId, leaseSeconds);
+    }
+
+    /**
+     * 已认领的单元
+     */
+    public record Lease(long id, String batchId, Integer userId, OJPlatform platform, CrawlUnit.Kind kind,
+                        boolean fullSync) {
+    }
+
+    /**
+     * 批次内某平台某状态的单元汇总
+     */
+    public record UnitTally(OJPlatform platform, CrawlUnit.Status status, long units, long inserted) {
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public int leaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /**
+     * 为一批 (用户, 平台) 创建待执行单元。
+     * 该组合已有不属于任何批次的待执行单元（定时调度失败后放回队列的）时接管它：并入本批次、按需升级为全量；
+     * 已有正在执行的单元时无法接管，该组合本次跳过，由正在执行的单元完成同步
+     *
+     * @param batchId  批次 ID
+     * @param pairs    userId → 平台
+     * @param kind     来源
+     * @param fullSync 是否全量
+     * @return 本批次实际拥有的单元数（新建 + 接管）
+     */
+    public int enqueue(String batchId, Map<Integer, ? extends Collection<OJPlatform>> pairs, CrawlUnit.Kind kind,
+                       boolean fullSync) {
+        List<Object[]> adopt = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        pairs.forEach((userId, platforms) -> platforms.forEach(p -> {
+            adopt.add(new Object[]{batchId, kind.name(), fullSync, userId, p.name()});
+            rows.add(new Object[]{batchId, userId, p.name(), kind.name(), fullSync});
+        }));
+        txTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(ADOPT_SQL, adopt);
+            jdbcTemplate.batchUpdate(INSERT_UNIT_SQL, rows);
+        });
+        // 批量改写后驱动不返回逐行影响数，按批次回查实际入队数
+        long created = activeInBatch(batchId);
+        long skipped = rows.size() - created;
+        if (skipped > 0) {
+            logger.warn("批次 {} 入队 {} 个抓取单元，{} 个 (用户, 平台) 已有正在执行的单元，本次未入队",
+                    batchId, created, skipped);
+        } else {
+            logger.info("批次 {} 入队 {} 个抓取单元", batchId, created);
+        }
+        return (int) created;
+    }
+
+    /**
+     * 直接以租约状态创建单个单元（定时调度用），该 (用户, 平台) 已有未完成单元时返回 null
+     */
+    public Lease acquire(Integer userId, OJPlatform platform) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int n = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_LEASED_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setInt(1, userId);
+            ps.setString(2, platform.name());
+            ps.setString(3, nodeId);
+            ps.setInt(4, leaseSeconds);
+            return ps;
+        }, keyHolder);
+        if (n == 0 || keyHolder.getKey() == null) {
+            return null;
+        }
+        return new Lease(keyHolder.getKey().longValue(), null, userId, platform, CrawlUnit.Kind.SCHEDULED, false);
+    }
+
+    /**
+     * 该 (用户, 平台) 最近一次成功同步（任一实例、任一来源）距今多久，按数据库时钟计算；没有记录时返回 null
+     */
+    public Duration sinceLastDone(Integer userId, OJPlatform platform) {
+        Long seconds = jdbcTemplate.queryForObject(SINCE_DONE_SQL, Long.class, userId, platform.name());
+        return seconds == null ? null : Duration.ofSeconds(Math.max(0, seconds));
+    }
+
+    /**
+     * 认领至多 limit 个待执行或租约已过期的单元
+     */
+    public List<Lease> claim(int limit) {
+        return claim(limit, Set.of());
+    }
+
+    /**
+     * 认领至多 limit 个待执行或租约已过期的单元，跳过 excluded 中的平台（熔断中或本节点已满）
+     */
+    public List<Lease> claim(int limit, Set<OJPlatform> excluded) {
+        List<Object> platformArgs = new ArrayList<>();
+        excluded.forEach(p -> platformArgs.add(p.name()));
+        return claim(limit, excluded.isEmpty() ? "" : "AND platform NOT IN " + placeholders(excluded.size()) + " ",
+                platformArgs);
+    }
+
+    /**
+     * 只认领某个平台的单元，至多 limit 个
+     */
+    public List<Lease> claim(int limit, OJPlatform platform) {
+        return claim(limit, "AND platform = ? ", List.of(platform.name()));
+    }
+
+    private List<Lease> claim(int limit, String platformFilter, List<Object> platformArgs) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<Object> queryArgs = new ArrayList<>();
+        queryArgs.add(maxAttempts);
+        queryArgs.addAll(platformArgs);
+        queryArgs.add(limit);
+        String sql = String.format(SELECT_CLAIMABLE_SQL, platformFilter);
+        List<Lease> leases = txTemplate.execute(status -> {
+            List<Lease> found = jdbcTemplate.query(sql, (rs, i) -> new Lease(
+                    rs.getLong("id"),
+                    rs.getString("batch_id"),
+                    rs.getInt("user_id"),
+                    OJPlatform.valueOf(rs.getString("platform")),
+                    CrawlUnit.Kind.valueOf(rs.getString("kind")),
+                    rs.getBoolean("full_sync")), queryArgs.toArray());
+            if (!found.isEmpty()) {
+                List<Object> args = new ArrayList<>();
+                args.add(nodeId);
+                args.add(leaseSeconds);
+                found.forEach(l -> args.add(l.id()));
+                jdbcTemplate.update(LEASE_SQL_PREFIX + placeholders(found.size()), args.toArray());
+            }
+            return found;
+        });
+        return leases == null ? List.of() : leases;
+    }
+
+    /**
+     * 为本节点持有的单元续约
+     *
+     * @return 仍由本节点持有的单元数
+     */
+    public int renew(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(leaseSeconds);
+        args.add(nodeId);
+        args.addAll(ids);
+        return jdbcTemplate.update(RENEW_SQL_PREFIX + placeholders(ids.size()), args.toArray());
+    }
+
+    /**
+     * 单元执行成功，记录本单元的抓取/新增条数作为检查点
+     */
+    public void complete(Lease lease, long fetched, long inserted) {
+        if (jdbcTemplate.update(FINISH_SQL, CrawlUnit.Status.DONE.name(), null, fetched, inserted, lease.id(), nodeId) == 0) {
+            logger.warn("抓取单元 {} 的租约已失效或已取消，完成状态未写入", lease.id());
+        }
+    }
+
+    /**
+     * 单元执行失败：未超过最大认领次数时放回队列，否则标记失败
+     */
+    public void fail(Lease lease, String error) {
+        String message = error == null ? null : error.substring(0, Math.min(error.length(), ERROR_MAX_LENGTH));
+        if (jdbcTemplate.update(RETRY_SQL, message, lease.id(), nodeId, maxAttempts) > 0) {
+            return;
+        }
+        jdbcTemplate.update(FINISH_SQL, CrawlUnit.Status.FAILED.name(), message, null, null, lease.id(), nodeId);
+    }
+
+    /**
+     * 单元未执行就被拒绝（平台熔断中）：放回队列并退还本次认领计入的次数
+     */
+    public void release(Lease lease) {
+        jdbcTemplate.update(RELEASE_SQL, lease.id(), nodeId);
+    }
+
+    /**
+     * 租约已过期且认领次数达到上限的单元（执行中实例反复崩溃或卡死）标记为失败，不再认领
+     *
+     * @return 标记失败的单元数
+     */
+    public int expireExhausted() {
+        int n = jdbcTemplate.update(EXPIRE_EXHAUSTED_SQL, "租约过期 " + maxAttempts + " 次，放弃执行", maxAttempts);
+        if (n > 0) {
+            logger.warn("{} 个抓取单元租约多次过期，已标记失败", n);
+        }
+        return n;
+    }
+
+    /**
+     * 删除结束超过 retentionDays 天的单元，每条语句至多删除 chunk 行，避免长时间锁表
+     *
+     * @return 删除的单元数
+     */
+    public int purgeFinished(int retentionDays, int chunk) {
+        int total = 0;
+        int n;
+        do {
+            n = jdbcTemplate.update(PURGE_SQL, -retentionDays, chunk);
+            total += n;
+        } while (n == chunk);
+        if (total > 0) {
+            logger.info("已删除 {} 个结束超过 {} 天的抓取单元", total, retentionDays);
+        }
+        return total;
+    }
+
+    /**
+     * 取消批次中所有未完成的单元，执行中的单元结束时不再写回结果
+     *
+     * @return 取消的单元数
+     */
+    public int cancelBatch(String batchId) {
+        return jdbcTemplate.update(CANCEL_SQL, batchId);
+    }
+
+    /**
+     * 按平台、状态汇总批次内的单元
+     */
+    public List<UnitTally> tally(String batchId) {
+        return jdbcTemplate.query(PROGRESS_SQL, (rs, i) -> new UnitTally(
+                OJPlatform.valueOf(rs.getString("platform")),
+                CrawlUnit.Status.valueOf(rs.getString("status")),
+                rs.getLong("units"),
+                rs.getLong("inserted")), batchId);
+    }
+
+    /**
+     * 批次中未完成的单元数
+     */
+    public long activeInBatch(String batchId) {
+        return unitRepo.countByBatchIdAndActiveTrue(batchId);
+    }
+
+    private static String placeholders(int n) {
+        return Collections.nCopies(n, "?").stream().collect(Collectors.joining(", ", "(", ")"));
+    }
+}
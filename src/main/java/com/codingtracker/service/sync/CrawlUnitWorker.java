@@ -0,0 +1,349 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.CrawlUnit;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 抓取单元执行器：每个实例定期从 crawl_unit 认领单元，按 (平台, 是否全量, 来源) 分组后每组一次批量抓取，
+ * 在该平台的舱壁线程池中执行并续约；每个平台认领的组数不超过本节点该平台的空闲额度，熔断未关闭的平台只在可以探测时认领一个单元。
+ * 节点不设总的组数上限，只按平台限制：某个平台变慢或卡住只占满它自己的额度，其他平台照常认领。
+ * 因熔断被拒绝的单元放回队列且不计认领次数，不会因平台故障被耗尽重试次数而标记失败。
+ * 重建单元经 TrySyncPipeline 的有界流水线写库（抓取与写库分线程、队列限流），定时单元在当前线程直接写库。
+ * 多个实例同时运行时重建工作自动分摊；实例崩溃后其租约过期，单元被其他实例重新认领。
+ * 执行超时的单元会被中断并立即放回队列，中断前的执行即使稍后返回也不再写回单元状态，避免同一单元被执行两次后结果互相覆盖。
+ */
+@Component
+public class CrawlUnitWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlUnitWorker.class);
+
+    private final CrawlLeaseService leaseService;
+    private final TrySyncPipeline pipeline;
+    private final UserRepository userRepository;
+    private final CrawlJobService jobService;
+    private final PlatformBulkheads bulkheads;
+    private final long maxUnitMillis;
+
+    /** 本节点正在执行的单元 → 执行记录 */
+    private final Map<Long, Execution> inFlight = new ConcurrentHashMap<>();
+    /** 各平台已提交未结束的单元组数，本节点的并发只按平台限制，某个平台变慢不会占用其他平台的额度 */
+    private final Map<OJPlatform, AtomicInteger> platformBusy = new ConcurrentHashMap<>();
+
+    /**
+     * 一个单元组的一次执行：开始时间、执行线程，以及是否已因超时被放弃。
+     * 同一组的单元共用一个执行记录；放弃后该次执行不再完成或失败这些单元。
+     * 超时从真正开始执行时计算，在执行器中排队的时间不计入
+     */
+    private static final class Execution {
+        /** 开始执行的时间，尚未开始时为 0 */
+        private volatile long startedAt;
+        private final List<CrawlLeaseService.Lease> leases;
+        private Thread thread;
+        private boolean done;
+        private boolean abandoned;
+
+        Execution(List<CrawlLeaseService.Lease> leases) {
+            this.leases = leases;
+        }
+
+        // 开始执行；排队期间已被放弃时返回 false
+        synchronized boolean start() {
+            thread = Thread.currentThread();
+            startedAt = System.currentTimeMillis();
+            return !abandoned;
+        }
+
+        // 已开始执行且超过时限
+        boolean overdue(long now, long maxMillis) {
+            long started = startedAt;
+            return started > 0 && now - started >= maxMillis;
+        }
+
+        // 执行结束：之后不会再被中断；返回 false 表示已被放弃，调用方不应写回结果
+        synchronized boolean finish() {
+            done = true;
+            thread = null;
+            // 清除放弃时可能留下的中断标记，线程池线程继续执行其他任务
+            Thread.interrupted();
+            return !abandoned;
+        }
+
+        // 放弃执行并中断执行线程；已结束的执行返回 false
+        synchronized boolean abandon() {
+            if (done || abandoned) {
+                return false;
+            }
+            abandoned = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            return true;
+        }
+    }
+
+    public CrawlUnitWorker(CrawlLeaseService leaseService,
+                           TrySyncPipeline pipeline,
+                           UserRepository userRepository,
+                           CrawlJobService jobService,
+                           PlatformBulkheads bulkheads,
+                           @Value("${crawler.cluster.max-unit-minutes:30}") long maxUnitMinutes) {
+        this.leaseService = leaseService;
+        this.pipeline = pipeline;
+        this.userRepository = userRepository;
+        this.jobService = jobService;
+        this.bulkheads = bulkheads;
+        this.maxUnitMillis = TimeUnit.MINUTES.toMillis(maxUnitMinutes);
+    }
+
+    /**
+     * 按各平台本节点的空闲额度逐个平台认领单元，每个空闲额度认领一个批次大小，认领到的单元组数不超过该平台的空闲额度，
+     * 多出的组放回队列（不计认领次数），不会在执行器中排队；熔断未关闭的平台只在可以探测时认领一个单元作为探测
+     */
+    @Scheduled(initialDelayString = "${crawler.cluster.poll-seconds:5}",
+            fixedDelayString = "${crawler.cluster.poll-seconds:5}", timeUnit = TimeUnit.SECONDS)
+    public void poll() {
+        try {
+            Set<OJPlatform> tripped = bulkheads.trippedPlatforms();
+            Set<OJPlatform> probeReady = bulkheads.probeReadyPlatforms();
+            int batchSize = pipeline.batchSize();
+            for (OJPlatform platform : bulkheads.platforms()) {
+                int slots = bulkheads.concurrency() - busyOn(platform).get();
+                if (slots <= 0) {
+                    continue;
+                }
+                List<CrawlLeaseService.Lease> leases;
+                if (tripped.contains(platform)) {
+                    if (!probeReady.contains(platform)) {
+                        continue;
+                    }
+                    slots = 1;
+                    leases = leaseService.claim(1, platform);
+                } else {
+                    leases = leaseService.claim(slots * batchSize, platform);
+                }
+                dispatch(platform, leases, slots, batchSize);
+            }
+        } catch (Exception e) {
+            logger.error("认领抓取单元失败", e);
+        }
+    }
+
+    private AtomicInteger busyOn(OJPlatform platform) {
+        return platformBusy.computeIfAbsent(platform, k -> new AtomicInteger());
+    }
+
+    /**
+     * 把同一平台认领到的单元按 (是否全量, 来源) 分组、按批次大小切块后提交到该平台的舱壁，
+     * 至多提交 slots 块，其余单元放回队列
+     */
+    private void dispatch(OJPlatform platform, List<CrawlLeaseService.Lease> leases, int slots, int batchSize) {
+        Map<String, List<CrawlLeaseService.Lease>> groups = new LinkedHashMap<>();
+        for (CrawlLeaseService.Lease lease : leases) {
+            groups.computeIfAbsent(lease.fullSync() + ":" + lease.kind(), k -> new ArrayList<>()).add(lease);
+        }
+        AtomicInteger onPlatform = busyOn(platform);
+        int submitted = 0;
+        for (List<CrawlLeaseService.Lease> group : groups.values()) {
+            for (int i = 0; i < group.size(); i += batchSize) {
+                List<CrawlLeaseService.Lease> chunk = group.subList(i, Math.min(group.size(), i + batchSize));
+                if (submitted >= slots) {
+                    chunk.forEach(leaseService::release);
+                    continue;
+                }
+                Execution execution = new Execution(chunk);
+                chunk.forEach(l -> inFlight.put(l.id(), execution));
+                onPlatform.incrementAndGet();
+                submitted++;
+                bulkheads.submit(platform, () -> {
+                    try {
+                        runBatch(chunk, execution);
+                    } finally {
+                        onPlatform.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 为执行中的单元续约，间隔应明显短于租约时长。
+     * 执行超过 max-unit-minutes 的单元视为卡住（如某平台无响应）：中断执行线程、停止续约，并按失败放回队列（计入认领次数）
+     */
+    @Scheduled(fixedDelayString = "${crawler.cluster.heartbeat-seconds:20}", timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Long> healthy = new ArrayList<>();
+        Set<Execution> overdue = new LinkedHashSet<>();
+        inFlight.forEach((id, execution) -> {
+            if (execution.overdue(now, maxUnitMillis)) {
+                overdue.add(execution);
+            } else {
+                healthy.add(id);
+            }
+        });
+        for (Execution execution : overdue) {
+            abandon(execution);
+        }
+        try {
+            int held = leaseService.renew(healthy);
+            if (held < healthy.size()) {
+                logger.warn("{} 个抓取单元的租约已被其他节点接管或已取消", healthy.size() - held);
+            }
+        } catch (Exception e) {
+            logger.error("抓取单元续约失败", e);
+        }
+    }
+
+    // 放弃卡住的执行：中断线程后立即把单元放回队列，不等租约过期
+    private void abandon(Execution execution) {
+        if (!execution.abandon()) {
+            return;
+        }
+        String error = "执行超过 " + TimeUnit.MILLISECONDS.toMinutes(maxUnitMillis) + " 分钟，已中断";
+        for (CrawlLeaseService.Lease lease : execution.leases) {
+            logger.warn("抓取单元 {} {}", lease.id(), error);
+            inFlight.remove(lease.id(), execution);
+            try {
+                leaseService.fail(lease, error);
+            } catch (Exception e) {
+                logger.error("放回超时的抓取单元 {} 失败，等待租约过期", lease.id(), e);
+            }
+        }
+    }
+
+    /**
+     * 在当前线程执行一个已认领的单元（定时调度直接调用），执行期间由 heartbeat 续约
+     *
+     * @return 同步统计，用户已不存在、执行异常或超时被中断时返回 null
+     */
+    public TrySyncPipeline.Result run(CrawlLeaseService.Lease lease) {
+        Execution execution = new Execution(List.of(lease));
+        inFlight.put(lease.id(), execution);
+        return run(lease, execution);
+    }
+
+    private TrySyncPipeline.Result run(CrawlLeaseService.Lease lease, Execution execution) {
+        if (!execution.start()) {
+            execution.finish();
+            return null;
+        }
+        TrySyncPipeline.Result result = null;
+        boolean userExists = true;
+        String error = null;
+        try {
+            Optional<User> user = userRepository.findByIdWithOjAccounts(lease.userId());
+            userExists = user.isPresent();
+            if (userExists) {
+                result = pipeline.syncOne(user.get(), lease.platform(), lease.fullSync());
+            }
+        } catch (Exception e) {
+            logger.error("执行抓取单元 {} 失败", lease.id(), e);
+            error = e.toString();
+        }
+        if (!execution.finish()) {
+            // 已因超时被放弃并放回队列，单元可能已被重新认领，不再写回
+            return null;
+        }
+        try {
+            if (!userExists) {
+                // 用户已删除，单元直接结束
+                leaseService.complete(lease, 0, 0);
+            } else if (result != null && result.rejected() > 0) {
+                leaseService.release(lease);
+            } else if (result == null || result.failed() > 0) {
+                leaseService.fail(lease, error != null ? error : "抓取或写库失败");
+            } else {
+                leaseService.complete(lease, result.fetched(), result.inserted());
+            }
+        } catch (Exception e) {
+            logger.error("结束抓取单元 {} 失败", lease.id(), e);
+        } finally {
+            inFlight.remove(lease.id(), execution);
+        }
+        if (lease.kind() == CrawlUnit.Kind.REBUILD) {
+            try {
+                jobService.onUnitFinished(lease.batchId());
+            } catch (Exception e) {
+                logger.error("重建任务 {} 收尾失败，等待定时兜底", lease.batchId(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 执行同一 (平台, 是否全量, 来源) 的一组已认领单元：一次加载用户、一次批量抓取，各单元分别完成或失败
+     */
+    void runBatch(List<CrawlLeaseService.Lease> leases, Execution execution) {
+        CrawlLeaseService.Lease first = leases.get(0);
+        if (leases.size() == 1 && first.kind() != CrawlUnit.Kind.REBUILD) {
+            run(first, execution);
+            return;
+        }
+        if (!execution.start()) {
+            execution.finish();
+            return;
+        }
+        Map<Integer, TrySyncPipeline.Result> results = Map.of();
+        Map<Integer, User> users = new LinkedHashMap<>();
+        boolean loaded = false;
+        try {
+            userRepository.findAllByIdWithOjAccounts(leases.stream().map(CrawlLeaseService.Lease::userId).toList())
+                    .forEach(u -> users.put(u.getId(), u));
+            loaded = true;
+            List<User> batch = new ArrayList<>(users.values());
+            results = first.kind() == CrawlUnit.Kind.REBUILD
+                    ? pipeline.runPlatform(batch, first.platform(), first.fullSync())
+                    : pipeline.syncBatch(batch, first.platform(), first.fullSync());
+        } catch (Exception e) {
+            logger.error("批量执行 {} 个 {} 抓取单元失败", leases.size(), first.platform(), e);
+        }
+        if (!execution.finish()) {
+            // 已因超时被放弃并放回队列，单元可能已被重新认领，不再写回
+            return;
+        }
+        Set<String> rebuildBatches = new LinkedHashSet<>();
+        for (CrawlLeaseService.Lease lease : leases) {
+            try {
+                TrySyncPipeline.Result result = results.get(lease.userId());
+                if (loaded && !users.containsKey(lease.userId())) {
+                    // 用户已删除，单元直接结束
+                    leaseService.complete(lease, 0, 0);
+                } else if (result != null && result.rejected() > 0) {
+                    leaseService.release(lease);
+                } else if (result == null || result.failed() > 0) {
+                    leaseService.fail(lease, "抓取或写库失败");
+                } else {
+                    leaseService.complete(lease, result.fetched(), result.inserted());
+                }
+            } catch (Exception e) {
+                logger.error("结束抓取单元 {} 失败", lease.id(), e);
+            } finally {
+                inFlight.remove(lease.id(), execution);
+            }
+            if (lease.kind() == CrawlUnit.Kind.REBUILD) {
+                rebuildBatches.add(lease.batchId());
+            }
+        }
+        for (String batchId : rebuildBatches) {
+            try {
+                jobService.onUnitFinished(batchId);
+            } catch (Exception e) {
+                logger.error("重建任务 {} 收尾失败，等待定时兜底", batchId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.service.extoj.IExtOJAdapter;
+import com.codingtracker.util.VirtualThreads;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 按平台隔离的舱壁与熔断器。
+ * 每个适配器平台有独立的并发额度和熔断器：某个 OJ 宕机或变慢时只占满自己的额度，
+ * 连续失败后熔断，冷却期内直接拒绝，不再逐个用户重试超时，其他平台的同步不受影响。
+ * <p>
+ * 两种执行模式（crawler.executor.mode）：
+ * platform —— 每个平台一个固定大小的平台线程池，并发数即池大小；
+ * virtual  —— 所有平台共用一个虚拟线程执行器，每个平台的并发由信号量限制（每个平台对应一个 host），
+ *            抓取是纯 I/O，可以有远多于 CPU 核数的请求同时在途。需要 Java 21 运行时，否则退回 platform 模式。
+ */
+@Component
+public class PlatformBulkheads {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlatformBulkheads.class);
+
+    /**
+     * 熔断器打开时拒绝调用
+     */
+    public static class OpenException extends RuntimeException {
+        public OpenException(OJPlatform platform) {
+            super(platform + " 熔断中，暂不调用");
+        }
+    }
+
+    private final int concurrency;
+    private final Map<OJPlatform, CircuitBreaker> breakers = new EnumMap<>(OJPlatform.class);
+    /** platform 模式：各平台的线程池 */
+    private final Map<OJPlatform, ExecutorService> executors = new EnumMap<>(OJPlatform.class);
+    /** virtual 模式：共用的虚拟线程执行器，platform 模式下为 null */
+    private final ExecutorService virtualExecutor;
+    /** virtual 模式：各平台的并发额度 */
+    private final Map<OJPlatform, Semaphore> permits = new EnumMap<>(OJPlatform.class);
+
+    public PlatformBulkheads(List<IExtOJAdapter> adapters,
+                             @Value("${crawler.executor.mode:platform}") String mode,
+                             @Value("${crawler.bulkhead.threads-per-platform:2}") int threadsPerPlatform,
+                             @Value("${crawler.executor.virtual-per-platform:16}") int virtualPerPlatform,
+                             @Value("${crawler.breaker.failure-threshold:5}") int failureThreshold,
+                             @Value("${crawler.breaker.cool-down-seconds:120}") long coolDownSeconds) {
+        this.virtualExecutor = "virtual".equalsIgnoreCase(mode) ? newVirtualExecutor() : null;
+        this.concurrency = Math.max(1, virtualExecutor != null ? virtualPerPlatform : threadsPerPlatform);
+        for (IExtOJAdapter adapter : adapters) {
+            OJPlatform platform = adapter.getOjType();
+            breakers.put(platform, new CircuitBreaker(platform.name(), failureThreshold,
+                    TimeUnit.SECONDS.toMillis(coolDownSeconds)));
+            if (virtualExecutor != null) {
+                permits.put(platform, new Semaphore(concurrency));
+                continue;
+            }
+            String threadName = "bulkhead-" + platform.name().toLowerCase();
+            executors.put(platform, Executors.newFixedThreadPool(this.concurrency, r -> {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            }));
+        }
+        logger.info("抓取执行模式 {}，每平台并发 {}", virtualExecutor != null ? "virtual" : "platform", concurrency);
+    }
+
+    private static ExecutorService newVirtualExecutor() {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+        if (executor == null) {
+            logger.warn("虚拟线程不可用，退回 platform 模式");
+        }
+        return executor;
+    }
+
+    /**
+     * 有舱壁的平台（即有适配器的平台）
+     */
+    public Set<OJPlatform> platforms() {
+        return EnumSet.copyOf(breakers.keySet());
+    }
+
+    /**
+     * 每个平台同时执行的抓取数上限（platform 模式为池大小，virtual 模式为信号量额度）
+     */
+    public int concurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 在调用线程上经熔断器执行一次平台调用，成功/失败计入熔断器
+     *
+     * @throws OpenException 熔断器打开
+     */
+    public <T> T call(OJPlatform platform, Callable<T> action) throws Exception {
+        CircuitBreaker breaker = breakers.get(platform);
+        if (breaker == null) {
+            return action.call();
+        }
+        if (!breaker.tryAcquire()) {
+            throw new OpenException(platform);
+        }
+        try {
+            T result = action.call();
+            breaker.onSuccess();
+            return result;
+        } catch (Exception e) {
+            breaker.onFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * 在平台自己的并发额度内执行任务，任务内的平台调用应经 call 计入熔断器
+     */
+    public Future<?> submit(OJPlatform platform, Runnable task) {
+        if (virtualExecutor != null) {
+            Semaphore slots = permits.get(platform);
+            if (slots == null) {
+                throw new RuntimeException("No bulkhead for " + platform);
+            }
+            return virtualExecutor.submit(() -> {
+                try {
+                    slots.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+        ExecutorService executor = executors.get(platform);
+        if (executor == null) {
+            throw new RuntimeException("No bulkhead for " + platform);
+        }
+        return executor.submit(task);
+    }
+
+    /**
+     * 熔断器是否处于冷却期
+     */
+    public boolean isOpen(OJPlatform platform) {
+        CircuitBreaker breaker = breakers.get(platform);
+        return breaker != null && breaker.isOpen();
+    }
+
+    /**
+     * 熔断器未关闭（冷却中或半开）的平台：这些平台只放行单个探测调用，不应批量派发
+     */
+    public Set<OJPlatform> trippedPlatforms() {
+        Set<OJPlatform> tripped = EnumSet.noneOf(OJPlatform.class);
+        breakers.forEach((platform, breaker) -> {
+            if (!breaker.isClosed()) {
+                tripped.add(platform);
+            }
+        });
+        return tripped;
+    }
+
+    /**
+     * 下一次调用会作为探测放行的平台
+     */
+    public Set<OJPlatform> probeReadyPlatforms() {
+        Set<OJPlatform> ready = EnumSet.noneOf(OJPlatform.class);
+        breakers.forEach((platform, breaker) -> {
+            if (breaker.isProbeReady()) {
+                ready.add(platform);
+            }
+        });
+        return ready;
+    }
+
+    @PreDestroy
+    public void close() {
+        executors.values().forEach(ExecutorService::shutdownNow);
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdownNow();
+        }
+        logger.info("平台舱壁线程池已关闭");
+    }
+}
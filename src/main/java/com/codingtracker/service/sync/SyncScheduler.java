@@ -0,0 +1,344 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.crawler.HostRateLimiter;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserOJ;
+import com.codingtracker.repository.UserRepository;
+import com.codingtracker.service.ExtOjService;
+import com.codingtracker.service.extoj.IExtOJAdapter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 按活跃度调度的增量同步。
+ * 每个 (用户, 平台) 是一个作业，按下次到期时间放在优先队列里；定时 tick 取出到期作业交给线程池执行。
+ * 到期间隔由角色决定基准（正式队员最频繁，退役很少，退出/拒绝不同步），
+ * 再按最后尝试时间和最近几次是否抓到新提交放大或缩小。
+ * 并发受每平台信号量约束，总请求量受本实例每分钟预算约束（按本实例 HostRateLimiter 实际放行的请求数计）。
+ * 每个实例各自维护作业队列，执行前先查 crawl_unit：该 (用户, 平台) 在间隔内已由任一实例同步成功时不再执行，
+ * 顺延到那次同步之后的到期时间；否则在 crawl_unit 中租下该组合再执行，同一时刻只会有一个实例在同步它。
+ * 这样多实例部署时每个作业在一个间隔内大约只同步一次，不会随实例数成倍放大上游请求。
+ */
+@Component
+public class SyncScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncScheduler.class);
+
+    /** 估算单个增量作业发出的请求数，用于预留预算 */
+    private static final int EST_REQUESTS_PER_JOB = 2;
+    /** 连续无新提交时间隔最多放大 2^MAX_BACKOFF 倍 */
+    private static final int MAX_BACKOFF = 3;
+
+    private final CrawlLeaseService leaseService;
+    private final CrawlUnitWorker unitWorker;
+    private final UserRepository userRepository;
+    private final ExtOjService extOjService;
+    private final HostRateLimiter rateLimiter;
+    private final PlatformBulkheads bulkheads;
+    private final Set<OJPlatform> platforms = EnumSet.noneOf(OJPlatform.class);
+
+    private final boolean enabled;
+    private final Duration acmerInterval;
+    private final Duration defaultInterval;
+    private final Duration retiredInterval;
+    private final Duration minInterval;
+    private final Duration refreshInterval;
+    private final int requestsPerMinute;
+
+    private final Map<OJPlatform, Semaphore> platformSlots = new EnumMap<>(OJPlatform.class);
+    private final ExecutorService workers;
+
+    /** 按到期时间排序的作业队列，正在执行的作业不在队列中 */
+    private final PriorityQueue<Job> queue = new PriorityQueue<>(Comparator.comparing(Job::getDueAt));
+    private final Map<String, Job> jobs = new HashMap<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    /** 最近一分钟的请求计数采样：(时间, 累计请求数) */
+    private final Deque<long[]> requestSamples = new ArrayDeque<>();
+    private LocalDateTime lastRefresh;
+
+    public SyncScheduler(CrawlLeaseService leaseService,
+                         CrawlUnitWorker unitWorker,
+                         UserRepository userRepository,
+                         ExtOjService extOjService,
+                         HostRateLimiter rateLimiter,
+                         PlatformBulkheads bulkheads,
+                         List<IExtOJAdapter> adapters,
+                         @Value("${crawler.scheduler.enabled:true}") boolean enabled,
+                         @Value("${crawler.scheduler.acmer-interval-minutes:30}") long acmerMinutes,
+                         @Value("${crawler.scheduler.default-interval-minutes:180}") long defaultMinutes,
+                         @Value("${crawler.scheduler.retired-interval-minutes:1440}") long retiredMinutes,
+                         @Value("${crawler.scheduler.min-interval-minutes:10}") long minMinutes,
+                         @Value("${crawler.scheduler.refresh-minutes:10}") long refreshMinutes,
+                         @Value("${crawler.scheduler.platform-concurrency:2}") int platformConcurrency,
+                         @Value("${crawler.scheduler.requests-per-minute:60}") int requestsPerMinute) {
+        this.leaseService = leaseService;
+        this.unitWorker = unitWorker;
+        this.userRepository = userRepository;
+        this.extOjService = extOjService;
+        this.rateLimiter = rateLimiter;
+        this.bulkheads = bulkheads;
+        adapters.forEach(a -> platforms.add(a.getOjType()));
+        this.enabled = enabled;
+        this.acmerInterval = Duration.ofMinutes(acmerMinutes);
+        this.defaultInterval = Duration.ofMinutes(defaultMinutes);
+        this.retiredInterval = Duration.ofMinutes(retiredMinutes);
+        this.minInterval = Duration.ofMinutes(minMinutes);
+        this.refreshInterval = Duration.ofMinutes(refreshMinutes);
+        this.requestsPerMinute = requestsPerMinute;
+        for (OJPlatform platform : platforms) {
+            platformSlots.put(platform, new Semaphore(Math.max(1, platformConcurrency)));
+        }
+        this.workers = Executors.newFixedThreadPool(Math.max(1, platforms.size() * Math.max(1, platformConcurrency)), r -> {
+            Thread t = new Thread(r, "sync-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 单个 (用户, 平台) 作业及其调度状态
+     */
+    private static final class Job {
+        final Integer userId;
+        final OJPlatform platform;
+        User user;
+        LocalDateTime dueAt;
+        /** 连续没有抓到新提交的次数 */
+        int emptyRuns;
+        /** 上一次是否抓到新提交 */
+        boolean lastFoundNew;
+
+        Job(User user, OJPlatform platform) {
+            this.userId = user.getId();
+            this.platform = platform;
+            this.user = user;
+        }
+
+        LocalDateTime getDueAt() {
+            return dueAt;
+        }
+
+        String key() {
+            return key(userId, platform);
+        }
+
+        static String key(Integer userId, OJPlatform platform) {
+            return userId + "|" + platform;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${crawler.scheduler.initial-delay-seconds:60}",
+            fixedDelayString = "${crawler.scheduler.tick-seconds:15}", timeUnit = TimeUnit.SECONDS)
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        // 任一实例的手动重建进行中时让路，把上游请求额度留给重建
+        if (extOjService.isUpdating()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (lastRefresh == null || lastRefresh.plus(refreshInterval).isBefore(now)) {
+                refreshJobs(now);
+            }
+            dispatch(now);
+        } catch (Exception e) {
+            logger.error("同步调度失败", e);
+        }
+    }
+
+    // 按当前用户和账号重建作业集合：新账号立即到期，已有作业保留调度状态，失效作业移除
+    private synchronized void refreshJobs(LocalDateTime now) {
+        Set<String> alive = new HashSet<>();
+        for (User user : userRepository.findAllWithOjAccounts()) {
+            if (baseInterval(user) == null || user.getOjAccounts() == null) {
+                continue;
+            }
+            for (OJPlatform platform : platformsOf(user)) {
+                String key = Job.key(user.getId(), platform);
+                alive.add(key);
+                Job job = jobs.get(key);
+                if (job == null) {
+                    job = new Job(user, platform);
+                    job.dueAt = now;
+                    jobs.put(key, job);
+                    queue.add(job);
+                } else {
+                    job.user = user;
+                }
+            }
+        }
+        jobs.keySet().removeIf(k -> !alive.contains(k));
+        queue.removeIf(j -> !alive.contains(j.key()));
+        lastRefresh = now;
+    }
+
+    private Set<OJPlatform> platformsOf(User user) {
+        Set<OJPlatform> result = EnumSet.noneOf(OJPlatform.class);
+        for (UserOJ account : user.getOjAccounts()) {
+            if (platforms.contains(account.getPlatform())) {
+                result.add(account.getPlatform());
+            }
+        }
+        return result;
+    }
+
+    // 取出到期作业，平台熔断中或并发已满的留到下一轮，预算用完即停
+    private synchronized void dispatch(LocalDateTime now) {
+        int budget = requestsPerMinute - requestsLastMinute() - running.size() * EST_REQUESTS_PER_JOB;
+        List<Job> deferred = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().dueAt.isAfter(now) && budget >= EST_REQUESTS_PER_JOB) {
+            Job job = queue.poll();
+            Semaphore slots = platformSlots.get(job.platform);
+            if (bulkheads.isOpen(job.platform) || !slots.tryAcquire()) {
+                deferred.add(job);
+                continue;
+            }
+            budget -= EST_REQUESTS_PER_JOB;
+            running.add(job.key());
+            workers.submit(() -> execute(job, slots));
+        }
+        queue.addAll(deferred);
+    }
+
+    // 间隔内已由其他实例（或重建）同步过的作业顺延；否则先在 crawl_unit 中占住该 (用户, 平台)，其他实例正在处理时本轮跳过
+    private void execute(Job job, Semaphore slots) {
+        TrySyncPipeline.Result result = null;
+        Duration postpone = null;
+        try {
+            Duration interval = shortestInterval(job);
+            Duration since = leaseService.sinceLastDone(job.userId, job.platform);
+            if (interval != null && since != null && since.compareTo(interval) < 0) {
+                postpone = interval.minus(since);
+                return;
+            }
+            CrawlLeaseService.Lease lease = leaseService.acquire(job.userId, job.platform);
+            if (lease == null) {
+                return;
+            }
+            result = unitWorker.run(lease);
+            if (result != null && result.inserted() > 0) {
+                logger.info("调度同步用户 {} 的 {}：新增 {} 条", job.user.getUsername(), job.platform, result.inserted());
+            }
+        } catch (Exception e) {
+            logger.error("调度同步用户 {} 的 {} 失败", job.user.getUsername(), job.platform, e);
+        } finally {
+            slots.release();
+            if (postpone != null) {
+                postpone(job, postpone);
+            } else {
+                reschedule(job, result);
+            }
+        }
+    }
+
+    // 其他实例刚同步过：不改变本地的活跃度状态，只把到期时间顺延到那次同步之后
+    private synchronized void postpone(Job job, Duration delay) {
+        running.remove(job.key());
+        if (!jobs.containsKey(job.key())) {
+            return;
+        }
+        logger.debug("用户 {} 的 {} 已由其他实例同步，{} 秒后再检查", job.userId, job.platform, delay.getSeconds());
+        job.dueAt = LocalDateTime.now().plus(delay);
+        queue.add(job);
+    }
+
+    private synchronized void reschedule(Job job, TrySyncPipeline.Result result) {
+        running.remove(job.key());
+        if (!jobs.containsKey(job.key())) {
+            return;
+        }
+        boolean foundNew = result != null && result.inserted() > 0;
+        job.lastFoundNew = foundNew;
+        job.emptyRuns = foundNew ? 0 : Math.min(job.emptyRuns + 1, MAX_BACKOFF);
+        Duration interval = nextInterval(job);
+        if (interval == null) {
+            jobs.remove(job.key());
+            return;
+        }
+        job.dueAt = LocalDateTime.now().plus(interval);
+        queue.add(job);
+    }
+
+    /**
+     * 下次同步间隔：角色基准 × 活跃度系数 × 新提交系数，再加 ±10% 抖动错开同一时刻到期的作业
+     */
+    private Duration nextInterval(Job job) {
+        return interval(job, 0.9 + ThreadLocalRandom.current().nextDouble() * 0.2);
+    }
+
+    /**
+     * 抖动取下限时的间隔：最近一次成功同步距今不到这么久，说明已在本轮间隔内同步过
+     */
+    private Duration shortestInterval(Job job) {
+        return interval(job, 0.9);
+    }
+
+    private Duration interval(Job job, double jitter) {
+        Duration base = baseInterval(job.user);
+        if (base == null) {
+            return null;
+        }
+        double factor = activityFactor(job.user.getLastTryDate());
+        if (job.lastFoundNew) {
+            factor *= 0.5;
+        } else {
+            factor *= 1 << job.emptyRuns;
+        }
+        factor *= jitter;
+        Duration interval = Duration.ofSeconds((long) (base.getSeconds() * factor));
+        return interval.compareTo(minInterval) < 0 ? minInterval : interval;
+    }
+
+    // 多个角色取最频繁的那个；只有退出/拒绝角色的用户返回 null，不调度
+    private Duration baseInterval(User user) {
+        Set<User.Type> roles = user.getRoles();
+        if (roles.contains(User.Type.ACMER)) {
+            return acmerInterval;
+        }
+        boolean other = roles.stream().anyMatch(r -> r != User.Type.RETIRED && r != User.Type.QUIT && r != User.Type.REJECT);
+        if (other || roles.isEmpty()) {
+            return defaultInterval;
+        }
+        return roles.contains(User.Type.RETIRED) ? retiredInterval : null;
+    }
+
+    // 最近一周有提交按原间隔，一个月内放大 2 倍，更久或从未提交放大 4 倍
+    private static double activityFactor(LocalDateTime lastTryDate) {
+        if (lastTryDate == null) {
+            return 4;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (lastTryDate.isAfter(now.minusDays(7))) {
+            return 1;
+        }
+        return lastTryDate.isAfter(now.minusDays(30)) ? 2 : 4;
+    }
+
+    // 用 HostRateLimiter 的累计请求数估算最近一分钟发出的请求（含手动刷新等其他来源）
+    private int requestsLastMinute() {
+        long nowMillis = System.currentTimeMillis();
+        long total = rateLimiter.totalRequests();
+        requestSamples.addLast(new long[]{nowMillis, total});
+        while (requestSamples.size() > 1 && requestSamples.peekFirst()[0] < nowMillis - 60_000) {
+            requestSamples.pollFirst();
+        }
+        return (int) (total - requestSamples.peekFirst()[1]);
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,187 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.ProblemResult;
+import com.codingtracker.model.UserTryProblem;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * user_try_problem 的幂等批量写入。
+ * 依赖唯一约束 uk_user_problem_time (user_id, problem_id, attempt_time, result)，
+ * 用多行 INSERT IGNORE 写入，重复记录由数据库丢弃，增量同步时 Java 侧不读取历史记录；
+ * 受影响行数即新增条数，其余计为跳过。写入前先用 TryKey 在内存中去重、排序，不比较实体。
+ * INSERT IGNORE 会把截断、外键等错误也降级为警告，每块写完检查 SHOW WARNINGS，
+ * 出现重复键以外的警告时整块回滚并抛出异常，不会被计为跳过。
+ * <p>
+ * 主键来自独立的 id_sequence 号段表，每块在单独的短事务中原子推进 next_val 取一段连续 ID，
+ * 不依赖 Hibernate 序列优化器的分配规则；user_try_problem 只经由本类写入。
+ */
+@Component
+public class TryBulkWriter {
+
+    /** id_sequence 中本表的序列名 */
+    private static final String SEQ_NAME = "user_try_problem";
+
+    /** MySQL 重复键错误码，INSERT IGNORE 下以警告形式出现 */
+    private static final int ER_DUP_ENTRY = 1062;
+
+    private static final String INSERT_PREFIX =
+            "INSERT IGNORE INTO user_try_problem (id, user_id, problem_id, oj_name, result, attempt_time) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?)";
+    private static final String ADVANCE_SEQ =
+            "UPDATE id_sequence SET next_val = LAST_INSERT_ID(next_val + ?) WHERE name = ?";
+    private static final String SEED_SEQ =
+            "INSERT INTO id_sequence (name, next_val) SELECT ?, COALESCE(MAX(id), 0) + 1 FROM user_try_problem " +
+            "ON DUPLICATE KEY UPDATE name = name";
+    private static final String SELECT_KEYS =
+            "SELECT user_id, problem_id, attempt_time, result FROM user_try_problem WHERE user_id = ? AND oj_name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+
+    public TryBulkWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 写入统计
+     *
+     * @param inserted 新增条数
+     * @param skipped  因已存在被忽略的条数
+     */
+    public record Counts(long inserted, long skipped) {
+
+        public static final Counts ZERO = new Counts(0, 0);
+
+        public Counts plus(Counts other) {
+            return new Counts(inserted + other.inserted, skipped + other.skipped);
+        }
+    }
+
+    /**
+     * 幂等写入一批尝试记录，每 chunkSize 条一个短事务、一条多行 INSERT
+     *
+     * @param tries     尝试记录，user 与 extOjPbInfo 需带 ID
+     * @param chunkSize 每条语句的最大行数
+     * @return 新增与跳过条数
+     */
+    public Counts write(List<UserTryProblem> tries, int chunkSize) {
+        return write(tries, chunkSize, null);
+    }
+
+    /**
+     * 幂等写入一批尝试记录。先按 TryKey 去重并按唯一索引顺序排序，
+     * existing 中已有的键不再发往数据库，直接计为跳过
+     *
+     * @param tries     尝试记录，user 与 extOjPbInfo 需带 ID
+     * @param chunkSize 每条语句的最大行数
+     * @param existing  库中已有记录的键，可为 null
+     * @return 新增与跳过条数
+     */
+    public Counts write(List<UserTryProblem> tries, int chunkSize, TryKeySet existing) {
+        List<UserTryProblem> fresh = distinctSorted(tries, existing);
+        Counts total = new Counts(0, tries.size() - fresh.size());
+        for (int from = 0; from < fresh.size(); from += chunkSize) {
+            List<UserTryProblem> chunk = fresh.subList(from, Math.min(from + chunkSize, fresh.size()));
+            long firstId = allocateIds(chunk.size());
+            Counts counts = txTemplate.execute(status -> insertChunk(chunk, firstId));
+            if (counts != null) {
+                total = total.plus(counts);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 读取用户在某平台已有记录的键，只取四列标量，不加载实体
+     */
+    public TryKeySet existingKeys(Integer userId, OJPlatform platform) {
+        TryKeySet keys = new TryKeySet();
+        jdbcTemplate.query(SELECT_KEYS, rs -> {
+            keys.add(TryKey.hi(rs.getLong(1), rs.getLong(2)),
+                    TryKey.lo(rs.getTimestamp(3).toLocalDateTime().toEpochSecond(ZoneOffset.UTC),
+                            ProblemResult.valueOf(rs.getString(4)).ordinal()));
+        }, userId, platform.name());
+        return keys;
+    }
+
+    // 按键去重、排序，并剔除 existing 中已有的记录
+    private static List<UserTryProblem> distinctSorted(List<UserTryProblem> tries, TryKeySet existing) {
+        TryKeySet seen = new TryKeySet(tries.size());
+        TryKey[] keys = new TryKey[tries.size()];
+        Integer[] order = new Integer[tries.size()];
+        int n = 0;
+        for (int i = 0; i < tries.size(); i++) {
+            TryKey key = TryKey.of(tries.get(i));
+            if ((existing == null || !existing.contains(key)) && seen.add(key)) {
+                keys[i] = key;
+                order[n++] = i;
+            }
+        }
+        Arrays.sort(order, 0, n, Comparator.comparing(i -> keys[i]));
+        List<UserTryProblem> result = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            result.add(tries.get(order[k]));
+        }
+        return result;
+    }
+
+    private Counts insertChunk(List<UserTryProblem> chunk, long firstId) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW_PLACEHOLDER.length() + 1));
+        sql.append(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(chunk.size() * 6);
+        for (int i = 0; i < chunk.size(); i++) {
+            UserTryProblem t = chunk.get(i);
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args.add(firstId + i);
+            args.add(t.getUser().getId());
+            args.add(t.getExtOjPbInfo().getId());
+            args.add(t.getOjName() == null ? null : t.getOjName().name());
+            args.add(t.getResult().name());
+            args.add(Timestamp.valueOf(t.getAttemptTime()));
+        }
+        int inserted = jdbcTemplate.update(sql.toString(), args.toArray());
+        checkWarnings();
+        return new Counts(inserted, chunk.size() - inserted);
+    }
+
+    // 与 INSERT 在同一事务（同一连接）中读取警告，重复键之外的都视为写入失败
+    private void checkWarnings() {
+        List<String> unexpected = jdbcTemplate.query("SHOW WARNINGS", (rs, i) ->
+                        rs.getInt("Code") == ER_DUP_ENTRY ? null : rs.getInt("Code") + " " + rs.getString("Message"))
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+        if (!unexpected.isEmpty()) {
+            throw new RuntimeException("批量写入尝试记录出现异常警告：" + unexpected.get(0)
+                    + (unexpected.size() > 1 ? " 等 " + unexpected.size() + " 条" : ""));
+        }
+    }
+
+    // 在独立短事务中把 next_val 原子推进 n，LAST_INSERT_ID 返回推进后的值，本块使用 [旧值, 新值)；
+    // 序列行不存在时按表中最大 ID 初始化
+    private long allocateIds(int n) {
+        Long next = txTemplate.execute(status -> {
+            if (jdbcTemplate.update(ADVANCE_SEQ, n, SEQ_NAME) == 0) {
+                jdbcTemplate.update(SEED_SEQ, SEQ_NAME);
+                jdbcTemplate.update(ADVANCE_SEQ, n, SEQ_NAME);
+            }
+            return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+        });
+        if (next == null) {
+            throw new RuntimeException("分配 user_try_problem 主键失败");
+        }
+        return next - n;
+    }
+}
@@ -0,0 +1,46 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.ProblemResult;
+import com.codingtracker.model.UserTryProblem;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 一条尝试记录的紧凑键，对应唯一约束 (user_id, problem_id, attempt_time, result)，用两个 long 表示：
+ * hi = 用户 ID(高 24 位) | 题目 ID(低 40 位)，lo = 尝试时间秒数(高 56 位) | 结果序号(低 8 位)。
+ * 按 (hi, lo) 有符号比较即为按 用户、题目、时间、结果 排序，与唯一索引顺序一致。
+ *
+ * @param hi 用户 ID 与题目 ID
+ * @param lo 尝试时间与结果
+ */
+public record TryKey(long hi, long lo) implements Comparable<TryKey> {
+
+    private static final int PROBLEM_BITS = 40;
+    private static final int RESULT_BITS = 8;
+
+    public static TryKey of(UserTryProblem t) {
+        return of(t.getUser().getId(), t.getExtOjPbInfo().getId(), t.getAttemptTime(), t.getResult());
+    }
+
+    public static TryKey of(long userId, long problemId, LocalDateTime attemptTime, ProblemResult result) {
+        return new TryKey(hi(userId, problemId), lo(attemptTime.toEpochSecond(ZoneOffset.UTC), result.ordinal()));
+    }
+
+    public static long hi(long userId, long problemId) {
+        if (userId <= 0 || userId >= 1L << (63 - PROBLEM_BITS) || problemId < 0 || problemId >= 1L << PROBLEM_BITS) {
+            throw new IllegalArgumentException("ID 超出键编码范围: user=" + userId + ", problem=" + problemId);
+        }
+        return (userId << PROBLEM_BITS) | problemId;
+    }
+
+    public static long lo(long epochSecond, int resultOrdinal) {
+        return (epochSecond << RESULT_BITS) | resultOrdinal;
+    }
+
+    @Override
+    public int compareTo(TryKey o) {
+        int c = Long.compare(hi, o.hi);
+        return c != 0 ? c : Long.compare(lo, o.lo);
+    }
+}
@@ -0,0 +1,100 @@
+package com.codingtracker.service.sync;
+
+/**
+ * TryKey 的开放寻址哈希集合，键成对存放在一个 long 数组里，不装箱、不持有实体。
+ * 每个键占 16 字节，负载因子 0.5~0.75，两百万条约 32~64 MB。
+ * hi 为 0 表示空槽（用户 ID 从 1 开始，合法键的 hi 不会为 0）。非线程安全。
+ */
+public class TryKeySet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** 交错存放 hi、lo */
+    private long[] slots;
+    private int mask;
+    private int size;
+
+    public TryKeySet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected 预计元素数
+     */
+    public TryKeySet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expected * 4 / 3 + 1) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean add(TryKey key) {
+        return add(key.hi(), key.lo());
+    }
+
+    /**
+     * @return 键原本不存在时返回 true
+     */
+    public boolean add(long hi, long lo) {
+        if (hi == 0) {
+            throw new IllegalArgumentException("hi 不能为 0");
+        }
+        int i = indexOf(hi, lo);
+        if (slots[i] != 0) {
+            return false;
+        }
+        slots[i] = hi;
+        slots[i + 1] = lo;
+        if (++size > (mask + 1) * 3 / 4) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(TryKey key) {
+        return contains(key.hi(), key.lo());
+    }
+
+    public boolean contains(long hi, long lo) {
+        return hi != 0 && slots[indexOf(hi, lo)] != 0;
+    }
+
+    // 线性探测，返回键所在槽或应插入的空槽（偶数下标）
+    private int indexOf(long hi, long lo) {
+        int slot = mix(hi, lo) & mask;
+        while (true) {
+            int i = slot << 1;
+            long h = slots[i];
+            if (h == 0 || (h == hi && slots[i + 1] == lo)) {
+                return i;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        long[] old = slots;
+        allocate((mask + 1) << 1);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0) {
+                int j = indexOf(old[i], old[i + 1]);
+                slots[j] = old[i];
+                slots[j + 1] = old[i + 1];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity << 1];
+        mask = capacity - 1;
+    }
+
+    private static int mix(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L + lo;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,499 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.repository.UserRepository;
+import com.codingtracker.service.SyncCursorService;
+import com.codingtracker.service.extoj.IExtOJAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 尝试记录同步流水线：抓取/解析 → 幂等写库。
+ * 抓取任务按 (平台, 一组用户) 在该平台自己的舱壁线程池中调用适配器的批量接口（经熔断器），得到的记录按用户放进有界队列；
+ * 单个写库线程逐批交给 TryBulkWriter，由数据库唯一约束去重。
+ * 队列满时抓取线程阻塞（背压），内存占用由队列容量决定，与全部历史记录数无关；
+ * 某用户的所有平台都写库完成后立即提交其增量游标并更新最后尝试时间。
+ * 写库线程异常退出时抓取线程停止入队，流水线取消剩余任务、清空队列、丢弃未完成用户的游标，并把异常抛给调用方。
+ */
+@Service
+public class TrySyncPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrySyncPipeline.class);
+
+    /** 抓取阶段的最长等待时间 */
+    private static final long FETCH_TIMEOUT_MINUTES = 100;
+
+    /** 抓取线程入队等待的间隔，每次超时后检查写库线程是否还在 */
+    private static final long OFFER_POLL_MILLIS = 1000;
+
+    /** 队列结束标记 */
+    private static final TryBatch POISON = new TryBatch(null, OJPlatform.UNKNOWN, List.of());
+
+    private final List<IExtOJAdapter> adapters;
+    private final TryBulkWriter bulkWriter;
+    private final UserRepository userRepository;
+    private final SyncCursorService syncCursorService;
+    private final TransactionTemplate txTemplate;
+    private final PlatformBulkheads bulkheads;
+    private final int queueCapacity;
+    private final int writeChunk;
+    private final int batchSize;
+
+    public TrySyncPipeline(List<IExtOJAdapter> adapters,
+                           TryBulkWriter bulkWriter,
+                           UserRepository userRepository,
+                           SyncCursorService syncCursorService,
+                           PlatformTransactionManager transactionManager,
+                           PlatformBulkheads bulkheads,
+                           @Value("${crawler.pipeline.queue-capacity:32}") int queueCapacity,
+                           @Value("${crawler.pipeline.write-chunk:1000}") int writeChunk,
+                           @Value("${crawler.pipeline.batch-size:20}") int batchSize) {
+        this.adapters = adapters;
+        this.bulkWriter = bulkWriter;
+        this.userRepository = userRepository;
+        this.syncCursorService = syncCursorService;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.bulkheads = bulkheads;
+        this.queueCapacity = queueCapacity;
+        this.writeChunk = Math.max(1, writeChunk);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 一次批量抓取的用户数
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 一个 (用户, 平台) 的抓取结果
+     */
+    private record TryBatch(User user, OJPlatform platform, List<UserTryProblem> tries) {
+    }
+
+    /**
+     * 一次同步的统计
+     *
+     * @param users    参与同步的用户数
+     * @param fetched  抓取到的记录数
+     * @param inserted 新写入的记录数
+     * @param skipped  库中已存在而被忽略的记录数
+     * @param failed   抓取或写库失败的 (用户, 平台) 数
+     * @param rejected 因平台熔断未执行的 (用户, 平台) 数，不计入 failed
+     */
+    public record Result(int users, long fetched, long inserted, long skipped, int failed, int rejected) {
+
+        public Result(int users, long fetched, long inserted, long skipped, int failed) {
+            this(users, fetched, inserted, skipped, failed, 0);
+        }
+    }
+
+    /**
+     * 同步一批用户的尝试记录，阻塞到全部写库完成
+     *
+     * @param users    用户
+     * @param fullSync 是否忽略增量游标全量拉取
+     * @return 统计结果
+     */
+    public Result run(List<User> users, boolean fullSync) {
+        logger.info("开始同步 {} 位用户的尝试记录（每平台抓取线程 {}，队列容量 {}）",
+                users.size(), bulkheads.concurrency(), queueCapacity);
+        Writer writer = execute(users, adapters, null, fullSync, false);
+        Result result = writer.finish();
+        logger.info("同步完成：{} 位用户，抓取 {} 条，新增 {} 条，跳过 {} 条，失败 {} 项，熔断未执行 {} 项",
+                result.users(), result.fetched(), result.inserted(), result.skipped(), result.failed(), result.rejected());
+        return result;
+    }
+
+    /**
+     * 经有界流水线同步一组用户的同一平台（重建单元使用）：在调用线程上按 batchSize 逐组抓取，
+     * 由写库线程逐个用户写库并只提交该平台的游标，抓取下一组与写入上一组同时进行。
+     * 调用方应已处在该平台的舱壁额度内，这里不再向舱壁线程池提交任务。
+     *
+     * @param users    用户（需已加载 OJ 账号）
+     * @param platform 平台
+     * @param fullSync 是否忽略增量游标全量拉取
+     * @return userId → 统计结果
+     */
+    public Map<Integer, Result> runPlatform(List<User> users, OJPlatform platform, boolean fullSync) {
+        Writer writer = execute(users, List.of(adapterOf(platform)), platform, fullSync, true);
+        writer.finish();
+        return writer.perUser();
+    }
+
+    // 抓取 + 解析：每个 (平台, batchSize 位用户) 一个任务，inline 时在调用线程上依次执行，
+    // 否则在该平台的舱壁线程池中执行；结果按用户阻塞放入有界队列，由写库线程消费
+    private Writer execute(List<User> users, List<IExtOJAdapter> selected, OJPlatform scope, boolean fullSync,
+                           boolean inline) {
+        BlockingQueue<TryBatch> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Writer writer = new Writer(queue, users, selected.size(), scope, fullSync);
+        Thread writerThread = new Thread(writer, "try-sync-writer");
+        writerThread.start();
+
+        List<Future<?>> tasks = new ArrayList<>();
+        for (IExtOJAdapter adapter : selected) {
+            for (List<User> chunk : chunks(users)) {
+                Runnable task = () -> fetchChunk(adapter, chunk, fullSync, queue, writer);
+                if (inline) {
+                    if (writer.failure() != null) {
+                        break;
+                    }
+                    task.run();
+                } else {
+                    tasks.add(bulkheads.submit(adapter.getOjType(), task));
+                }
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(FETCH_TIMEOUT_MINUTES);
+        try {
+            for (Future<?> task : tasks) {
+                try {
+                    task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    logger.error("抓取任务异常", e.getCause());
+                } catch (TimeoutException e) {
+                    logger.warn("抓取任务未在 {} 分钟内完成，取消剩余任务", FETCH_TIMEOUT_MINUTES);
+                    tasks.forEach(t -> t.cancel(true));
+                    break;
+                }
+                if (writer.failure() != null) {
+                    break;
+                }
+            }
+            if (offer(queue, writer, POISON)) {
+                writerThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("等待同步流水线完成时发生中断", e);
+            tasks.forEach(t -> t.cancel(true));
+            writerThread.interrupt();
+        }
+
+        Throwable failure = writer.failure();
+        if (failure != null) {
+            // 写库线程已退出：停止剩余抓取任务并清空队列，已抓到但未写库的记录下次重抓
+            tasks.forEach(t -> t.cancel(true));
+            queue.clear();
+            writer.finish();
+            throw new RuntimeException("同步流水线写库线程异常退出", failure);
+        }
+        return writer;
+    }
+
+    private void fetchChunk(IExtOJAdapter adapter, List<User> chunk, boolean fullSync,
+                            BlockingQueue<TryBatch> queue, Writer writer) {
+        OJPlatform platform = adapter.getOjType();
+        Map<Integer, List<UserTryProblem>> triesByUser;
+        try {
+            triesByUser = bulkheads.call(platform, () -> adapter.getUserTriesOnline(chunk, fullSync));
+        } catch (PlatformBulkheads.OpenException e) {
+            logger.warn("{}，跳过 {} 位用户", e.getMessage(), chunk.size());
+            chunk.forEach(writer::markRejected);
+            triesByUser = Map.of();
+        } catch (Exception e) {
+            logger.error("批量抓取 {} 位用户的 {} 记录失败", chunk.size(), platform, e);
+            chunk.forEach(writer::markFailed);
+            triesByUser = Map.of();
+        }
+        try {
+            for (User user : chunk) {
+                List<UserTryProblem> tries = triesByUser.get(user.getId());
+                if (!offer(queue, writer, new TryBatch(user, platform, tries == null ? List.of() : tries))) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 在调用线程上增量同步单个 (用户, 平台)
+     */
+    public Result syncOne(User user, OJPlatform platform) {
+        return syncOne(user, platform, false);
+    }
+
+    /**
+     * 在调用线程上同步单个 (用户, 平台)：抓取、写库，成功后只提交该平台的游标。
+     * 供调度器和抓取单元按 (用户, 平台) 粒度刷新使用，同一用户的其他平台可同时进行。
+     *
+     * @param user     用户（需已加载 OJ 账号）
+     * @param platform 平台
+     * @param fullSync 是否忽略增量游标全量拉取
+     * @return 统计结果
+     */
+    public Result syncOne(User user, OJPlatform platform, boolean fullSync) {
+        return syncBatch(List.of(user), platform, fullSync).get(user.getId());
+    }
+
+    /**
+     * 在调用线程上同步一组用户的同一平台：一次批量抓取，再逐个用户写库并提交该平台的游标。
+     * 某个用户写库失败只影响该用户；批量抓取失败时整组失败、游标全部丢弃。
+     *
+     * @param users    用户（需已加载 OJ 账号）
+     * @param platform 平台
+     * @param fullSync 是否忽略增量游标全量拉取
+     * @return userId → 统计结果
+     */
+    public Map<Integer, Result> syncBatch(List<User> users, OJPlatform platform, boolean fullSync) {
+        IExtOJAdapter adapter = adapterOf(platform);
+        Map<Integer, Result> results = new LinkedHashMap<>();
+        Map<Integer, List<UserTryProblem>> triesByUser;
+        try {
+            triesByUser = bulkheads.call(platform, () -> adapter.getUserTriesOnline(users, fullSync));
+        } catch (PlatformBulkheads.OpenException e) {
+            logger.warn("{}，{} 位用户本轮跳过", e.getMessage(), users.size());
+            for (User user : users) {
+                syncCursorService.discard(user, platform);
+                results.put(user.getId(), new Result(1, 0, 0, 0, 0, 1));
+            }
+            return results;
+        } catch (Exception e) {
+            logger.error("批量抓取 {} 位用户的 {} 记录失败", users.size(), platform, e);
+            for (User user : users) {
+                syncCursorService.discard(user, platform);
+                results.put(user.getId(), new Result(1, 0, 0, 0, 1));
+            }
+            return results;
+        }
+        for (User user : users) {
+            List<UserTryProblem> tries = triesByUser.get(user.getId());
+            results.put(user.getId(), persistOne(user, platform, tries == null ? List.of() : tries, fullSync));
+        }
+        return results;
+    }
+
+    private IExtOJAdapter adapterOf(OJPlatform platform) {
+        return adapters.stream()
+                .filter(a -> a.getOjType() == platform)
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("No adapter for " + platform));
+    }
+
+    private Result persistOne(User user, OJPlatform platform, List<UserTryProblem> tries, boolean fullSync) {
+        try {
+            TryBulkWriter.Counts counts = write(user, platform, tries, fullSync);
+            syncCursorService.commit(user, platform);
+            latestAttempt(tries).ifPresent(last ->
+                    txTemplate.executeWithoutResult(status -> userRepository.advanceLastTryDate(user.getId(), last)));
+            return new Result(1, tries.size(), counts.inserted(), counts.skipped(), 0);
+        } catch (Exception e) {
+            logger.error("写入用户 {} 的 {} 记录失败", user.getUsername(), platform, e);
+            syncCursorService.discard(user, platform);
+            return new Result(1, tries.size(), 0, 0, 1);
+        }
+    }
+
+    // 队列满时分段等待，写库线程已退出则放弃入队并返回 false，避免抓取线程永久阻塞
+    private static boolean offer(BlockingQueue<TryBatch> queue, Writer writer, TryBatch batch) throws InterruptedException {
+        while (writer.failure() == null) {
+            if (queue.offer(batch, OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<List<User>> chunks(List<User> users) {
+        List<List<User>> chunks = new ArrayList<>();
+        for (int i = 0; i < users.size(); i += batchSize) {
+            chunks.add(users.subList(i, Math.min(users.size(), i + batchSize)));
+        }
+        return chunks;
+    }
+
+    // 交给数据库唯一约束去重，按 writeChunk 分块、每块一个短事务写库；
+    // 全量同步会重抓全部历史，先读出已有键在内存中剔除，避免大量无效插入消耗序列号
+    private TryBulkWriter.Counts write(User user, OJPlatform platform, List<UserTryProblem> tries, boolean fullSync) {
+        if (tries.isEmpty()) {
+            return TryBulkWriter.Counts.ZERO;
+        }
+        TryKeySet existing = fullSync ? bulkWriter.existingKeys(user.getId(), platform) : null;
+        return bulkWriter.write(tries, writeChunk, existing);
+    }
+
+    // 跳过的记录库中已有，最后尝试时间取整批最大值即可
+    private static Optional<LocalDateTime> latestAttempt(List<UserTryProblem> tries) {
+        return tries.stream().map(UserTryProblem::getAttemptTime).max(Comparator.naturalOrder());
+    }
+
+    /**
+     * 写库阶段：单线程消费队列，逐批去重并在短事务中写库
+     */
+    private class Writer implements Runnable {
+
+        private final BlockingQueue<TryBatch> queue;
+        /** 只同步单个平台时为该平台，游标只提交/丢弃该平台的；为 null 时按用户整体提交 */
+        private final OJPlatform scope;
+        private final boolean fullSync;
+        /** userId → 尚未写库的平台数 */
+        private final Map<Integer, AtomicInteger> pending = new ConcurrentHashMap<>();
+        private final Map<Integer, User> usersById = new HashMap<>();
+        private final Set<Integer> failedUsers = ConcurrentHashMap.newKeySet();
+        /** userId → 本次新增记录的最晚尝试时间 */
+        private final Map<Integer, LocalDateTime> lastTimes = new HashMap<>();
+
+        private long fetched;
+        private long inserted;
+        private long skipped;
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+        /** userId → 该用户的统计 */
+        private final Map<Integer, Result> perUser = new ConcurrentHashMap<>();
+        /** 写库线程异常退出的原因，正常运行时为 null */
+        private volatile Throwable failure;
+
+        Writer(BlockingQueue<TryBatch> queue, List<User> users, int platforms, OJPlatform scope, boolean fullSync) {
+            this.queue = queue;
+            this.scope = scope;
+            this.fullSync = fullSync;
+            for (User user : users) {
+                pending.put(user.getId(), new AtomicInteger(platforms));
+                usersById.put(user.getId(), user);
+                perUser.put(user.getId(), new Result(1, 0, 0, 0, 0));
+            }
+        }
+
+        void markFailed(User user) {
+            failedUsers.add(user.getId());
+            failed.incrementAndGet();
+            tally(user, 0, 0, 0, 1, 0);
+        }
+
+        // 熔断拒绝：游标同样丢弃，但不计为失败
+        void markRejected(User user) {
+            failedUsers.add(user.getId());
+            rejected.incrementAndGet();
+            tally(user, 0, 0, 0, 0, 1);
+        }
+
+        Map<Integer, Result> perUser() {
+            return perUser;
+        }
+
+        private void tally(User user, long fetched, long inserted, long skipped, int failed, int rejected) {
+            perUser.merge(user.getId(), new Result(1, fetched, inserted, skipped, failed, rejected), (a, b) ->
+                    new Result(1, a.fetched() + b.fetched(), a.inserted() + b.inserted(),
+                            a.skipped() + b.skipped(), a.failed() + b.failed(), a.rejected() + b.rejected()));
+        }
+
+        Throwable failure() {
+            return failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    TryBatch batch;
+                    try {
+                        batch = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (batch == POISON) {
+                        return;
+                    }
+                    handle(batch);
+                }
+            } catch (Throwable t) {
+                logger.error("写库线程异常退出", t);
+                failure = t;
+                // 唤醒阻塞在队列上的抓取线程
+                queue.clear();
+            }
+        }
+
+        private void handle(TryBatch batch) {
+            User user = batch.user();
+            fetched += batch.tries().size();
+            tally(user, batch.tries().size(), 0, 0, 0, 0);
+            try {
+                int added = persist(batch);
+                inserted += added;
+                if (added > 0) {
+                    logger.info("用户 {} 的 {} 新增 {} 条尝试记录", user.getUsername(), batch.platform(), added);
+                }
+            } catch (Exception e) {
+                logger.error("写入用户 {} 的 {} 记录失败", user.getUsername(), batch.platform(), e);
+                markFailed(user);
+            }
+            if (pending.get(user.getId()).decrementAndGet() == 0) {
+                finishUser(user);
+            }
+        }
+
+        private int persist(TryBatch batch) {
+            if (batch.tries().isEmpty()) {
+                return 0;
+            }
+            TryBulkWriter.Counts counts = write(batch.user(), batch.platform(), batch.tries(), fullSync);
+            skipped += counts.skipped();
+            tally(batch.user(), 0, counts.inserted(), counts.skipped(), 0, 0);
+            latestAttempt(batch.tries())
+                    .ifPresent(t -> lastTimes.merge(batch.user().getId(), t, (a, b) -> a.isAfter(b) ? a : b));
+            return (int) counts.inserted();
+        }
+
+        // 该用户所有平台都已处理：成功则提交游标、更新最后尝试时间，否则丢弃游标下次重抓
+        private void finishUser(User user) {
+            pending.remove(user.getId());
+            List<User> single = List.of(user);
+            if (failedUsers.contains(user.getId())) {
+                discard(single);
+                return;
+            }
+            try {
+                if (scope == null) {
+                    syncCursorService.commit(single);
+                } else {
+                    syncCursorService.commit(user, scope);
+                }
+                LocalDateTime last = lastTimes.remove(user.getId());
+                if (last != null) {
+                    txTemplate.executeWithoutResult(status -> userRepository.advanceLastTryDate(user.getId(), last));
+                }
+            } catch (Exception e) {
+                logger.error("提交用户 {} 的同步游标失败", user.getUsername(), e);
+            }
+        }
+
+        // 抓取超时或中断时仍有未完成的用户：丢弃其游标
+        Result finish() {
+            List<User> unfinished = pending.keySet().stream().map(usersById::get).toList();
+            if (!unfinished.isEmpty()) {
+                logger.warn("{} 位用户未完成同步，丢弃其增量游标", unfinished.size());
+                discard(unfinished);
+                unfinished.forEach(u -> {
+                    pending.remove(u.getId());
+                    markFailed(u);
+                });
+            }
+            return new Result(usersById.size(), fetched, inserted, skipped, failed.get(), rejected.get());
+        }
+
+        private void discard(List<User> users) {
+            if (scope == null) {
+                syncCursorService.discard(users);
+            } else {
+                users.forEach(u -> syncCursorService.discard(u, scope));
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.codingtracker.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的 URL 模板：启动时把形如 "https://host/x?user=%s&page=%s" 的模板按 %s 切成若干字面量片段，
+ * 之后每次格式化只做字符串拼接，不再像 String.format 那样每次解析格式串。
+ * 只支持 %s 占位符。
+ */
+public final class UrlTemplate {
+
+    private static final String PLACEHOLDER = "%s";
+
+    private final String pattern;
+    /** 字面量片段，长度 = 占位符数 + 1 */
+    private final String[] parts;
+    private final int literalLength;
+
+    private UrlTemplate(String pattern) {
+        this.pattern = pattern;
+        List<String> list = new ArrayList<>();
+        int from = 0;
+        int at;
+        while ((at = pattern.indexOf(PLACEHOLDER, from)) >= 0) {
+            list.add(pattern.substring(from, at));
+            from = at + PLACEHOLDER.length();
+        }
+        list.add(pattern.substring(from));
+        this.parts = list.toArray(new String[0]);
+        this.literalLength = pattern.length() - (parts.length - 1) * PLACEHOLDER.length();
+    }
+
+    /**
+     * 编译模板，null 视为空模板
+     */
+    public static UrlTemplate compile(String pattern) {
+        return new UrlTemplate(pattern == null ? "" : pattern);
+    }
+
+    /**
+     * 按顺序填充占位符
+     *
+     * @param args 参数，个数必须不少于占位符数
+     * @return 完整 URL
+     */
+    public String format(Object... args) {
+        int holes = parts.length - 1;
+        if (args.length < holes) {
+            throw new IllegalArgumentException("URL 模板 " + pattern + " 需要 " + holes + " 个参数，实际 " + args.length);
+        }
+        StringBuilder sb = new StringBuilder(literalLength + holes * 16);
+        sb.append(parts[0]);
+        for (int i = 0; i < holes; i++) {
+            sb.append(args[i]).append(parts[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 模板是否为空（平台未配置该链接）
+     */
+    public boolean isBlank() {
+        return pattern.isBlank();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
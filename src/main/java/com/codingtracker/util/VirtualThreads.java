@@ -0,0 +1,32 @@
+package com.codingtracker.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程执行器的创建。
+ * 源码级别仍为 17，通过反射调用 Executors.newVirtualThreadPerTaskExecutor；运行时低于 Java 21 时返回 null，
+ * 由调用方退回平台线程的执行方式。
+ */
+public final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器，不支持时返回 null
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("当前 Java {} 不支持虚拟线程", Runtime.version().feature());
+            return null;
+        }
+    }
+}
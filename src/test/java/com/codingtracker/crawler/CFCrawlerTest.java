@@ -0,0 +1,39 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.ProblemResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CFCrawlerTest {
+
+    private static CFSubmission sub(long id, ProblemResult verdict) {
+        return new CFSubmission(id, "1", "A", "1A", "Way Too Long", 800,
+                new String[0], new String[]{"alice"}, verdict, id * 10);
+    }
+
+    @Test
+    void cursorAdvancesToNewestWhenAllFinal() {
+        Optional<CFSubmission> cursor = CFCrawler.cursorSubmission(List.of(
+                sub(30, ProblemResult.AC), sub(20, ProblemResult.WA), sub(10, ProblemResult.TLE)));
+        assertEquals(30, cursor.orElseThrow().id());
+    }
+
+    @Test
+    void cursorStopsBeforeOldestJudgingSubmission() {
+        // 25 仍在评测：游标只能停在 20，下次增量同步（id > 20）会重新拉到 25 的最终结果
+        Optional<CFSubmission> cursor = CFCrawler.cursorSubmission(List.of(
+                sub(40, ProblemResult.INQ), sub(30, ProblemResult.AC), sub(25, ProblemResult.INQ),
+                sub(20, ProblemResult.WA), sub(10, ProblemResult.AC)));
+        assertEquals(20, cursor.orElseThrow().id());
+    }
+
+    @Test
+    void cursorDoesNotMoveWhenOldestFetchedIsJudging() {
+        assertTrue(CFCrawler.cursorSubmission(List.of(sub(30, ProblemResult.AC), sub(20, ProblemResult.INQ))).isEmpty());
+        assertTrue(CFCrawler.cursorSubmission(List.of()).isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+package com.codingtracker.crawler;
+
+import com.codingtracker.model.ProblemResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CFSubmissionDecoderTest {
+
+    private static final String BODY = """
+            {"status":"OK","result":[
+              {"id":2,"creationTimeSeconds":200,"verdict":"OK",
+               "problem":{"contestId":1,"index":"A","name":"Way Too Long","rating":800,"tags":["strings"]},
+               "author":{"members":[{"handle":"alice"}]}},
+              {"id":1,"creationTimeSeconds":100,"verdict":"WRONG_ANSWER",
+               "problem":{"contestId":1,"index":"A","name":"Way Too Long","tags":["strings"]},
+               "author":{"members":[{"handle":"alice"}]}}
+            ]}""";
+
+    private static List<CFSubmission> decode(String body) throws Exception {
+        List<CFSubmission> subs = new ArrayList<>();
+        CFSubmissionDecoder.Status status = CFSubmissionDecoder.decode(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), subs::add);
+        assertTrue(status.ok());
+        return subs;
+    }
+
+    @Test
+    void decodesSubmissionsAndSharesStringsWithinOneDecode() throws Exception {
+        List<CFSubmission> subs = decode(BODY);
+        assertEquals(2, subs.size());
+        assertEquals("1A", subs.get(0).pid());
+        assertEquals(ProblemResult.AC, subs.get(0).verdict());
+        assertEquals(ProblemResult.WA, subs.get(1).verdict());
+        assertArrayEquals(new String[]{"alice"}, subs.get(1).handles());
+        assertSame(subs.get(0).pid(), subs.get(1).pid());
+        assertSame(subs.get(0).tags()[0], subs.get(1).tags()[0]);
+    }
+
+    @Test
+    void doesNotShareStringsAcrossDecodes() throws Exception {
+        assertNotSame(decode(BODY).get(0).pid(), decode(BODY).get(0).pid());
+    }
+
+    @Test
+    void reportsFailedStatus() throws Exception {
+        CFSubmissionDecoder.Status status = CFSubmissionDecoder.decode(new ByteArrayInputStream(
+                "{\"status\":\"FAILED\",\"comment\":\"handle: User with handle x not found\"}"
+                        .getBytes(StandardCharsets.UTF_8)), s -> fail());
+        assertFalse(status.ok());
+        assertTrue(status.comment().contains("not found"));
+    }
+
+    @Test
+    void queuedAndTestingSubmissionsAreJudging() throws Exception {
+        List<CFSubmission> subs = decode("""
+                {"status":"OK","result":[
+                  {"id":3,"creationTimeSeconds":300,"verdict":"TESTING",
+                   "problem":{"contestId":1,"index":"A","name":"Way Too Long","tags":[]},
+                   "author":{"members":[{"handle":"alice"}]}},
+                  {"id":2,"creationTimeSeconds":200,
+                   "problem":{"contestId":1,"index":"A","name":"Way Too Long","tags":[]},
+                   "author":{"members":[{"handle":"alice"}]}}
+                ]}""");
+        assertEquals(ProblemResult.INQ, subs.get(0).verdict());
+        assertTrue(subs.get(0).judging());
+        assertTrue(subs.get(1).judging());
+        assertFalse(decode(BODY).get(0).judging());
+    }
+}
@@ -0,0 +1,65 @@
+package com.codingtracker.crawler;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultRetryPolicyTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final DefaultRetryPolicy policy = new DefaultRetryPolicy(2, Duration.ofMinutes(60), "HDU,POJ", now::get);
+
+    @Test
+    void throttledBadRequestIsRetriedAsThrottled() {
+        byte[] body = "{\"status\":\"FAILED\",\"comment\":\"Call limit exceeded\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(FailureType.THROTTLED,
+                policy.classify(new HttpResponseStatusException(400, "https://codeforces.com/api/user.status", body, true)));
+    }
+
+    @Test
+    void plainBadRequestIsPermanent() {
+        byte[] body = "{\"status\":\"FAILED\",\"comment\":\"handle: User with handle x not found\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        assertEquals(FailureType.PERMANENT,
+                policy.classify(new HttpResponseStatusException(400, "https://codeforces.com/api/user.status", body, false)));
+        assertEquals(FailureType.PERMANENT, policy.classify(new HttpStatusException("x", 404, "http://poj.org/")));
+    }
+
+    @Test
+    void statusCodesAndIoErrors() {
+        assertEquals(FailureType.THROTTLED, policy.classify(new HttpStatusException("x", 429, "http://poj.org/")));
+        assertEquals(FailureType.RETRYABLE_IO, policy.classify(new HttpStatusException("x", 502, "http://poj.org/")));
+        assertEquals(FailureType.RETRYABLE_IO, policy.classify(new IOException("reset")));
+    }
+
+    @Test
+    void budgetRefillsWhenWindowElapses() {
+        assertTrue(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+        assertTrue(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+        assertFalse(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+
+        now.addAndGet(Duration.ofMinutes(59).toNanos());
+        assertFalse(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertTrue(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+    }
+
+    @Test
+    void resetBudgetRefillsImmediately() {
+        policy.shouldRetry(FailureType.RETRYABLE_IO, 1);
+        policy.shouldRetry(FailureType.RETRYABLE_IO, 1);
+        assertFalse(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+
+        policy.resetBudget();
+        assertTrue(policy.shouldRetry(FailureType.RETRYABLE_IO, 1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.codingtracker.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpDiskCacheTest {
+
+    private static final String HDU = "http://acm.hdu.edu.cn/showproblem.php?pid=";
+
+    @TempDir
+    Path dir;
+
+    private HttpDiskCache cache(long maxBytes) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("crawler.http-cache.dir", dir.toString())
+                .withProperty("crawler.http-cache.max-bytes", String.valueOf(maxBytes))
+                .withProperty("crawler.http-cache.ttl-seconds.default", "3600")
+                .withProperty("crawler.http-cache.ttl-seconds.hdu", "60");
+        return new HttpDiskCache(env);
+    }
+
+    private static HttpDiskCache.Entry entry(String url, int size, long storedAt) {
+        return new HttpDiskCache.Entry(url, new byte[size], "text/html", "\"v1\"", "", storedAt);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverLimit() {
+        HttpDiskCache cache = cache(3000);
+        long now = System.currentTimeMillis();
+        cache.put(entry(HDU + 1, 1000, now));
+        cache.put(entry(HDU + 2, 1000, now));
+        // 访问 1 之后，2 成为最久未用
+        assertTrue(cache.get(HDU + 1).isPresent());
+        cache.put(entry(HDU + 3, 1000, now));
+
+        assertTrue(cache.get(HDU + 1).isPresent());
+        assertTrue(cache.get(HDU + 2).isEmpty());
+        assertTrue(cache.get(HDU + 3).isPresent());
+    }
+
+    @Test
+    void ttlFollowsPlatformConfig() {
+        HttpDiskCache cache = cache(1 << 20);
+        long now = System.currentTimeMillis();
+        assertTrue(cache.isFresh(entry(HDU + 1, 1, now - 30_000)));
+        assertFalse(cache.isFresh(entry(HDU + 1, 1, now - 120_000)));
+        // 未单独配置的 host 取 default
+        assertTrue(cache.isFresh(entry("http://example.com/a", 1, now - 120_000)));
+        assertFalse(cache.isFresh(entry("http://example.com/a", 1, now - 7_200_000)));
+    }
+
+    @Test
+    void revalidatedEntryStartsNewFreshPeriod() {
+        HttpDiskCache cache = cache(1 << 20);
+        HttpDiskCache.Entry stale = new HttpDiskCache.Entry(HDU + 1, "page".getBytes(StandardCharsets.UTF_8),
+                "text/html", "\"v1\"", "", System.currentTimeMillis() - 120_000);
+        cache.put(stale);
+        assertFalse(cache.isFresh(cache.get(HDU + 1).orElseThrow()));
+
+        cache.revalidated(stale);
+        HttpDiskCache.Entry reloaded = cache.get(HDU + 1).orElseThrow();
+        assertTrue(cache.isFresh(reloaded));
+        assertEquals("\"v1\"", reloaded.etag());
+        assertArrayEquals(stale.body(), reloaded.body());
+    }
+
+    @Test
+    void invalidateRemovesEntry() {
+        HttpDiskCache cache = cache(1 << 20);
+        cache.put(entry(HDU + 1, 10, System.currentTimeMillis()));
+        cache.invalidate(HDU + 1);
+        assertTrue(cache.get(HDU + 1).isEmpty());
+    }
+}
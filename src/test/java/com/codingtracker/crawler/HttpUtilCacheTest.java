@@ -0,0 +1,123 @@
+package com.codingtracker.crawler;
+
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * readJsoupURLCached 的写缓存时机与 304 重新验证，用本地 HttpServer 模拟上游。
+ * 本地 host 不属于任何平台，新鲜期取 default（这里为 0，每次都会发条件请求）。
+ */
+class HttpUtilCacheTest {
+
+    private static final String PAGE = "<html><body><h1 id=\"title\">A+B</h1></body></html>";
+    private static final String ERROR_PAGE = "<html><body>System Error</body></html>";
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private String url;
+    private final AtomicReference<String> body = new AtomicReference<>(PAGE);
+    private final List<String> conditionalHeaders = new CopyOnWriteArrayList<>();
+
+    private HttpDiskCache cache;
+    private HttpUtil http;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/problem", exchange -> {
+            String inm = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditionalHeaders.add(String.valueOf(inm));
+            String current = body.get();
+            String etag = "\"" + current.hashCode() + "\"";
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(inm)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] bytes = current.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/problem";
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("crawler.http-cache.dir", dir.toString())
+                .withProperty("crawler.http-cache.ttl-seconds.default", "0")
+                .withProperty("crawler.rate-limit.default", "1000");
+        cache = new HttpDiskCache(env);
+        http = new HttpUtil();
+        ReflectionTestUtils.setField(http, "rateLimiter", new HostRateLimiter(env));
+        ReflectionTestUtils.setField(http, "retryPolicy", new DefaultRetryPolicy(10, Duration.ofMinutes(60), "", System::nanoTime));
+        ReflectionTestUtils.setField(http, "diskCache", cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static String title(Document doc) {
+        return Optional.ofNullable(doc.getElementById("title"))
+                .map(Element::text)
+                .orElseThrow(() -> new RuntimeException("不是题目页"));
+    }
+
+    @Test
+    void notModifiedReusesCachedCopy() {
+        assertEquals("A+B", http.readJsoupURLCached(url, null, HttpUtilCacheTest::title));
+        long storedAt = cache.get(url).orElseThrow().storedAt();
+
+        assertEquals("A+B", http.readJsoupURLCached(url, null, HttpUtilCacheTest::title));
+        // 第二次带上了 ETag，上游返回 304，本地副本的验证时间被刷新
+        assertEquals("\"" + PAGE.hashCode() + "\"", conditionalHeaders.get(1));
+        assertTrue(cache.get(url).orElseThrow().storedAt() >= storedAt);
+    }
+
+    @Test
+    void pageThatFailsToParseIsNotCached() {
+        body.set(ERROR_PAGE);
+        assertThrows(RuntimeException.class, () -> http.readJsoupURLCached(url, null, HttpUtilCacheTest::title));
+        assertTrue(cache.get(url).isEmpty());
+
+        body.set(PAGE);
+        assertEquals("A+B", http.readJsoupURLCached(url, null, HttpUtilCacheTest::title));
+        assertTrue(cache.get(url).isPresent());
+    }
+
+    @Test
+    void cachedCopyThatFailsToParseIsDropped() {
+        cache.put(new HttpDiskCache.Entry(url, ERROR_PAGE.getBytes(StandardCharsets.UTF_8), "text/html",
+                "\"" + ERROR_PAGE.hashCode() + "\"", "", System.currentTimeMillis()));
+        body.set(ERROR_PAGE);
+
+        assertThrows(RuntimeException.class, () -> http.readJsoupURLCached(url, null, HttpUtilCacheTest::title));
+        assertTrue(cache.get(url).isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package com.codingtracker.crawler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * fanOut：有执行器时按 handleParallelism 限制并发，单个 key 失败不影响其他 key；没有执行器时在调用线程上依次执行。
+ * 用普通线程池代替虚拟线程执行器，Java 17 下同样能验证并发上限。
+ */
+class HttpUtilFanOutTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private HttpUtil httpUtil(ExecutorService executor, int parallelism) {
+        HttpUtil http = new HttpUtil();
+        ReflectionTestUtils.setField(http, "fanOutExecutor", executor);
+        ReflectionTestUtils.setField(http, "handleParallelism", parallelism);
+        return http;
+    }
+
+    @Test
+    void boundsInFlightFetchesAndKeepsKeyOrder() {
+        HttpUtil http = httpUtil(pool, 3);
+        List<Integer> keys = IntStream.range(0, 12).boxed().toList();
+        // 前 3 个抓取必须同时在途才能越过屏障
+        CyclicBarrier firstWave = new CyclicBarrier(3);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        Map<Integer, CompletableFuture<String>> results = http.fanOut(keys, key -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (key < 3) {
+                    firstWave.await(5, TimeUnit.SECONDS);
+                }
+                return "v" + key;
+            } catch (Exception e) {
+                throw new IOException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        assertEquals(keys, List.copyOf(results.keySet()));
+        for (int key : keys) {
+            assertEquals("v" + key, results.get(key).join());
+        }
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    void failedKeyCompletesExceptionallyWithoutAffectingOthers() {
+        HttpUtil http = httpUtil(pool, 2);
+
+        Map<String, CompletableFuture<String>> results = http.fanOut(List.of("a", "missing", "b"), key -> {
+            if (key.equals("missing")) {
+                throw new InvalidHandleException("handle: User with handle missing not found");
+            }
+            return key.toUpperCase();
+        });
+
+        assertEquals("A", results.get("a").join());
+        assertEquals("B", results.get("b").join());
+        CompletionException e = assertThrows(CompletionException.class, () -> results.get("missing").join());
+        assertTrue(InvalidHandleException.reasonOf(e).isPresent());
+    }
+
+    @Test
+    void runsOnCallerThreadWithoutExecutor() {
+        HttpUtil http = httpUtil(null, 4);
+        Thread caller = Thread.currentThread();
+
+        Map<Integer, CompletableFuture<Boolean>> results = http.fanOut(List.of(1, 2, 3),
+                key -> Thread.currentThread() == caller);
+
+        results.values().forEach(f -> assertTrue(f.isDone() && f.join()));
+    }
+}
@@ -0,0 +1,40 @@
+package com.codingtracker.crawler;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidHandleExceptionTest {
+
+    private static final String URL = "https://codeforces.com/api/user.info?handles=a;b";
+
+    private static HttpResponseStatusException badRequest(String comment, boolean throttled) {
+        byte[] body = ("{\"status\":\"FAILED\",\"comment\":\"" + comment + "\"}").getBytes(StandardCharsets.UTF_8);
+        return new HttpResponseStatusException(400, URL, body, throttled);
+    }
+
+    @Test
+    void notFoundCommentIsInvalidHandle() {
+        RuntimeException wrapped = new RuntimeException("readURL 失败",
+                badRequest("handles: User with handle b not found", false));
+        assertTrue(InvalidHandleException.reasonOf(wrapped).isPresent());
+    }
+
+    @Test
+    void throttlingAndParameterErrorsAreNotInvalidHandle() {
+        assertTrue(InvalidHandleException.reasonOf(badRequest("Call limit exceeded", true)).isEmpty());
+        assertTrue(InvalidHandleException.reasonOf(badRequest("count: Field should contain only digits", false)).isEmpty());
+        // 没有响应体的 404 无法判断原因
+        assertTrue(InvalidHandleException.reasonOf(new HttpStatusException("x", 404, URL)).isEmpty());
+        assertTrue(InvalidHandleException.reasonOf(new HttpResponseStatusException(503, URL, new byte[0], true)).isEmpty());
+    }
+
+    @Test
+    void explicitExceptionIsInvalidHandle() {
+        assertEquals("HDU 提示用户不存在",
+                InvalidHandleException.reasonOf(new InvalidHandleException("HDU 提示用户不存在")).orElseThrow());
+    }
+}
@@ -0,0 +1,70 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.InvalidHandle;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.InvalidHandleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InvalidHandleServiceTest {
+
+    private final InvalidHandleRepository repo = mock(InvalidHandleRepository.class);
+    // base 30 分钟，最长 4 小时
+    private final InvalidHandleService service = new InvalidHandleService(repo, 30, 4);
+
+    private final AtomicReference<InvalidHandle> stored = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        when(repo.findByPlatformAndHandle(eq(OJPlatform.CODEFORCES), any()))
+                .thenAnswer(inv -> Optional.ofNullable(stored.get()));
+        when(repo.save(any(InvalidHandle.class))).thenAnswer(inv -> {
+            stored.set(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+    }
+
+    private Duration recordAndGetCoolDown() {
+        LocalDateTime before = LocalDateTime.now();
+        service.recordInvalid(OJPlatform.CODEFORCES, "Tourist", "not found");
+        return Duration.between(before, stored.get().getRetryAfter());
+    }
+
+    private static void assertAbout(Duration expected, Duration actual) {
+        assertTrue(actual.compareTo(expected) >= 0 && actual.compareTo(expected.plusSeconds(5)) < 0,
+                () -> "expected ~" + expected + " but was " + actual);
+    }
+
+    @Test
+    void coolDownDoublesUntilCap() {
+        assertAbout(Duration.ofMinutes(30), recordAndGetCoolDown());
+        assertAbout(Duration.ofMinutes(60), recordAndGetCoolDown());
+        assertAbout(Duration.ofMinutes(120), recordAndGetCoolDown());
+        assertAbout(Duration.ofMinutes(240), recordAndGetCoolDown());
+        // 超过上限后保持 max-hours
+        assertAbout(Duration.ofHours(4), recordAndGetCoolDown());
+        assertEquals(5, stored.get().getFailures());
+    }
+
+    @Test
+    void handleIsNormalisedAndBlockedDuringCoolDown() {
+        recordAndGetCoolDown();
+        assertEquals("tourist", stored.get().getHandle());
+        assertTrue(InvalidHandleService.isBlocked(stored.get()));
+
+        stored.get().setRetryAfter(LocalDateTime.now().minusSeconds(1));
+        assertFalse(InvalidHandleService.isBlocked(stored.get()));
+        assertFalse(InvalidHandleService.isBlocked(null));
+    }
+}
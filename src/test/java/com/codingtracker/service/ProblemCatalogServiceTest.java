@@ -0,0 +1,45 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProblemCatalogServiceTest {
+
+    private static ExtOjPbInfo problem(String name, Integer rating) {
+        return ExtOjPbInfo.builder()
+                .ojName(OJPlatform.CODEFORCES)
+                .pid("1A")
+                .name(name)
+                .type("PROGRAMMING")
+                .rating(rating)
+                .url("https://codeforces.com/contest/1/problem/A")
+                .build();
+    }
+
+    @Test
+    void unknownTagsHaveNoHash() {
+        // null 表示标签未知，不能与"没有标签"的哈希相同，否则会覆盖库中已有的标签哈希
+        assertNull(ProblemCatalogService.tagHash(null));
+        assertNotNull(ProblemCatalogService.tagHash(new String[0]));
+        assertEquals(ProblemCatalogService.tagHash(new String[0]), ProblemCatalogService.tagHash(new String[]{null}));
+    }
+
+    @Test
+    void tagOrderAndDuplicatesDoNotMatter() {
+        assertEquals(ProblemCatalogService.tagHash(new String[]{"math", "greedy"}),
+                ProblemCatalogService.tagHash(new String[]{"greedy", "math", "greedy"}));
+        assertNotEquals(ProblemCatalogService.tagHash(new String[]{"math"}),
+                ProblemCatalogService.tagHash(new String[]{"math", "greedy"}));
+    }
+
+    @Test
+    void contentChangesChangeHash() {
+        long base = ProblemCatalogService.contentHash(problem("Theatre Square", 1000));
+        assertEquals(base, ProblemCatalogService.contentHash(problem("Theatre Square", 1000)));
+        assertNotEquals(base, ProblemCatalogService.contentHash(problem("Theatre Square", 1100)));
+        assertNotEquals(base, ProblemCatalogService.contentHash(problem("Theatre", 1000)));
+    }
+}
@@ -0,0 +1,109 @@
+package com.codingtracker.service;
+
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.ResponseFingerprint;
+import com.codingtracker.model.User;
+import com.codingtracker.repository.ResponseFingerprintRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ResponseFingerprintServiceTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final ResponseFingerprintService service =
+            new ResponseFingerprintService(mock(ResponseFingerprintRepository.class), jdbc);
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static User user(int id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static ResponseFingerprint stored(ResponseFingerprintService.Fingerprint fp) {
+        return ResponseFingerprint.builder().digest(fp.digest()).bodyLength(fp.length()).build();
+    }
+
+    @Test
+    void fingerprintMatchesOnlySameBody() {
+        ResponseFingerprintService.Fingerprint fp = ResponseFingerprintService.Fingerprint.of(bytes("<table>1</table>"));
+        assertTrue(fp.matches(stored(ResponseFingerprintService.Fingerprint.of(bytes("<table>1</table>")))));
+        assertFalse(fp.matches(stored(ResponseFingerprintService.Fingerprint.of(bytes("<table>2</table>")))));
+        assertFalse(fp.matches(null));
+
+        // 长度不同即不匹配，即使摘要相同
+        ResponseFingerprint other = stored(fp);
+        other.setBodyLength(fp.length() + 1);
+        assertFalse(fp.matches(other));
+
+        // 首条提交 ID 不参与匹配
+        assertTrue(fp.withFirstSubmissionId(99L).matches(stored(fp)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ResponseFingerprint> savedRows() {
+        ArgumentCaptor<Collection<ResponseFingerprint>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbc).batchUpdate(anyString(), rows.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        return List.copyOf(rows.getValue());
+    }
+
+    @Test
+    void commitPerPlatformLeavesOtherPlatformsStaged() {
+        User user = user(1);
+        ResponseFingerprintService.Fingerprint fp = ResponseFingerprintService.Fingerprint.of(bytes("page"));
+        service.stage(user, OJPlatform.HDU, "alice", "status", 1, fp.withFirstSubmissionId(10L));
+        service.stage(user, OJPlatform.POJ, "alice", "status", 1, fp);
+
+        service.commit(user, OJPlatform.HDU);
+        List<ResponseFingerprint> rows = savedRows();
+        assertEquals(1, rows.size());
+        assertEquals(OJPlatform.HDU, rows.get(0).getPlatform());
+        assertEquals(10L, rows.get(0).getFirstSubmissionId());
+
+        // POJ 的指纹仍在暂存区，丢弃后整体提交不再写库
+        service.discard(user, OJPlatform.POJ);
+        service.commit(List.of(user));
+        verifyNoMoreInteractions(jdbc);
+    }
+
+    @Test
+    void discardedUsersAreNotCommitted() {
+        User kept = user(1);
+        User failed = user(2);
+        ResponseFingerprintService.Fingerprint fp = ResponseFingerprintService.Fingerprint.of(bytes("page"));
+        service.stage(kept, OJPlatform.CODEFORCES, "tourist", "user.status", 1, fp);
+        service.stage(failed, OJPlatform.CODEFORCES, "petr", "user.status", 1, fp);
+
+        service.discard(List.of(failed));
+        service.commit(List.of(kept, failed));
+        List<ResponseFingerprint> rows = savedRows();
+        assertEquals(1, rows.size());
+        assertEquals("tourist", rows.get(0).getHandle());
+    }
+
+    @Test
+    void restagingSamePageKeepsLatest() {
+        User user = user(1);
+        service.stage(user, OJPlatform.HDU, "alice", "status", 1, ResponseFingerprintService.Fingerprint.of(bytes("v1")));
+        ResponseFingerprintService.Fingerprint latest = ResponseFingerprintService.Fingerprint.of(bytes("v2"));
+        service.stage(user, OJPlatform.HDU, "alice", "status", 1, latest);
+
+        service.commit(List.of(user));
+        List<ResponseFingerprint> rows = savedRows();
+        assertEquals(1, rows.size());
+        assertEquals(latest.digest(), rows.get(0).getDigest());
+    }
+}
@@ -0,0 +1,71 @@
+package com.codingtracker.service.sync;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long LONG_COOL_DOWN = 60_000;
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("CF", 3, LONG_COOL_DOWN);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.isClosed());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isProbeReady());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("CF", 2, LONG_COOL_DOWN);
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertTrue(breaker.isClosed());
+    }
+
+    @Test
+    void halfOpenLetsExactlyOneProbeThrough() {
+        CircuitBreaker breaker = new CircuitBreaker("CF", 1, 0);
+        breaker.onFailure();
+        // 冷却期为 0：打开后立即可以探测，但仍不是关闭状态
+        assertFalse(breaker.isClosed());
+        assertTrue(breaker.isProbeReady());
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.isOpen());
+        assertFalse(breaker.isProbeReady());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successfulProbeCloses() {
+        CircuitBreaker breaker = new CircuitBreaker("CF", 1, 0);
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertTrue(breaker.isClosed());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeReopensImmediately() {
+        CircuitBreaker breaker = new CircuitBreaker("CF", 3, 0);
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+}
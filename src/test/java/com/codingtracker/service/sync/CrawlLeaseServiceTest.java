@@ -0,0 +1,166 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.CrawlUnit;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.repository.CrawlUnitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 租约 SQL 依赖 MySQL 8 的 FOR UPDATE SKIP LOCKED，需要一个可随意清空的库：
+ * mvn test -Dcrawl.test.mysql.url=jdbc:mysql://localhost:3306/crawl_test -Dcrawl.test.mysql.user=root -Dcrawl.test.mysql.password=...
+ * 两个 CrawlLeaseService 使用不同的节点 ID，模拟共享同一张 crawl_unit 表的两个实例。
+ */
+@EnabledIfSystemProperty(named = "crawl.test.mysql.url", matches = ".+")
+class CrawlLeaseServiceTest {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private static final String DDL = """
+            CREATE TABLE crawl_unit (
+              id BIGINT AUTO_INCREMENT PRIMARY KEY,
+              batch_id VARCHAR(36),
+              user_id INT NOT NULL,
+              platform VARCHAR(16) NOT NULL,
+              kind VARCHAR(16) NOT NULL,
+              full_sync BIT NOT NULL,
+              status VARCHAR(16) NOT NULL,
+              active BIT,
+              owner VARCHAR(128),
+              lease_until DATETIME(6),
+              attempts INT NOT NULL,
+              started_at DATETIME(6),
+              fetched BIGINT,
+              inserted BIGINT,
+              last_error VARCHAR(512),
+              created_at DATETIME(6),
+              finished_at DATETIME(6),
+              UNIQUE KEY uk_crawl_unit_active (user_id, platform, active),
+              KEY idx_crawl_unit_status_lease (active, status, lease_until)
+            )""";
+
+    private JdbcTemplate jdbc;
+    private CrawlLeaseService nodeA;
+    private CrawlLeaseService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                System.getProperty("crawl.test.mysql.url"),
+                System.getProperty("crawl.test.mysql.user", "root"),
+                System.getProperty("crawl.test.mysql.password", ""));
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("DROP TABLE IF EXISTS crawl_unit");
+        jdbc.execute(DDL);
+        DataSourceTransactionManager tx = new DataSourceTransactionManager(ds);
+        CrawlUnitRepository repo = Mockito.mock(CrawlUnitRepository.class);
+        nodeA = new CrawlLeaseService(jdbc, repo, tx, "node-a", 60, MAX_ATTEMPTS);
+        nodeB = new CrawlLeaseService(jdbc, repo, tx, "node-b", 60, MAX_ATTEMPTS);
+    }
+
+    private void enqueue(int users) {
+        Map<Integer, List<OJPlatform>> pairs = new LinkedHashMap<>();
+        for (int u = 1; u <= users; u++) {
+            pairs.put(u, List.of(OJPlatform.CODEFORCES, OJPlatform.LUOGU));
+        }
+        nodeA.enqueue("batch-1", pairs, CrawlUnit.Kind.REBUILD, false);
+    }
+
+    private void expireLeases() {
+        jdbc.update("UPDATE crawl_unit SET lease_until = TIMESTAMPADD(SECOND, -1, CURRENT_TIMESTAMP) WHERE status = 'LEASED'");
+    }
+
+    @Test
+    void concurrentClaimsNeverOverlap() throws Exception {
+        enqueue(100);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<List<Long>>> claims = new ArrayList<>();
+        for (CrawlLeaseService node : List.of(nodeA, nodeB, nodeA, nodeB)) {
+            claims.add(pool.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                List<CrawlLeaseService.Lease> got;
+                while (!(got = node.claim(7)).isEmpty()) {
+                    got.forEach(l -> ids.add(l.id()));
+                }
+                return ids;
+            }));
+        }
+        List<Long> all = new ArrayList<>();
+        for (Future<List<Long>> f : claims) {
+            all.addAll(f.get(1, TimeUnit.MINUTES));
+        }
+        pool.shutdown();
+
+        assertEquals(200, all.size());
+        assertEquals(200, new HashSet<>(all).size());
+        assertEquals(200, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM crawl_unit WHERE status = 'LEASED' AND attempts = 1", Integer.class));
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedOnlyUntilMaxAttempts() {
+        nodeA.enqueue("batch-1", Map.of(1, List.of(OJPlatform.CODEFORCES)), CrawlUnit.Kind.REBUILD, false);
+
+        assertEquals(1, nodeA.claim(10).size());
+        expireLeases();
+        List<CrawlLeaseService.Lease> taken = nodeB.claim(10);
+        assertEquals(1, taken.size());
+        // 原持有者的租约已被接管，续约不再生效
+        assertEquals(0, nodeA.renew(List.of(taken.get(0).id())));
+
+        expireLeases();
+        assertTrue(nodeA.claim(10).isEmpty());
+        assertEquals(1, nodeA.expireExhausted());
+        assertEquals("FAILED", jdbc.queryForObject("SELECT status FROM crawl_unit", String.class));
+        assertNull(jdbc.queryForObject("SELECT active FROM crawl_unit", Boolean.class));
+    }
+
+    @Test
+    void releaseReturnsUnitWithoutUsingAnAttempt() {
+        nodeA.enqueue("batch-1", Map.of(1, List.of(OJPlatform.CODEFORCES)), CrawlUnit.Kind.REBUILD, false);
+        for (int i = 0; i < MAX_ATTEMPTS + 1; i++) {
+            CrawlLeaseService.Lease lease = nodeA.claim(1).get(0);
+            nodeA.release(lease);
+        }
+        assertEquals("PENDING", jdbc.queryForObject("SELECT status FROM crawl_unit", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT attempts FROM crawl_unit", Integer.class));
+    }
+
+    @Test
+    void purgeKeepsRecentAndActiveUnits() {
+        enqueue(3);
+        CrawlLeaseService.Lease lease = nodeA.claim(1).get(0);
+        nodeA.complete(lease, 10, 5);
+        jdbc.update("UPDATE crawl_unit SET finished_at = TIMESTAMPADD(DAY, -8, CURRENT_TIMESTAMP) WHERE id = ?", lease.id());
+        CrawlLeaseService.Lease recent = nodeA.claim(1).get(0);
+        nodeA.complete(recent, 0, 0);
+
+        assertEquals(1, nodeA.purgeFinished(7, 1000));
+        assertEquals(5, jdbc.queryForObject("SELECT COUNT(*) FROM crawl_unit", Integer.class));
+    }
+
+    @Test
+    void sinceLastDoneSeesUnitsFinishedByOtherNodes() {
+        assertNull(nodeA.sinceLastDone(1, OJPlatform.CODEFORCES));
+        CrawlLeaseService.Lease lease = nodeB.acquire(1, OJPlatform.CODEFORCES);
+        // 执行中的单元不算同步过
+        assertNull(nodeA.sinceLastDone(1, OJPlatform.CODEFORCES));
+        nodeB.complete(lease, 3, 1);
+
+        Duration since = nodeA.sinceLastDone(1, OJPlatform.CODEFORCES);
+        assertNotNull(since);
+        assertTrue(since.getSeconds() < 60);
+        assertNull(nodeA.sinceLastDone(1, OJPlatform.LUOGU));
+    }
+}
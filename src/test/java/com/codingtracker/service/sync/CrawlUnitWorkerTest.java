@@ -0,0 +1,133 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.CrawlUnit;
+import com.codingtracker.model.ExtOjLink;
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.repository.UserRepository;
+import com.codingtracker.service.extoj.IExtOJAdapter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 认领与派发：每个平台认领的单元组数不超过本节点该平台的空闲额度
+ */
+class CrawlUnitWorkerTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private final CrawlLeaseService leaseService = mock(CrawlLeaseService.class);
+    private final TrySyncPipeline pipeline = mock(TrySyncPipeline.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CrawlJobService jobService = mock(CrawlJobService.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private PlatformBulkheads bulkheads;
+    private CrawlUnitWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        when(pipeline.batchSize()).thenReturn(BATCH_SIZE);
+        when(leaseService.claim(anyInt(), any(OJPlatform.class))).thenReturn(List.of());
+        when(userRepository.findAllByIdWithOjAccounts(any())).thenReturn(List.of());
+        // 重建单元的抓取一直阻塞到测试放行，模拟慢平台
+        when(pipeline.runPlatform(any(), any(), anyBoolean())).thenAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return Map.of();
+        });
+        bulkheads = new PlatformBulkheads(adapters(OJPlatform.CODEFORCES, OJPlatform.HDU),
+                "platform", 1, 1, 5, 120);
+        worker = new CrawlUnitWorker(leaseService, pipeline, userRepository, jobService, bulkheads, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        bulkheads.close();
+    }
+
+    private static CrawlLeaseService.Lease lease(long id, OJPlatform platform, CrawlUnit.Kind kind, boolean fullSync) {
+        return new CrawlLeaseService.Lease(id, "b", (int) id, platform, kind, fullSync);
+    }
+
+    @Test
+    void groupsBeyondFreeSlotsAreReleased() {
+        CrawlLeaseService.Lease incremental = lease(1, OJPlatform.HDU, CrawlUnit.Kind.REBUILD, false);
+        CrawlLeaseService.Lease full = lease(2, OJPlatform.HDU, CrawlUnit.Kind.REBUILD, true);
+        when(leaseService.claim(anyInt(), eq(OJPlatform.HDU))).thenReturn(List.of(incremental, full));
+
+        worker.poll();
+
+        // 每平台只有 1 个额度：按额度认领，第二组放回队列而不是在执行器里排队
+        verify(leaseService).claim(BATCH_SIZE, OJPlatform.HDU);
+        verify(leaseService).release(full);
+        verify(leaseService, never()).release(incremental);
+    }
+
+    @Test
+    void busyPlatformIsNotClaimedAgain() {
+        when(leaseService.claim(anyInt(), eq(OJPlatform.HDU)))
+                .thenReturn(List.of(lease(1, OJPlatform.HDU, CrawlUnit.Kind.REBUILD, false)));
+
+        worker.poll();
+        worker.poll();
+
+        verify(leaseService, times(1)).claim(anyInt(), eq(OJPlatform.HDU));
+    }
+
+    @Test
+    void slowPlatformDoesNotStarveOthers() {
+        when(leaseService.claim(anyInt(), eq(OJPlatform.HDU)))
+                .thenReturn(List.of(lease(1, OJPlatform.HDU, CrawlUnit.Kind.REBUILD, false)));
+        worker.poll();
+
+        // HDU 的额度被卡住的批次占满，Codeforces 仍按自己的额度认领
+        when(leaseService.claim(anyInt(), eq(OJPlatform.CODEFORCES)))
+                .thenReturn(List.of(lease(2, OJPlatform.CODEFORCES, CrawlUnit.Kind.REBUILD, false)));
+        worker.poll();
+        worker.poll();
+        verify(leaseService, times(1)).claim(anyInt(), eq(OJPlatform.HDU));
+        verify(leaseService, times(2)).claim(anyInt(), eq(OJPlatform.CODEFORCES));
+    }
+
+    private static List<IExtOJAdapter> adapters(OJPlatform... platforms) {
+        List<IExtOJAdapter> adapters = new ArrayList<>();
+        for (OJPlatform p : platforms) {
+            adapters.add(new IExtOJAdapter() {
+                @Override
+                public List<UserTryProblem> getUserTriesOnline(User user) {
+                    return List.of();
+                }
+
+                @Override
+                public List<ExtOjPbInfo> getAllPbInfoOnline() {
+                    return List.of();
+                }
+
+                @Override
+                public ExtOjLink getOjLink() {
+                    return null;
+                }
+
+                @Override
+                public OJPlatform getOjType() {
+                    return p;
+                }
+            });
+        }
+        return adapters;
+    }
+}
@@ -0,0 +1,204 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.crawler.DefaultRetryPolicy;
+import com.codingtracker.crawler.HostRateLimiter;
+import com.codingtracker.crawler.HttpUtil;
+import com.codingtracker.model.ExtOjLink;
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.service.extoj.IExtOJAdapter;
+import com.codingtracker.util.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 抓取执行模式基准：模拟一次重建（每个平台 USERS 个账号，按 BATCH 分批，每次请求上游延迟 LATENCY），
+ * 比较旧的固定线程池、platform 模式与 virtual 模式的墙钟时间。
+ * 上游是本地 HttpServer，响应由定时器延后发出，请求走真实的 HttpUtil.readStream、舱壁与批内 fanOut。
+ * 默认不运行：mvn -P java21 test -Dtest=ExecutorModeBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ExecutorModeBenchmark {
+
+    private static final int USERS = 120;
+    private static final int BATCH = 20;
+    private static final Duration LATENCY = Duration.ofMillis(20);
+    private static final int THREADS_PER_PLATFORM = 2;
+    private static final int VIRTUAL_PER_PLATFORM = 16;
+    private static final int HANDLE_PARALLELISM = 4;
+    private static final List<OJPlatform> PLATFORMS = List.of(OJPlatform.CODEFORCES, OJPlatform.LUOGU, OJPlatform.HDU);
+
+    private HttpServer server;
+    private ScheduledExecutorService upstreamClock;
+    private String baseUrl;
+    private final AtomicInteger served = new AtomicInteger();
+    private HttpUtil http;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstreamClock = Executors.newScheduledThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // 处理线程只登记延迟响应，不在请求上阻塞，上游的并发不成为瓶颈
+        server.createContext("/status", exchange ->
+                upstreamClock.schedule(() -> respond(exchange), LATENCY.toMillis(), TimeUnit.MILLISECONDS));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/status";
+
+        MockEnvironment env = new MockEnvironment().withProperty("crawler.rate-limit.default", "100000");
+        http = new HttpUtil();
+        ReflectionTestUtils.setField(http, "rateLimiter", new HostRateLimiter(env));
+        ReflectionTestUtils.setField(http, "retryPolicy", new DefaultRetryPolicy(10, 60, ""));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        upstreamClock.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange) {
+        try (exchange) {
+            byte[] body = "{\"status\":\"OK\",\"result\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            served.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void virtualModeShortensRebuildWallTime() throws Exception {
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21, "虚拟线程需要 Java 21（mvn -P java21）");
+        int requests = PLATFORMS.size() * USERS;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ExecutorService legacyPool = Executors.newFixedThreadPool(cores);
+        long legacy = timeLegacy(legacyPool);
+        legacyPool.shutdownNow();
+
+        PlatformBulkheads platformMode = new PlatformBulkheads(adapters(), "platform",
+                THREADS_PER_PLATFORM, VIRTUAL_PER_PLATFORM, 1000, 120);
+        long platform = timeBatches(platformMode);
+        platformMode.close();
+
+        ExecutorService fanOut = VirtualThreads.newPerTaskExecutor();
+        ReflectionTestUtils.setField(http, "fanOutExecutor", fanOut);
+        ReflectionTestUtils.setField(http, "handleParallelism", HANDLE_PARALLELISM);
+        PlatformBulkheads virtualMode = new PlatformBulkheads(adapters(), "virtual",
+                THREADS_PER_PLATFORM, VIRTUAL_PER_PLATFORM, 1000, 120);
+        long virtual = timeBatches(virtualMode);
+        virtualMode.close();
+        fanOut.shutdownNow();
+
+        assertEquals(3 * requests, served.get(), "三种方式都应完成全部请求");
+        String report = String.format("重建 %d 个平台 × %d 个账号，上游延迟 %d ms：固定线程池（%d 线程）%d ms，"
+                        + "platform 模式 %d ms，virtual 模式 %d ms",
+                PLATFORMS.size(), USERS, LATENCY.toMillis(), cores, legacy, platform, virtual);
+        // platform 模式批内串行：每个平台同时在途的请求不超过线程数
+        long platformFloor = (long) USERS / THREADS_PER_PLATFORM * LATENCY.toMillis();
+        assertTrue(platform >= platformFloor, report);
+        // virtual 模式每批同时在途 HANDLE_PARALLELISM 个请求，批数不超过每平台并发额度，至少快 4 倍
+        assertTrue(virtual * 4 <= platform, report);
+        assertTrue(virtual < legacy, report);
+    }
+
+    private long timeLegacy(ExecutorService pool) throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (OJPlatform p : PLATFORMS) {
+            for (int i = 0; i < USERS; i++) {
+                String url = url(p, i);
+                tasks.add(pool.submit(() -> http.readStream(url, InputStream::readAllBytes)));
+            }
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private long timeBatches(PlatformBulkheads bulkheads) throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (OJPlatform p : PLATFORMS) {
+            for (int from = 0; from < USERS; from += BATCH) {
+                List<Integer> batch = IntStream.range(from, Math.min(from + BATCH, USERS)).boxed().toList();
+                tasks.add(bulkheads.submit(p, () -> {
+                    try {
+                        bulkheads.call(p, () -> {
+                            http.fanOut(batch, i -> http.readStream(url(p, i), InputStream::readAllBytes))
+                                    .values().forEach(CompletableFuture::join);
+                            return null;
+                        });
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private String url(OJPlatform platform, int handle) {
+        return baseUrl + "?platform=" + platform.name().toLowerCase() + "&handle=" + handle;
+    }
+
+    private static List<IExtOJAdapter> adapters() {
+        List<IExtOJAdapter> adapters = new ArrayList<>();
+        for (OJPlatform p : PLATFORMS) {
+            adapters.add(new IExtOJAdapter() {
+                @Override
+                public List<UserTryProblem> getUserTriesOnline(User user) {
+                    return List.of();
+                }
+
+                @Override
+                public List<ExtOjPbInfo> getAllPbInfoOnline() {
+                    return List.of();
+                }
+
+                @Override
+                public ExtOjLink getOjLink() {
+                    return null;
+                }
+
+                @Override
+                public OJPlatform getOjType() {
+                    return p;
+                }
+            });
+        }
+        return adapters;
+    }
+}
@@ -0,0 +1,148 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.ExtOjLink;
+import com.codingtracker.model.ExtOjPbInfo;
+import com.codingtracker.model.OJPlatform;
+import com.codingtracker.model.User;
+import com.codingtracker.model.UserTryProblem;
+import com.codingtracker.service.extoj.IExtOJAdapter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 抓取扇出路径：每平台并发上限、平台之间互不阻塞、熔断后拒绝调用。
+ * virtual 模式在低于 Java 21 的运行时自动退回 platform 模式，两种模式都应满足同样的约束。
+ */
+class PlatformBulkheadsTest {
+
+    private static final int CONCURRENCY = 2;
+    private static final List<OJPlatform> PLATFORMS = List.of(OJPlatform.CODEFORCES, OJPlatform.HDU);
+
+    private PlatformBulkheads bulkheads;
+
+    @AfterEach
+    void tearDown() {
+        if (bulkheads != null) {
+            bulkheads.close();
+        }
+    }
+
+    private PlatformBulkheads create(String mode, int failureThreshold) {
+        bulkheads = new PlatformBulkheads(adapters(), mode, CONCURRENCY, CONCURRENCY, failureThreshold, 120);
+        return bulkheads;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"platform", "virtual"})
+    void concurrencyPerPlatformIsBounded(String mode) throws Exception {
+        PlatformBulkheads b = create(mode, 5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(b.submit(OJPlatform.CODEFORCES, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        // 等满额的任务都开始后再放行
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (running.get() < CONCURRENCY && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        for (Future<?> task : tasks) {
+            task.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(CONCURRENCY, peak.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"platform", "virtual"})
+    void blockedPlatformDoesNotStallOthers(String mode) throws Exception {
+        PlatformBulkheads b = create(mode, 5);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> stuck = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY * 3; i++) {
+            stuck.add(b.submit(OJPlatform.HDU, () -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        try {
+            // HDU 额度全部被占满时，Codeforces 的任务仍能立即执行
+            b.submit(OJPlatform.CODEFORCES, () -> { }).get(5, TimeUnit.SECONDS);
+            assertFalse(stuck.get(0).isDone());
+        } finally {
+            release.countDown();
+        }
+        for (Future<?> task : stuck) {
+            task.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void openBreakerRejectsWithoutCallingPlatform() throws Exception {
+        PlatformBulkheads b = create("platform", 2);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> b.call(OJPlatform.HDU, () -> {
+                throw new IllegalStateException("down");
+            }));
+        }
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(PlatformBulkheads.OpenException.class, () -> b.call(OJPlatform.HDU, calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertTrue(b.trippedPlatforms().contains(OJPlatform.HDU));
+        assertFalse(b.probeReadyPlatforms().contains(OJPlatform.HDU));
+
+        // 其他平台的熔断器不受影响
+        assertEquals(1, b.call(OJPlatform.CODEFORCES, () -> 1));
+        assertFalse(b.trippedPlatforms().contains(OJPlatform.CODEFORCES));
+    }
+
+    private static List<IExtOJAdapter> adapters() {
+        List<IExtOJAdapter> adapters = new ArrayList<>();
+        for (OJPlatform p : PLATFORMS) {
+            adapters.add(new IExtOJAdapter() {
+                @Override
+                public List<UserTryProblem> getUserTriesOnline(User user) {
+                    return List.of();
+                }
+
+                @Override
+                public List<ExtOjPbInfo> getAllPbInfoOnline() {
+                    return List.of();
+                }
+
+                @Override
+                public ExtOjLink getOjLink() {
+                    return null;
+                }
+
+                @Override
+                public OJPlatform getOjType() {
+                    return p;
+                }
+            });
+        }
+        return adapters;
+    }
+}
@@ -0,0 +1,89 @@
+package com.codingtracker.service.sync;
+
+import com.codingtracker.model.ProblemResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TryKeySetTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void addReportsWhetherKeyWasNew() {
+        TryKeySet set = new TryKeySet();
+        TryKey key = TryKey.of(1, 42, T0, ProblemResult.AC);
+        assertFalse(set.contains(key));
+        assertTrue(set.add(key));
+        assertFalse(set.add(key));
+        assertTrue(set.contains(key));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void keysDifferingOnlyInLoAreDistinct() {
+        TryKeySet set = new TryKeySet();
+        set.add(TryKey.of(1, 42, T0, ProblemResult.AC));
+        assertFalse(set.contains(TryKey.of(1, 42, T0, ProblemResult.WA)));
+        assertFalse(set.contains(TryKey.of(1, 42, T0.plusSeconds(1), ProblemResult.AC)));
+        assertTrue(set.add(TryKey.of(1, 42, T0, ProblemResult.WA)));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void matchesHashSetAcrossRehashes() {
+        Random random = new Random(7);
+        TryKeySet set = new TryKeySet();
+        Set<TryKey> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            // 取值范围较小，保证有相当比例的重复键
+            TryKey key = TryKey.of(1 + random.nextInt(50), random.nextInt(200),
+                    T0.plusSeconds(random.nextInt(100)), ProblemResult.values()[random.nextInt(2)]);
+            assertEquals(expected.add(key), set.add(key));
+        }
+        assertEquals(expected.size(), set.size());
+        for (TryKey key : expected) {
+            assertTrue(set.contains(key));
+        }
+        assertFalse(set.contains(TryKey.of(51, 0, T0, ProblemResult.AC)));
+    }
+
+    @Test
+    void presizedSetHoldsExpectedCount() {
+        TryKeySet set = new TryKeySet(1000);
+        for (int p = 0; p < 1000; p++) {
+            assertTrue(set.add(TryKey.of(3, p, T0, ProblemResult.AC)));
+        }
+        assertEquals(1000, set.size());
+    }
+
+    @Test
+    void zeroHiIsRejected() {
+        TryKeySet set = new TryKeySet();
+        assertThrows(IllegalArgumentException.class, () -> set.add(0, 1));
+        assertFalse(set.contains(0, 1));
+    }
+
+    @Test
+    void keyOrderFollowsUniqueIndex() {
+        // 按 用户、题目、时间、结果 升序
+        List<TryKey> ascending = List.of(
+                TryKey.of(1, 1, T0, ProblemResult.AC),
+                TryKey.of(1, 1, T0, ProblemResult.WA),
+                TryKey.of(1, 1, T0.plusSeconds(1), ProblemResult.AC),
+                TryKey.of(1, 2, T0, ProblemResult.AC),
+                TryKey.of(2, 1, T0, ProblemResult.AC));
+        List<TryKey> keys = new ArrayList<>(ascending);
+        Collections.shuffle(keys, new Random(1));
+        Collections.sort(keys);
+        assertEquals(ascending, keys);
+    }
+}